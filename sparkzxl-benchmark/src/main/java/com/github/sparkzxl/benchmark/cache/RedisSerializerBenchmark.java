@@ -0,0 +1,119 @@
+package com.github.sparkzxl.benchmark.cache;
+
+import com.github.sparkzxl.cache.serializer.CompactRedisSerializer;
+import com.github.sparkzxl.cache.serializer.CompactTypeRegistry;
+import com.github.sparkzxl.cache.serializer.FastJson2JsonRedisSerializer;
+import com.google.common.collect.ImmutableMap;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: redis值序列化对比，fastJson（WriteClassName）与紧凑二进制序列化的注册类型、未注册类型（类名 + JSON），
+ * 分别测量序列化、反序列化耗时，编码后的字节数在Setup时输出
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 18:12:36
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class RedisSerializerBenchmark {
+
+    private static final String BENCHMARK_PACKAGE = "com.github.sparkzxl.benchmark";
+
+    @Param({"fastjson", "compact", "compact-json"})
+    private String serializer;
+
+    @Param({"1", "100"})
+    private int size;
+
+    private RedisSerializer<Object> redisSerializer;
+    private Object value;
+    private byte[] bytes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        switch (serializer) {
+            case "compact":
+                redisSerializer = new CompactRedisSerializer(new CompactTypeRegistry(ImmutableMap.of(100, UserSample.class),
+                        Collections.singletonList(BENCHMARK_PACKAGE)), 0);
+                break;
+            case "compact-json":
+                redisSerializer = new CompactRedisSerializer(new CompactTypeRegistry(Collections.emptyMap(),
+                        Collections.singletonList(BENCHMARK_PACKAGE)), 0);
+                break;
+            default:
+                redisSerializer = new FastJson2JsonRedisSerializer<>(Object.class);
+        }
+        List<UserSample> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(UserSample.of(i));
+        }
+        value = size == 1 ? users.get(0) : users;
+        bytes = redisSerializer.serialize(value);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n[%s, size=%d] 编码后 %d 字节%n", serializer, size, bytes.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return redisSerializer.serialize(value);
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole) {
+        blackhole.consume(redisSerializer.deserialize(bytes));
+    }
+
+    @Data
+    public static class UserSample implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private Long id;
+        private String account;
+        private String name;
+        private Integer status;
+        private BigDecimal balance;
+        private LocalDateTime createTime;
+
+        static UserSample of(int i) {
+            UserSample user = new UserSample();
+            user.setId(1000000L + i);
+            user.setAccount("account" + i);
+            user.setName("用户" + i);
+            user.setStatus(i % 3);
+            user.setBalance(BigDecimal.valueOf(i * 100L, 2));
+            user.setCreateTime(LocalDateTime.of(2020, 10, 19, 18, 0).plusMinutes(i));
+            return user;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.sparkzxl.benchmark.core;
+
+import cn.hutool.core.util.StrUtil;
+import com.github.sparkzxl.core.utils.KeyTemplate;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: 缓存key拼接，对比原KeyUtils.buildKey（逐个参数concat模板后StrUtil.format）、
+ * 当前委托给KeyTemplate的KeyUtils.buildKey及直接持有预编译模板的KeyTemplate
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 18:52:07
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class KeyTemplateBenchmark {
+
+    private static final String REGION = "auth_user";
+    private static final KeyTemplate TEMPLATE = KeyTemplate.of(REGION);
+
+    private final Long userId = 1318503522839035904L;
+    private final String tenant = "sparkzxl";
+
+    @Benchmark
+    public String formatKey() {
+        return formatBuildKey(REGION, userId);
+    }
+
+    @Benchmark
+    public String keyUtilsKey() {
+        return KeyUtils.buildKey(REGION, userId);
+    }
+
+    @Benchmark
+    public String templateKey() {
+        return TEMPLATE.key(userId);
+    }
+
+    @Benchmark
+    public String formatKey2() {
+        return formatBuildKey(REGION, tenant, userId);
+    }
+
+    @Benchmark
+    public String keyUtilsKey2() {
+        return KeyUtils.buildKey(REGION, tenant, userId);
+    }
+
+    @Benchmark
+    public String templateKey2() {
+        return TEMPLATE.key(tenant, userId);
+    }
+
+    /**
+     * 引入KeyTemplate之前的KeyUtils.buildKey实现
+     */
+    private static String formatBuildKey(String template, Object... args) {
+        StringBuilder key = new StringBuilder();
+        if (args != null && args.length > 0) {
+            for (int i = 0; i < args.length; i++) {
+                template = template.concat(":{}");
+            }
+            key.append(StrUtil.format(template, args));
+        }
+        return key.toString();
+    }
+}
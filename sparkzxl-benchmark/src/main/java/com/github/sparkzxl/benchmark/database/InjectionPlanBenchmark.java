@@ -0,0 +1,172 @@
+package com.github.sparkzxl.benchmark.database;
+
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+import com.github.sparkzxl.database.annonation.InjectionField;
+import com.github.sparkzxl.database.entity.RemoteData;
+import com.github.sparkzxl.database.injection.InjectionFieldPo;
+import com.github.sparkzxl.database.injection.InjectionPlan;
+import lombok.Data;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: 注入字段的解析和写入，对比每个对象反射扫描字段和注解（原实现）与预编译的{@link InjectionPlan}，
+ * 不包含远程查询，只测量遍历一页数据的字段开销
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 18:35:20
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class InjectionPlanBenchmark {
+
+    private static final String INJECTED = "已注入";
+
+    @Param({"20", "500"})
+    private int size;
+
+    private List<UserSample> users;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(UserSample.of(i));
+        }
+        InjectionPlan.of(UserSample.class);
+    }
+
+    @Benchmark
+    public void reflectParse(Blackhole blackhole) throws IllegalAccessException {
+        for (UserSample user : users) {
+            for (Field field : ReflectUtil.getFields(user.getClass())) {
+                InjectionField anno = field.getDeclaredAnnotation(InjectionField.class);
+                if (anno == null) {
+                    continue;
+                }
+                field.setAccessible(true);
+                if (isNotBaseType(field)) {
+                    blackhole.consume(field.get(user));
+                    continue;
+                }
+                if (StrUtil.isEmpty(anno.api()) && Object.class.equals(anno.feign())) {
+                    continue;
+                }
+                blackhole.consume(new InjectionFieldPo(anno));
+                blackhole.consume(StrUtil.isNotEmpty(anno.key()) ? anno.key() : ReflectUtil.getFieldValue(user, field));
+            }
+        }
+    }
+
+    @Benchmark
+    public void planParse(Blackhole blackhole) {
+        for (UserSample user : users) {
+            for (InjectionPlan.FieldPlan field : InjectionPlan.of(user.getClass()).getFields()) {
+                if (field.isNested()) {
+                    blackhole.consume(field.get(user));
+                    continue;
+                }
+                if (field.isIgnored()) {
+                    continue;
+                }
+                blackhole.consume(field.getType());
+                blackhole.consume(field.hasFixedKey() ? field.getKey() : field.get(user));
+            }
+        }
+    }
+
+    @Benchmark
+    public void reflectInject() {
+        for (UserSample user : users) {
+            for (Field field : ReflectUtil.getFields(user.getClass())) {
+                InjectionField anno = field.getDeclaredAnnotation(InjectionField.class);
+                if (anno == null || isNotBaseType(field)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                ReflectUtil.setFieldValue(user, field, INJECTED);
+            }
+        }
+    }
+
+    @Benchmark
+    public void planInject() {
+        for (UserSample user : users) {
+            for (InjectionPlan.FieldPlan field : InjectionPlan.of(user.getClass()).getFields()) {
+                if (!field.isNested()) {
+                    field.set(user, INJECTED);
+                }
+            }
+        }
+    }
+
+    /**
+     * 原实现按类名逐个比较的基础类型判断
+     */
+    private static boolean isNotBaseType(Field field) {
+        String typeName = field.getType().getName();
+        return !Integer.class.getName().equals(typeName)
+                && !Byte.class.getName().equals(typeName)
+                && !Long.class.getName().equals(typeName)
+                && !Double.class.getName().equals(typeName)
+                && !Float.class.getName().equals(typeName)
+                && !Character.class.getName().equals(typeName)
+                && !Short.class.getName().equals(typeName)
+                && !Boolean.class.getName().equals(typeName)
+                && !String.class.getName().equals(typeName)
+                && !RemoteData.class.getName().equals(typeName);
+    }
+
+    @Data
+    public static class UserSample {
+
+        private Long id;
+        private String account;
+        private String name;
+        private Integer age;
+        private String email;
+
+        @InjectionField(api = "dictionaryServiceImpl", method = "findDictionaryItemByIds")
+        private String sex;
+
+        @InjectionField(api = "dictionaryServiceImpl", method = "findDictionaryItemByIds")
+        private String nation;
+
+        @InjectionField(api = "orgServiceImpl", method = "findOrgNameByIds")
+        private String org;
+
+        static UserSample of(int i) {
+            UserSample user = new UserSample();
+            user.setId((long) i);
+            user.setAccount("account" + i);
+            user.setName("用户" + i);
+            user.setAge(20 + i % 40);
+            user.setEmail("user" + i + "@sparkzxl.com");
+            user.setSex(String.valueOf(i % 2));
+            user.setNation("01");
+            user.setOrg(String.valueOf(i % 10));
+            return user;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.sparkzxl.cache.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * description: 缓存删除注解，方法执行成功后删除 region:key表达式的值 对应的缓存
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 14:10:36
+ */
+@Documented
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CacheEvict {
+
+    /**
+     * 缓存区域，作为缓存key的前缀
+     *
+     * @return String
+     */
+    String region();
+
+    /**
+     * 缓存key的SpEL表达式，可使用#参数名、#p0、#a0及#root.methodName，为空时使用全部参数以冒号拼接
+     *
+     * @return String
+     */
+    String key() default "";
+
+    /**
+     * 是否批量删除，为true时key表达式的值应为集合或数组，每个元素对应一个缓存key，一次批量删除
+     *
+     * @return boolean
+     */
+    boolean batch() default false;
+
+    /**
+     * 是否失效整个缓存区域，为true时忽略key
+     *
+     * @return boolean
+     */
+    boolean allEntries() default false;
+
+    /**
+     * 是否在方法执行前删除，默认方法执行成功后删除
+     *
+     * @return boolean
+     */
+    boolean beforeInvocation() default false;
+}
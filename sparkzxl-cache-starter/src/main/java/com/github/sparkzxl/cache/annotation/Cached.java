@@ -0,0 +1,47 @@
+package com.github.sparkzxl.cache.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * description: 方法返回值缓存注解，缓存key为 region:key表达式的值，未命中时执行方法并写入缓存
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 14:02:51
+ */
+@Documented
+@Target({ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Cached {
+
+    /**
+     * 缓存区域，作为缓存key的前缀
+     *
+     * @return String
+     */
+    String region();
+
+    /**
+     * 缓存key的SpEL表达式，可使用#参数名、#p0、#a0及#root.methodName，为空时使用全部参数以冒号拼接
+     *
+     * @return String
+     */
+    String key() default "";
+
+    /**
+     * 过期时间（单位：秒），小于等于0时不过期
+     *
+     * @return long
+     */
+    long ttl() default -1L;
+
+    /**
+     * 是否合并加载，同一JVM内同一个key并发未命中时只执行一次方法
+     *
+     * @return boolean
+     */
+    boolean sync() default false;
+}
@@ -0,0 +1,144 @@
+package com.github.sparkzxl.cache.aspect;
+
+import com.github.sparkzxl.cache.annotation.CacheEvict;
+import com.github.sparkzxl.cache.annotation.Cached;
+import com.github.sparkzxl.cache.support.SingleFlightLoader;
+import com.github.sparkzxl.cache.template.CacheTemplate;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.context.expression.AnnotatedElementKey;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.StringUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * description: @Cached / @CacheEvict 注解的 AOP 工具，基于默认CacheTemplate实现
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 14:35:42
+ */
+@Aspect
+@Slf4j
+public class CacheAnnotationAspect {
+
+    private final CacheTemplate cacheTemplate;
+    private final SingleFlightLoader singleFlightLoader = new SingleFlightLoader();
+    private final CacheExpressionEvaluator evaluator = new CacheExpressionEvaluator();
+
+    public CacheAnnotationAspect(CacheTemplate cacheTemplate) {
+        this.cacheTemplate = cacheTemplate;
+    }
+
+    @Around("@annotation(cached)")
+    public Object cached(ProceedingJoinPoint pjp, Cached cached) throws Throwable {
+        String key = cachedKey(pjp, cached);
+        if (key == null) {
+            return pjp.proceed();
+        }
+        Long ttl = cached.ttl() > 0 ? cached.ttl() : null;
+        try {
+            if (cached.sync()) {
+                return singleFlightLoader.load(key, () -> cacheTemplate.get(key, k -> invoke(pjp), key, ttl));
+            }
+            return cacheTemplate.get(key, k -> invoke(pjp), key, ttl);
+        } catch (InvocationException e) {
+            throw e.getCause();
+        }
+    }
+
+    private String cachedKey(ProceedingJoinPoint pjp, Cached cached) {
+        try {
+            return buildKey(cached.region(), keyValue(pjp, cached.key()));
+        } catch (Exception e) {
+            log.error("AOP拦截@Cached解析缓存key出错", e);
+            return null;
+        }
+    }
+
+    @Around("@annotation(cacheEvict)")
+    public Object evict(ProceedingJoinPoint pjp, CacheEvict cacheEvict) throws Throwable {
+        if (cacheEvict.beforeInvocation()) {
+            evict(pjp, cacheEvict);
+        }
+        Object result = pjp.proceed();
+        if (!cacheEvict.beforeInvocation()) {
+            evict(pjp, cacheEvict);
+        }
+        return result;
+    }
+
+    private void evict(ProceedingJoinPoint pjp, CacheEvict cacheEvict) {
+        if (cacheEvict.allEntries()) {
+            cacheTemplate.invalidateRegion(cacheEvict.region());
+            return;
+        }
+        Object value = keyValue(pjp, cacheEvict.key());
+        if (!cacheEvict.batch()) {
+            cacheTemplate.remove(buildKey(cacheEvict.region(), value));
+            return;
+        }
+        List<String> keys = Lists.newArrayList();
+        if (value instanceof Collection) {
+            ((Collection<?>) value).forEach(element -> keys.add(buildKey(cacheEvict.region(), element)));
+        } else if (value != null && value.getClass().isArray()) {
+            for (Object element : ObjectUtils.toObjectArray(value)) {
+                keys.add(buildKey(cacheEvict.region(), element));
+            }
+        } else {
+            keys.add(buildKey(cacheEvict.region(), value));
+        }
+        if (!keys.isEmpty()) {
+            cacheTemplate.multiRemove(keys);
+        }
+    }
+
+    /**
+     * 计算key表达式，表达式为空时返回全部参数以冒号拼接
+     */
+    private Object keyValue(ProceedingJoinPoint pjp, String keyExpression) {
+        Object[] args = pjp.getArgs();
+        if (!StringUtils.hasText(keyExpression)) {
+            return args.length == 0 ? null : KeyUtils.buildKey(args);
+        }
+        Object target = pjp.getTarget();
+        Class<?> targetClass = AopProxyUtils.ultimateTargetClass(target);
+        Method method = AopUtils.getMostSpecificMethod(((MethodSignature) pjp.getSignature()).getMethod(), targetClass);
+        EvaluationContext context = evaluator.createEvaluationContext(method, args, target, targetClass);
+        return evaluator.key(keyExpression, new AnnotatedElementKey(method, targetClass), context);
+    }
+
+    private static String buildKey(String region, Object value) {
+        return value == null ? region : KeyUtils.buildKey(region, value);
+    }
+
+    private static Object invoke(ProceedingJoinPoint pjp) {
+        try {
+            return pjp.proceed();
+        } catch (Throwable throwable) {
+            throw new InvocationException(throwable);
+        }
+    }
+
+    /**
+     * 包装加载函数中方法抛出的异常，返回前还原
+     */
+    private static class InvocationException extends RuntimeException {
+
+        private static final long serialVersionUID = 4425632847302467713L;
+
+        private InvocationException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
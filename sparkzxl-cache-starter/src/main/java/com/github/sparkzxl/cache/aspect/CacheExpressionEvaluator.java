@@ -0,0 +1,76 @@
+package com.github.sparkzxl.cache.aspect;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.context.expression.AnnotatedElementKey;
+import org.springframework.context.expression.CachedExpressionEvaluator;
+import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * description: 缓存注解key表达式解析，每个方法的表达式只解析一次，
+ * 使用MIXED编译模式，多次解释执行后编译为字节码，编译失败时回退解释执行
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 14:21:09
+ */
+public class CacheExpressionEvaluator extends CachedExpressionEvaluator {
+
+    private final Map<ExpressionKey, Expression> keyCache = new ConcurrentHashMap<>(64);
+
+    public CacheExpressionEvaluator() {
+        super(new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED,
+                CacheExpressionEvaluator.class.getClassLoader())));
+    }
+
+    /**
+     * 创建表达式上下文
+     *
+     * @param method      目标类上的方法
+     * @param args        方法参数
+     * @param target      目标对象
+     * @param targetClass 目标类
+     * @return EvaluationContext
+     */
+    public EvaluationContext createEvaluationContext(Method method, Object[] args, Object target, Class<?> targetClass) {
+        RootObject rootObject = new RootObject(method, args, target, targetClass);
+        return new MethodBasedEvaluationContext(rootObject, method, args, getParameterNameDiscoverer());
+    }
+
+    /**
+     * 计算key表达式
+     *
+     * @param keyExpression key表达式
+     * @param elementKey    方法标识
+     * @param context       表达式上下文
+     * @return Object
+     */
+    public Object key(String keyExpression, AnnotatedElementKey elementKey, EvaluationContext context) {
+        return getExpression(keyCache, elementKey, keyExpression).getValue(context);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class RootObject {
+
+        private final Method method;
+
+        private final Object[] args;
+
+        private final Object target;
+
+        private final Class<?> targetClass;
+
+        public String getMethodName() {
+            return method.getName();
+        }
+    }
+}
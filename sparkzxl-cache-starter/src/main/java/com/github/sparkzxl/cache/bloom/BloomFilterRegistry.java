@@ -0,0 +1,70 @@
+package com.github.sparkzxl.cache.bloom;
+
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * description: 各缓存区域的布隆过滤器，按配置的存储方式创建
+ *
+ * @author zhouxinlei
+ * @date 2020-10-15 10:02:19
+ */
+public class BloomFilterRegistry {
+
+    private final CacheProperties.BloomFilter bloomFilterProperties;
+    private final ObjectProvider<RedisTemplate<String, Object>> redisTemplateProvider;
+    private final Map<String, CacheBloomFilter> bloomFilters = new ConcurrentHashMap<>();
+
+    public BloomFilterRegistry(CacheProperties.BloomFilter bloomFilterProperties,
+                               ObjectProvider<RedisTemplate<String, Object>> redisTemplateProvider) {
+        this.bloomFilterProperties = bloomFilterProperties;
+        this.redisTemplateProvider = redisTemplateProvider;
+    }
+
+    /**
+     * 获取缓存区域的布隆过滤器，不存在时创建
+     *
+     * @param region 缓存区域
+     * @return CacheBloomFilter
+     */
+    public CacheBloomFilter getOrCreate(String region) {
+        return bloomFilters.computeIfAbsent(region, this::create);
+    }
+
+    /**
+     * 获取缓存区域的布隆过滤器
+     *
+     * @param region 缓存区域
+     * @return CacheBloomFilter 未启用时返回null
+     */
+    public CacheBloomFilter get(String region) {
+        return bloomFilters.get(region);
+    }
+
+    /**
+     * 过滤器是否在多个节点间共享，本地过滤器无法感知其他节点写入的元素
+     *
+     * @return boolean
+     */
+    public boolean isShared() {
+        return bloomFilterProperties.getType() == BloomFilterType.REDIS;
+    }
+
+    private CacheBloomFilter create(String region) {
+        long expectedInsertions = bloomFilterProperties.getExpectedInsertions();
+        double fpp = bloomFilterProperties.getFpp();
+        if (bloomFilterProperties.getType() == BloomFilterType.REDIS) {
+            RedisTemplate<String, Object> redisTemplate = redisTemplateProvider.getIfAvailable();
+            if (redisTemplate == null) {
+                throw new IllegalStateException("redis布隆过滤器需要配置RedisTemplate");
+            }
+            String key = bloomFilterProperties.getKeyPrefix().concat(":").concat(region);
+            return new RedisCacheBloomFilter(redisTemplate, key, expectedInsertions, fpp);
+        }
+        return new LocalCacheBloomFilter(expectedInsertions, fpp);
+    }
+}
@@ -0,0 +1,20 @@
+package com.github.sparkzxl.cache.bloom;
+
+/**
+ * description: 布隆过滤器存储方式
+ *
+ * @author zhouxinlei
+ * @date 2020-10-15 09:35:12
+ */
+public enum BloomFilterType {
+
+    /**
+     * 本地内存，每个节点启动时各自构建
+     */
+    LOCAL,
+
+    /**
+     * redis位图，多个节点共享
+     */
+    REDIS
+}
@@ -0,0 +1,46 @@
+package com.github.sparkzxl.cache.bloom;
+
+import java.util.Collection;
+
+/**
+ * description: 缓存区域布隆过滤器，拦截一定不存在的key，避免穿透到缓存及数据库
+ *
+ * @author zhouxinlei
+ * @date 2020-10-15 09:37:46
+ */
+public interface CacheBloomFilter {
+
+    /**
+     * 元素是否可能存在，返回false时一定不存在
+     *
+     * @param value 元素
+     * @return boolean
+     */
+    boolean mightContain(String value);
+
+    /**
+     * 添加元素
+     *
+     * @param value 元素
+     */
+    void put(String value);
+
+    /**
+     * 批量添加元素
+     *
+     * @param values 元素集合
+     */
+    void putAll(Collection<String> values);
+
+    /**
+     * 是否已初始化，未初始化的过滤器不做拦截
+     *
+     * @return boolean
+     */
+    boolean isInitialized();
+
+    /**
+     * 标记初始化完成
+     */
+    void markInitialized();
+}
@@ -0,0 +1,48 @@
+package com.github.sparkzxl.cache.bloom;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * description: 本地内存布隆过滤器
+ *
+ * @author zhouxinlei
+ * @date 2020-10-15 09:41:03
+ */
+public class LocalCacheBloomFilter implements CacheBloomFilter {
+
+    private final BloomFilter<CharSequence> bloomFilter;
+    private volatile boolean initialized;
+
+    public LocalCacheBloomFilter(long expectedInsertions, double fpp) {
+        this.bloomFilter = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, fpp);
+    }
+
+    @Override
+    public boolean mightContain(String value) {
+        return !initialized || bloomFilter.mightContain(value);
+    }
+
+    @Override
+    public void put(String value) {
+        bloomFilter.put(value);
+    }
+
+    @Override
+    public void putAll(Collection<String> values) {
+        values.forEach(bloomFilter::put);
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return initialized;
+    }
+
+    @Override
+    public void markInitialized() {
+        this.initialized = true;
+    }
+}
@@ -0,0 +1,115 @@
+package com.github.sparkzxl.cache.bloom;
+
+import com.google.common.hash.Hashing;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.CollectionUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * description: redis位图布隆过滤器，多个节点共享，一次判断或添加通过管道在一次往返内完成
+ *
+ * @author zhouxinlei
+ * @date 2020-10-15 09:46:28
+ */
+public class RedisCacheBloomFilter implements CacheBloomFilter {
+
+    /**
+     * redis位图最大长度 2^32 位
+     */
+    private static final long MAX_BITS = 1L << 32;
+    private static final String INITIALIZED_SUFFIX = ":initialized";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final byte[] rawKey;
+    private final String initializedKey;
+    private final long numBits;
+    private final int numHashFunctions;
+    private volatile boolean initialized;
+
+    public RedisCacheBloomFilter(RedisTemplate<String, Object> redisTemplate, String key, long expectedInsertions, double fpp) {
+        this.redisTemplate = redisTemplate;
+        this.rawKey = key.getBytes(StandardCharsets.UTF_8);
+        this.initializedKey = key.concat(INITIALIZED_SUFFIX);
+        long n = Math.max(1L, expectedInsertions);
+        this.numBits = Math.min(MAX_BITS, Math.max(64L, (long) (-n * Math.log(fpp) / (Math.log(2) * Math.log(2)))));
+        this.numHashFunctions = Math.max(1, (int) Math.round((double) numBits / n * Math.log(2)));
+    }
+
+    @Override
+    public boolean mightContain(String value) {
+        if (!isInitialized()) {
+            return true;
+        }
+        long[] offsets = offsets(value);
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long offset : offsets) {
+                connection.getBit(rawKey, offset);
+            }
+            return null;
+        });
+        for (Object result : results) {
+            if (!Boolean.TRUE.equals(result)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void put(String value) {
+        putAll(Collections.singletonList(value));
+    }
+
+    @Override
+    public void putAll(Collection<String> values) {
+        if (CollectionUtils.isEmpty(values)) {
+            return;
+        }
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String value : values) {
+                for (long offset : offsets(value)) {
+                    connection.setBit(rawKey, offset, true);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public boolean isInitialized() {
+        if (!initialized) {
+            initialized = Boolean.TRUE.equals(redisTemplate.hasKey(initializedKey));
+        }
+        return initialized;
+    }
+
+    @Override
+    public void markInitialized() {
+        redisTemplate.opsForValue().set(initializedKey, System.currentTimeMillis());
+        this.initialized = true;
+    }
+
+    /**
+     * 与Guava BloomFilter（MURMUR128_MITZ_64）相同的双重哈希方式计算各哈希函数对应的位
+     */
+    private long[] offsets(String value) {
+        ByteBuffer hash = ByteBuffer.wrap(Hashing.murmur3_128().hashString(value, StandardCharsets.UTF_8).asBytes())
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long hash1 = hash.getLong(0);
+        long hash2 = hash.getLong(8);
+        long[] offsets = new long[numHashFunctions];
+        long combinedHash = hash1;
+        for (int i = 0; i < numHashFunctions; i++) {
+            offsets[i] = (combinedHash & Long.MAX_VALUE) % numBits;
+            combinedHash += hash2;
+        }
+        return offsets;
+    }
+}
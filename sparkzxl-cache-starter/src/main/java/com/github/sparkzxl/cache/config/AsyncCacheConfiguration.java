@@ -0,0 +1,51 @@
+package com.github.sparkzxl.cache.config;
+
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.support.RegionNamespace;
+import com.github.sparkzxl.cache.template.AsyncCacheTemplate;
+import com.github.sparkzxl.cache.template.RedisAsyncCacheTemplateImpl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import reactor.core.publisher.Mono;
+
+/**
+ * description: 非阻塞缓存配置，使用Lettuce连接工厂时注册
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 16:58:43
+ */
+@Configuration
+@ConditionalOnClass(Mono.class)
+@AutoConfigureAfter(RedisConfiguration.class)
+public class AsyncCacheConfiguration {
+
+    /**
+     * 非阻塞缓存，与redisTemplate使用相同的值序列化方式
+     *
+     * @param connectionFactory 响应式redis连接工厂
+     * @param redisTemplate     redisTemplate
+     * @param cacheProperties   缓存属性配置
+     * @param regionNamespace   缓存区域版本命名空间
+     * @return AsyncCacheTemplate
+     */
+    @Bean
+    @ConditionalOnBean({ReactiveRedisConnectionFactory.class, RedisTemplate.class})
+    @ConditionalOnMissingBean
+    @SuppressWarnings("unchecked")
+    public AsyncCacheTemplate asyncCacheTemplate(ReactiveRedisConnectionFactory connectionFactory,
+                                                 RedisTemplate<String, Object> redisTemplate,
+                                                 CacheProperties cacheProperties,
+                                                 ObjectProvider<RegionNamespace> regionNamespace) {
+        return new RedisAsyncCacheTemplateImpl(connectionFactory, (RedisSerializer<Object>) redisTemplate.getValueSerializer(),
+                cacheProperties, regionNamespace.getIfAvailable());
+    }
+
+}
@@ -0,0 +1,33 @@
+package com.github.sparkzxl.cache.config;
+
+import com.github.sparkzxl.cache.aspect.CacheAnnotationAspect;
+import com.github.sparkzxl.cache.template.CacheTemplate;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * description: 缓存注解配置
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 15:02:18
+ */
+@Configuration
+@ConditionalOnClass(Aspect.class)
+@AutoConfigureAfter({RedisConfiguration.class, CacheAutoConfiguration.class})
+public class CacheAnnotationConfiguration {
+
+    @Bean
+    @ConditionalOnBean(CacheTemplate.class)
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(name = "sparkzxl.cache.aop-enabled", havingValue = "true", matchIfMissing = true)
+    public CacheAnnotationAspect cacheAnnotationAspect(CacheTemplate cacheTemplate) {
+        return new CacheAnnotationAspect(cacheTemplate);
+    }
+
+}
@@ -1,9 +1,20 @@
 package com.github.sparkzxl.cache.config;
 
+import com.github.sparkzxl.cache.bloom.BloomFilterRegistry;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.snapshot.CacheSnapshotManager;
+import com.github.sparkzxl.cache.snapshot.SnapshotSupport;
+import com.github.sparkzxl.cache.support.CacheResizeScheduler;
 import com.github.sparkzxl.cache.template.CacheCaffeineTemplateImpl;
-import com.github.sparkzxl.cache.template.CacheTemplate;
+import com.github.sparkzxl.cache.template.OffHeapCacheTemplateImpl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.Map;
 
 /**
  * description: 缓存自动配置类
@@ -12,11 +23,63 @@ import org.springframework.context.annotation.Configuration;
  * @date: 2020-07-09 12:05:47
  */
 @Configuration
+@EnableConfigurationProperties(CacheProperties.class)
 public class CacheAutoConfiguration {
 
     @Bean
-    public CacheTemplate cacheCaffeineTemplate() {
-        return new CacheCaffeineTemplateImpl();
+    public CacheCaffeineTemplateImpl cacheCaffeineTemplate(CacheProperties cacheProperties) {
+        return new CacheCaffeineTemplateImpl(cacheProperties);
+    }
+
+    /**
+     * 本地缓存各区域容量按命中收益周期性调整
+     *
+     * @param cacheCaffeineTemplate Caffeine本地缓存
+     * @param cacheProperties       缓存属性配置
+     * @return CacheResizeScheduler
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sparkzxl.cache.caffeine.adaptive", havingValue = "true", matchIfMissing = true)
+    public CacheResizeScheduler cacheResizeScheduler(CacheCaffeineTemplateImpl cacheCaffeineTemplate, CacheProperties cacheProperties) {
+        return new CacheResizeScheduler(cacheCaffeineTemplate, cacheProperties.getCaffeine().getResizeInterval());
+    }
+
+    /**
+     * 堆外本地缓存，存放大对象以减少GC停顿
+     *
+     * @param cacheProperties 缓存属性配置
+     * @return OffHeapCacheTemplateImpl
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sparkzxl.cache.off-heap.enabled", havingValue = "true")
+    public OffHeapCacheTemplateImpl offHeapCacheTemplate(CacheProperties cacheProperties) {
+        return new OffHeapCacheTemplateImpl(cacheProperties);
+    }
+
+    /**
+     * 本地缓存快照，启动时挂载上次的快照并在未命中时懒加载，按间隔及应用关闭时写入快照
+     *
+     * @param snapshotSupports 支持快照的本地缓存，key为bean名称
+     * @param cacheProperties  缓存属性配置
+     * @return CacheSnapshotManager
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sparkzxl.cache.snapshot.enabled", havingValue = "true")
+    public CacheSnapshotManager cacheSnapshotManager(Map<String, SnapshotSupport> snapshotSupports, CacheProperties cacheProperties) {
+        return new CacheSnapshotManager(snapshotSupports, cacheProperties.getSnapshot());
+    }
+
+    /**
+     * 缓存区域布隆过滤器
+     *
+     * @param cacheProperties       缓存属性配置
+     * @param redisTemplateProvider redisTemplate，redis布隆过滤器时必须存在
+     * @return BloomFilterRegistry
+     */
+    @Bean
+    public BloomFilterRegistry bloomFilterRegistry(CacheProperties cacheProperties,
+                                                   ObjectProvider<RedisTemplate<String, Object>> redisTemplateProvider) {
+        return new BloomFilterRegistry(cacheProperties.getBloomFilter(), redisTemplateProvider);
     }
 
 }
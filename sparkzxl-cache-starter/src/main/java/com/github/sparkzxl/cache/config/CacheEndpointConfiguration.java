@@ -0,0 +1,41 @@
+package com.github.sparkzxl.cache.config;
+
+import com.github.sparkzxl.cache.endpoint.CacheStatsEndpoint;
+import com.github.sparkzxl.cache.endpoint.HotKeyEndpoint;
+import com.github.sparkzxl.cache.hotkey.HotKeyDetector;
+import com.github.sparkzxl.cache.template.CacheTemplate;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * description: 缓存监控端点配置，存在actuator时注册
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 11:12:08
+ */
+@Configuration
+@ConditionalOnClass(Endpoint.class)
+@AutoConfigureAfter({RedisConfiguration.class, CacheAutoConfiguration.class})
+public class CacheEndpointConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public CacheStatsEndpoint cacheStatsEndpoint(Map<String, CacheTemplate> cacheTemplates) {
+        return new CacheStatsEndpoint(cacheTemplates);
+    }
+
+    @Bean
+    @ConditionalOnBean(HotKeyDetector.class)
+    @ConditionalOnMissingBean
+    public HotKeyEndpoint hotKeyEndpoint(HotKeyDetector hotKeyDetector) {
+        return new HotKeyEndpoint(hotKeyDetector);
+    }
+
+}
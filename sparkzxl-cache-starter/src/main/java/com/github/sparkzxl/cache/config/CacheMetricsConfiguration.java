@@ -0,0 +1,29 @@
+package com.github.sparkzxl.cache.config;
+
+import com.github.sparkzxl.cache.metrics.CacheLoadMetrics;
+import com.github.sparkzxl.cache.support.SingleFlightLoader;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * description: 缓存指标配置，存在micrometer时注册缓存相关指标
+ *
+ * @author zhouxinlei
+ * @date 2020-10-12 15:18:09
+ */
+@Configuration
+@ConditionalOnClass(MeterBinder.class)
+@AutoConfigureAfter(RedisConfiguration.class)
+public class CacheMetricsConfiguration {
+
+    @Bean
+    @ConditionalOnBean(SingleFlightLoader.class)
+    public CacheLoadMetrics cacheLoadMetrics(SingleFlightLoader singleFlightLoader) {
+        return new CacheLoadMetrics(singleFlightLoader);
+    }
+
+}
@@ -1,17 +1,33 @@
 package com.github.sparkzxl.cache.config;
 
+import com.github.sparkzxl.cache.counter.WriteBehindCounter;
+import com.github.sparkzxl.cache.hotkey.HotKeyDetector;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.serializer.CompactRedisSerializer;
+import com.github.sparkzxl.cache.serializer.CompactTypeRegistry;
 import com.github.sparkzxl.cache.serializer.FastJson2JsonRedisSerializer;
+import com.github.sparkzxl.cache.support.RefreshAheadSupport;
+import com.github.sparkzxl.cache.support.RegionNamespace;
+import com.github.sparkzxl.cache.support.RegionSweeper;
+import com.github.sparkzxl.cache.support.SingleFlightLoader;
+import com.github.sparkzxl.cache.template.NearCacheTemplateImpl;
 import com.github.sparkzxl.cache.utils.TokenUtil;
 import com.github.sparkzxl.cache.template.RedisCacheTemplateImpl;
 import com.github.sparkzxl.cache.template.CacheTemplate;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -23,39 +39,176 @@ import org.springframework.data.redis.serializer.StringRedisSerializer;
  */
 @Configuration
 @AutoConfigureAfter(RedisAutoConfiguration.class)
+@EnableConfigurationProperties(CacheProperties.class)
 public class RedisConfiguration {
 
     /**
      * redisTemplate设置
      *
      * @param redisConnectionFactory redis连接工厂
+     * @param cacheProperties        缓存属性配置
      * @return RedisTemplate<String, Object>
      */
     @Bean
     @ConditionalOnBean(RedisConnectionFactory.class)
-    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
+    public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory redisConnectionFactory, CacheProperties cacheProperties) {
         RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         RedisSerializer<String> stringSerializer = new StringRedisSerializer();
-        RedisSerializer<Object> fastJson2JsonRedisSerializer = fastJson2JsonRedisSerializer();
+        RedisSerializer<Object> valueSerializer = valueSerializer(cacheProperties.getSerializer());
         redisTemplate.setKeySerializer(stringSerializer);
         redisTemplate.setHashKeySerializer(stringSerializer);
-        redisTemplate.setHashValueSerializer(fastJson2JsonRedisSerializer);
-        redisTemplate.setValueSerializer(fastJson2JsonRedisSerializer);
+        redisTemplate.setHashValueSerializer(valueSerializer);
+        redisTemplate.setValueSerializer(valueSerializer);
         redisTemplate.afterPropertiesSet();
         return redisTemplate;
     }
 
+    private RedisSerializer<Object> valueSerializer(CacheProperties.Serializer serializer) {
+        switch (serializer.getType()) {
+            case COMPACT:
+                return new CompactRedisSerializer(new CompactTypeRegistry(serializer.getTypes(), serializer.getAllowedPackages()),
+                        serializer.getCompressThreshold());
+            case JDK:
+                return new JdkSerializationRedisSerializer();
+            default:
+                // 只在选用fastJson时创建，其静态初始化会全局开启fastJson的autoType
+                return new FastJson2JsonRedisSerializer<>(Object.class);
+        }
+    }
+
+    /**
+     * 缓存合并加载器，统计等待线程及加载租约竞争情况
+     *
+     * @return SingleFlightLoader
+     */
+    @Bean
+    public SingleFlightLoader singleFlightLoader() {
+        return new SingleFlightLoader();
+    }
+
+    /**
+     * 热点key提前刷新
+     *
+     * @param cacheProperties 缓存属性配置
+     * @return RefreshAheadSupport
+     */
+    @Bean
+    public RefreshAheadSupport refreshAheadSupport(CacheProperties cacheProperties) {
+        return new RefreshAheadSupport(cacheProperties.getRefreshAhead());
+    }
+
+    /**
+     * 热点key探测
+     *
+     * @param cacheProperties 缓存属性配置
+     * @return HotKeyDetector
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sparkzxl.cache.hot-key.enabled", havingValue = "true")
+    public HotKeyDetector hotKeyDetector(CacheProperties cacheProperties) {
+        return new HotKeyDetector(cacheProperties.getHotKey());
+    }
+
+    /**
+     * 缓存区域版本命名空间
+     *
+     * @param redisTemplate   redisTemplate
+     * @param cacheProperties 缓存属性配置
+     * @return RegionNamespace
+     */
+    @Bean
+    @ConditionalOnBean(RedisTemplate.class)
+    public RegionNamespace regionNamespace(RedisTemplate<String, Object> redisTemplate, CacheProperties cacheProperties) {
+        return new RegionNamespace(redisTemplate, cacheProperties.getNamespace());
+    }
+
+    /**
+     * 旧版本key后台清理
+     *
+     * @param redisTemplate   redisTemplate
+     * @param regionNamespace 缓存区域版本命名空间
+     * @param cacheProperties 缓存属性配置
+     * @return RegionSweeper
+     */
+    @Bean
+    @ConditionalOnBean(RegionNamespace.class)
+    @ConditionalOnProperty(name = "sparkzxl.cache.namespace.sweep-enabled", havingValue = "true", matchIfMissing = true)
+    public RegionSweeper regionSweeper(RedisTemplate<String, Object> redisTemplate, RegionNamespace regionNamespace,
+                                       CacheProperties cacheProperties) {
+        return new RegionSweeper(redisTemplate, regionNamespace, cacheProperties.getNamespace());
+    }
+
+    /**
+     * 合并写计数器
+     *
+     * @param redisTemplate   redisTemplate
+     * @param regionNamespace 缓存区域版本命名空间
+     * @param cacheProperties 缓存属性配置
+     * @return WriteBehindCounter
+     */
+    @Bean
+    @ConditionalOnBean(RedisTemplate.class)
+    @ConditionalOnProperty(name = "sparkzxl.cache.counter.enabled", havingValue = "true")
+    public WriteBehindCounter writeBehindCounter(RedisTemplate<String, Object> redisTemplate,
+                                                 ObjectProvider<RegionNamespace> regionNamespace,
+                                                 CacheProperties cacheProperties) {
+        return new WriteBehindCounter(redisTemplate, regionNamespace.getIfAvailable(), cacheProperties.getCounter());
+    }
+
     @Bean
-    public FastJson2JsonRedisSerializer<Object> fastJson2JsonRedisSerializer() {
-        return new FastJson2JsonRedisSerializer<>(Object.class);
+    @ConditionalOnBean(RedisTemplate.class)
+    @ConditionalOnProperty(name = "sparkzxl.cache.near.enabled", havingValue = "false", matchIfMissing = true)
+    @Primary
+    public CacheTemplate redisCacheTemplate(RedisTemplate<String, Object> redisTemplate, SingleFlightLoader singleFlightLoader,
+                                            RefreshAheadSupport refreshAheadSupport, CacheProperties cacheProperties,
+                                            ObjectProvider<HotKeyDetector> hotKeyDetector,
+                                            ObjectProvider<RegionNamespace> regionNamespace) {
+        return new RedisCacheTemplateImpl(redisTemplate, singleFlightLoader, refreshAheadSupport, cacheProperties,
+                hotKeyDetector.getIfAvailable(), regionNamespace.getIfAvailable());
     }
 
+    /**
+     * 二级缓存，启用后作为默认CacheTemplate
+     *
+     * @param redisTemplate       redisTemplate
+     * @param singleFlightLoader  缓存合并加载器
+     * @param refreshAheadSupport 热点key提前刷新
+     * @param cacheProperties     缓存属性配置
+     * @param hotKeyDetector      热点key探测
+     * @param regionNamespace     缓存区域版本命名空间
+     * @return NearCacheTemplateImpl
+     */
     @Bean
     @ConditionalOnBean(RedisTemplate.class)
+    @ConditionalOnProperty(name = "sparkzxl.cache.near.enabled", havingValue = "true")
     @Primary
-    public CacheTemplate redisCacheTemplate(RedisTemplate<String, Object> redisTemplate) {
-        return new RedisCacheTemplateImpl(redisTemplate);
+    public NearCacheTemplateImpl nearCacheTemplate(RedisTemplate<String, Object> redisTemplate, SingleFlightLoader singleFlightLoader,
+                                                   RefreshAheadSupport refreshAheadSupport, CacheProperties cacheProperties,
+                                                   ObjectProvider<HotKeyDetector> hotKeyDetector,
+                                                   ObjectProvider<RegionNamespace> regionNamespace) {
+        RedisCacheTemplateImpl redisCacheTemplate = new RedisCacheTemplateImpl(redisTemplate, singleFlightLoader,
+                refreshAheadSupport, cacheProperties, hotKeyDetector.getIfAvailable(), regionNamespace.getIfAvailable());
+        return new NearCacheTemplateImpl(redisTemplate, redisCacheTemplate, cacheProperties.getNear());
+    }
+
+    /**
+     * 订阅二级缓存失效消息
+     *
+     * @param redisConnectionFactory redis连接工厂
+     * @param nearCacheTemplate      二级缓存
+     * @param cacheProperties        缓存属性配置
+     * @return RedisMessageListenerContainer
+     */
+    @Bean
+    @ConditionalOnBean(NearCacheTemplateImpl.class)
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                            NearCacheTemplateImpl nearCacheTemplate,
+                                                                            CacheProperties cacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(nearCacheTemplate, new ChannelTopic(cacheProperties.getNear().getTopic()));
+        return container;
     }
 
     @Bean
@@ -0,0 +1,20 @@
+package com.github.sparkzxl.cache.counter;
+
+/**
+ * description: 计数器读取模式
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 16:08:27
+ */
+public enum CounterReadMode {
+
+    /**
+     * 精确读取，先同步写入本节点未写入的累加值再读取redis
+     */
+    EXACT,
+
+    /**
+     * 最终一致读取，本地缓存的redis计数加上本节点未写入的累加值，不访问redis；其他节点的累加值在其写入后可见
+     */
+    EVENTUAL
+}
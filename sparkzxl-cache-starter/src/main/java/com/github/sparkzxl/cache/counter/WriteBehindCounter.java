@@ -0,0 +1,338 @@
+package com.github.sparkzxl.cache.counter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.support.RegionNamespace;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * description: 合并写计数器，累加值先记录在本地LongAdder中，按间隔或累计次数通过管道批量INCRBY写入redis，
+ * 每个key每个周期只产生一次redis写入；应用关闭时写入全部未写入的累加值，写入失败的累加值保留到下一周期。
+ * 管道中有返回结果的key不会重复写入；连接中断等无法确认结果的写入按至少一次处理，重试时可能重复累加
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 16:15:42
+ */
+@Slf4j
+public class WriteBehindCounter implements DisposableBean {
+
+    private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RegionNamespace regionNamespace;
+    private final CacheProperties.Counter counterProperties;
+    private final ConcurrentMap<String, PendingDelta> pending = new ConcurrentHashMap<>();
+    private final LongAdder pendingCount = new LongAdder();
+    private final Cache<String, Long> remoteValues;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushSubmitted = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler;
+    private volatile boolean closed;
+
+    public WriteBehindCounter(RedisTemplate<String, Object> redisTemplate, RegionNamespace regionNamespace,
+                              CacheProperties.Counter counterProperties) {
+        this.redisTemplate = redisTemplate;
+        this.regionNamespace = regionNamespace;
+        this.counterProperties = counterProperties;
+        this.remoteValues = Caffeine.newBuilder()
+                .maximumSize(counterProperties.getMaximumSize())
+                .expireAfterWrite(counterProperties.getReadExpireTime(), TimeUnit.MILLISECONDS)
+                .build();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-counter-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, counterProperties.getFlushInterval(),
+                counterProperties.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 递增
+     *
+     * @param key 缓存键 不可为空
+     */
+    public void increment(String key) {
+        add(key, 1L);
+    }
+
+    /**
+     * 递减
+     *
+     * @param key 缓存键 不可为空
+     */
+    public void decrement(String key) {
+        add(key, -1L);
+    }
+
+    /**
+     * 累加，只记录在本地，按间隔或累计次数批量写入redis
+     *
+     * @param key   缓存键 不可为空
+     * @param delta 累加值
+     */
+    public void add(String key, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (closed) {
+            incrBy(key, delta);
+            return;
+        }
+        addPending(key, delta);
+        long flushThreshold = counterProperties.getFlushThreshold();
+        if (flushThreshold > 0) {
+            pendingCount.increment();
+            if (pendingCount.sum() >= flushThreshold && flushSubmitted.compareAndSet(false, true)) {
+                scheduler.execute(() -> {
+                    try {
+                        flushQuietly();
+                    } finally {
+                        flushSubmitted.set(false);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 按默认读取模式读取计数
+     *
+     * @param key 缓存键 不可为空
+     * @return long
+     */
+    public long get(String key) {
+        return get(key, counterProperties.getReadMode());
+    }
+
+    /**
+     * 读取计数
+     *
+     * @param key      缓存键 不可为空
+     * @param readMode 读取模式
+     * @return long
+     */
+    public long get(String key, CounterReadMode readMode) {
+        if (readMode == CounterReadMode.EXACT) {
+            return getExact(key);
+        }
+        Long remote = remoteValues.get(key, this::readRemote);
+        PendingDelta pendingDelta = pending.get(key);
+        return (remote == null ? 0L : remote) + (pendingDelta == null ? 0L : pendingDelta.unwritten());
+    }
+
+    /**
+     * 同步写入该key未写入的累加值后返回redis中的计数，持有flushLock保证不会漏掉正在写入的累加值
+     */
+    private long getExact(String key) {
+        flushLock.lock();
+        try {
+            PendingDelta pendingDelta = pending.get(key);
+            long delta = pendingDelta == null ? 0L : pendingDelta.drain();
+            if (delta == 0) {
+                long value = readRemote(key);
+                remoteValues.put(key, value);
+                return value;
+            }
+            try {
+                long value = incrBy(key, delta);
+                remoteValues.put(key, value);
+                return value;
+            } catch (RuntimeException e) {
+                addPending(key, delta);
+                throw e;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 将全部未写入的累加值通过管道批量INCRBY写入redis
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            pendingCount.reset();
+            Map<String, Long> deltas = Maps.newLinkedHashMap();
+            pending.forEach((key, pendingDelta) -> {
+                long delta = pendingDelta.drain();
+                if (delta == 0 && pendingDelta.retire()) {
+                    // 退役后不再有线程累加，再读取一次检查前完成的累加值
+                    pending.remove(key, pendingDelta);
+                    delta = pendingDelta.drain();
+                }
+                if (delta != 0) {
+                    deltas.put(key, delta);
+                }
+            });
+            write(deltas);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("计数器写入redis失败：{}", e.getMessage());
+        }
+    }
+
+    private void write(Map<String, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<String> keys = Lists.newArrayList(deltas.keySet());
+        List<Object> results;
+        RuntimeException failure = null;
+        try {
+            results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.incrBy(redisKey(key), deltas.get(key));
+                }
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            // 管道中部分命令失败，结果按命令顺序排列，失败的命令对应异常
+            results = e.getPipelineResult();
+            failure = e;
+        } catch (RuntimeException e) {
+            // 无法确认哪些命令已执行，全部放回本地重试
+            results = Collections.emptyList();
+            failure = e;
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            Object value = i < results.size() ? results.get(i) : null;
+            if (value instanceof Long) {
+                remoteValues.put(keys.get(i), (Long) value);
+            } else {
+                // 没有返回结果的累加值放回本地，下一周期重试
+                addPending(keys.get(i), deltas.get(keys.get(i)));
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private long incrBy(String key, long delta) {
+        Long value = redisTemplate.execute((RedisCallback<Long>) connection -> connection.incrBy(redisKey(key), delta));
+        return value == null ? 0L : value;
+    }
+
+    private long readRemote(String key) {
+        byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(redisKey(key)));
+        return bytes == null ? 0L : Long.parseLong(new String(bytes, DEFAULT_CHARSET));
+    }
+
+    private byte[] redisKey(String key) {
+        String redisKey = regionNamespace == null ? key : regionNamespace.toRedisKey(key);
+        return redisKey.getBytes(DEFAULT_CHARSET);
+    }
+
+    /**
+     * 累加到key当前的PendingDelta，已退役时移除后重新创建
+     */
+    private void addPending(String key, long delta) {
+        for (; ; ) {
+            PendingDelta pendingDelta = pending.get(key);
+            if (pendingDelta == null) {
+                pendingDelta = pending.computeIfAbsent(key, k -> new PendingDelta());
+            }
+            if (pendingDelta.add(delta)) {
+                return;
+            }
+            pending.remove(key, pendingDelta);
+        }
+    }
+
+    /**
+     * 应用关闭时停止定时写入并写入全部未写入的累加值，之后的累加直接写入redis
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        closed = true;
+        scheduler.shutdown();
+        scheduler.awaitTermination(counterProperties.getFlushInterval(), TimeUnit.MILLISECONDS);
+        flush();
+        log.info("计数器未写入的累加值已全部写入redis");
+    }
+
+    /**
+     * 一个key未写入的累加值。LongAdder只增不清零，已写入的部分记录在written中，避免sumThenReset与并发累加交错时丢失累加值；
+     * writers记录正在累加的线程数，空闲时CAS为RETIRED后不再接受累加，移除后不会再有累加落在旧对象上
+     */
+    private static final class PendingDelta {
+
+        private static final int RETIRED = -1;
+
+        private final LongAdder adder = new LongAdder();
+        private final AtomicInteger writers = new AtomicInteger();
+        /**
+         * 已写入redis的累加值，只在flushLock内修改
+         */
+        private volatile long written;
+
+        private boolean add(long delta) {
+            for (; ; ) {
+                int current = writers.get();
+                if (current == RETIRED) {
+                    return false;
+                }
+                if (writers.compareAndSet(current, current + 1)) {
+                    break;
+                }
+            }
+            try {
+                adder.add(delta);
+            } finally {
+                writers.decrementAndGet();
+            }
+            return true;
+        }
+
+        /**
+         * 取出未写入的累加值并记为已写入
+         */
+        private long drain() {
+            long sum = adder.sum();
+            long delta = sum - written;
+            written = sum;
+            return delta;
+        }
+
+        private long unwritten() {
+            return adder.sum() - written;
+        }
+
+        /**
+         * 没有正在累加的线程时退役
+         */
+        private boolean retire() {
+            return writers.compareAndSet(0, RETIRED);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.sparkzxl.cache.endpoint;
+
+import com.github.sparkzxl.cache.stats.CacheRegionStats;
+import com.github.sparkzxl.cache.template.CacheTemplate;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * description: 缓存区域统计端点，按CacheTemplate bean名称输出各缓存区域的命中率、加载耗时、淘汰次数及本地容量
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 11:05:32
+ */
+@Endpoint(id = "cachestats")
+public class CacheStatsEndpoint {
+
+    private final Map<String, CacheTemplate> cacheTemplates;
+
+    public CacheStatsEndpoint(Map<String, CacheTemplate> cacheTemplates) {
+        this.cacheTemplates = cacheTemplates;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, CacheRegionStats>> stats() {
+        Map<String, Map<String, CacheRegionStats>> stats = new LinkedHashMap<>();
+        cacheTemplates.forEach((name, cacheTemplate) -> stats.put(name, cacheTemplate.getRegionStats()));
+        return stats;
+    }
+
+    @ReadOperation
+    public Map<String, CacheRegionStats> templateStats(@Selector String name) {
+        CacheTemplate cacheTemplate = cacheTemplates.get(name);
+        return cacheTemplate == null ? Collections.emptyMap() : cacheTemplate.getRegionStats();
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.sparkzxl.cache.endpoint;
+
+import com.github.sparkzxl.cache.hotkey.HotKey;
+import com.github.sparkzxl.cache.hotkey.HotKeyDetector;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.List;
+
+/**
+ * description: 热点key端点，输出当前热点key及估算的每秒请求数
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 15:02:37
+ */
+@Endpoint(id = "hotkeys")
+public class HotKeyEndpoint {
+
+    private final HotKeyDetector hotKeyDetector;
+
+    public HotKeyEndpoint(HotKeyDetector hotKeyDetector) {
+        this.hotKeyDetector = hotKeyDetector;
+    }
+
+    @ReadOperation
+    public List<HotKey> hotKeys() {
+        return hotKeyDetector.getHotKeys();
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.sparkzxl.cache.hotkey;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * description: 计数最小草图，固定内存估算key的访问频次，估算值只会偏大；衰减时所有计数减半，使估算值反映近期访问频次
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 14:08:21
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x97cb3127L, 0xab89c5a9L, 0xc2b2ae35L, 0x85ebca6bL
+    };
+
+    private final AtomicIntegerArray table;
+    private final int width;
+    private final int mask;
+
+    /**
+     * @param width 每行计数器数量，向上取整为2的幂
+     */
+    public CountMinSketch(int width) {
+        this.width = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+        this.mask = this.width - 1;
+        this.table = new AtomicIntegerArray(this.width * SEEDS.length);
+    }
+
+    /**
+     * 计数加一
+     *
+     * @param key key
+     * @return int 加一后的估算频次
+     */
+    public int increment(String key) {
+        int hash = spread(key.hashCode());
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int index = row * width + indexOf(hash, row);
+            int count = table.get(index);
+            if (count < Integer.MAX_VALUE) {
+                count = table.incrementAndGet(index);
+            }
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    /**
+     * 估算频次
+     *
+     * @param key key
+     * @return int
+     */
+    public int estimate(String key) {
+        int hash = spread(key.hashCode());
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, table.get(row * width + indexOf(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * 所有计数按周期数连续减半，与并发计数之间的竞争只会造成少量误差
+     *
+     * @param periods 周期数
+     */
+    public void decay(long periods) {
+        if (periods <= 0) {
+            return;
+        }
+        int shift = (int) Math.min(periods, Integer.SIZE - 1);
+        for (int i = 0; i < table.length(); i++) {
+            table.set(i, table.get(i) >>> shift);
+        }
+    }
+
+    private int indexOf(int hash, int row) {
+        long combined = (hash + SEEDS[row]) * SEEDS[row];
+        combined += combined >>> 32;
+        return (int) combined & mask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
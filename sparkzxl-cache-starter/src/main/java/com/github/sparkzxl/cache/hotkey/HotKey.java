@@ -0,0 +1,38 @@
+package com.github.sparkzxl.cache.hotkey;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * description: 热点key
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 14:26:50
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotKey {
+
+    /**
+     * 缓存key
+     */
+    private String key;
+
+    /**
+     * 缓存区域
+     */
+    private String region;
+
+    /**
+     * 估算的每秒请求数
+     */
+    private double rate;
+
+    /**
+     * 成为热点key的时间戳（单位：毫秒）
+     */
+    private long detectTime;
+
+}
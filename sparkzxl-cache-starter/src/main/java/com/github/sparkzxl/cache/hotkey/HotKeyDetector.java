@@ -0,0 +1,125 @@
+package com.github.sparkzxl.cache.hotkey;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.core.utils.KeyUtils;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * description: 热点key探测，按采样率将请求计入计数最小草图，计数每经过一个周期减半；
+ * 估算请求速率超过阈值的key成为热点key，其redis读取结果在本地保留一份短期副本
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 14:35:12
+ */
+public class HotKeyDetector {
+
+    private final CacheProperties.HotKey properties;
+    private final CountMinSketch sketch;
+    private final AtomicLong lastDecayTime = new AtomicLong(System.currentTimeMillis());
+    private final long decayIntervalMillis;
+
+    /**
+     * 计数减半周期为T、采样率为p时，速率r的key稳定计数约为 2 * r * p * T
+     */
+    private final double rateFactor;
+    private final Cache<String, HotKey> hotKeys;
+    private final Cache<String, Object> localCopies;
+
+    public HotKeyDetector(CacheProperties.HotKey properties) {
+        this.properties = properties;
+        this.sketch = new CountMinSketch(properties.getSketchWidth());
+        this.decayIntervalMillis = TimeUnit.SECONDS.toMillis(properties.getDecayInterval());
+        this.rateFactor = 1.0D / (2 * properties.getSampleRate() * properties.getDecayInterval());
+        this.hotKeys = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getDecayInterval() * 2, TimeUnit.SECONDS)
+                .build();
+        this.localCopies = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getLocalExpireTime(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * 记录一次请求，按采样率更新频次估算
+     *
+     * @param key 缓存key
+     * @return boolean 是否为热点key
+     */
+    public boolean record(String key) {
+        if (ThreadLocalRandom.current().nextDouble() < properties.getSampleRate()) {
+            decayIfNecessary();
+            double rate = sketch.increment(key) * rateFactor;
+            if (rate >= properties.getThreshold()) {
+                HotKey hotKey = hotKeys.getIfPresent(key);
+                long detectTime = hotKey == null ? System.currentTimeMillis() : hotKey.getDetectTime();
+                hotKeys.put(key, new HotKey(key, KeyUtils.getRegion(key), rate, detectTime));
+                return true;
+            }
+        }
+        return hotKeys.getIfPresent(key) != null;
+    }
+
+    /**
+     * 获取热点key的本地副本
+     *
+     * @param key 缓存key
+     * @return Object 不存在时返回null
+     */
+    public Object getLocal(String key) {
+        return localCopies.getIfPresent(key);
+    }
+
+    /**
+     * 热点key的redis读取结果写入本地副本
+     *
+     * @param key   缓存key
+     * @param value redis中的值
+     */
+    public void promote(String key, Object value) {
+        localCopies.put(key, value);
+    }
+
+    public void invalidate(String key) {
+        localCopies.invalidate(key);
+    }
+
+    public void invalidateAll(Collection<String> keys) {
+        localCopies.invalidateAll(keys);
+    }
+
+    public void invalidateAll() {
+        localCopies.invalidateAll();
+    }
+
+    /**
+     * 当前热点key，按请求速率从高到低排序
+     *
+     * @return List<HotKey>
+     */
+    public List<HotKey> getHotKeys() {
+        return hotKeys.asMap().values().stream()
+                .sorted(Comparator.comparingDouble(HotKey::getRate).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 按距上次衰减经过的周期数减半，长时间没有请求后计数一次性衰减到位，不会只减半一次
+     */
+    private void decayIfNecessary() {
+        long last = lastDecayTime.get();
+        long periods = (System.currentTimeMillis() - last) / decayIntervalMillis;
+        if (periods > 0 && lastDecayTime.compareAndSet(last, last + periods * decayIntervalMillis)) {
+            sketch.decay(periods);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.sparkzxl.cache.metrics;
+
+import com.github.sparkzxl.cache.support.SingleFlightLoader;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * description: 缓存加载指标，输出合并加载的等待线程数及分布式加载租约竞争情况
+ *
+ * @author zhouxinlei
+ * @date 2020-10-12 15:06:44
+ */
+public class CacheLoadMetrics implements MeterBinder {
+
+    private static final String PREFIX = "sparkzxl.cache.load";
+
+    private final SingleFlightLoader singleFlightLoader;
+
+    public CacheLoadMetrics(SingleFlightLoader singleFlightLoader) {
+        this.singleFlightLoader = singleFlightLoader;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder(PREFIX + ".waiting", singleFlightLoader, SingleFlightLoader::getWaiting)
+                .description("等待其他线程加载结果的线程数")
+                .register(registry);
+        Gauge.builder(PREFIX + ".in.flight", singleFlightLoader, SingleFlightLoader::getInFlight)
+                .description("正在加载的key数量")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".calls", singleFlightLoader, SingleFlightLoader::getLoads)
+                .tag("result", "loaded")
+                .description("缓存未命中后的加载次数")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".calls", singleFlightLoader, SingleFlightLoader::getWaits)
+                .tag("result", "shared")
+                .description("缓存未命中后的加载次数")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".lease", singleFlightLoader, SingleFlightLoader::getLeaseAcquired)
+                .tag("result", "acquired")
+                .description("分布式加载租约获取情况")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".lease", singleFlightLoader, SingleFlightLoader::getLeaseContended)
+                .tag("result", "contended")
+                .description("分布式加载租约获取情况")
+                .register(registry);
+        FunctionCounter.builder(PREFIX + ".lease", singleFlightLoader, SingleFlightLoader::getLeaseTimeout)
+                .tag("result", "timeout")
+                .description("分布式加载租约获取情况")
+                .register(registry);
+    }
+}
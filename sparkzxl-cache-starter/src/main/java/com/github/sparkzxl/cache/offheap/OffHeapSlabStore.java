@@ -0,0 +1,706 @@
+package com.github.sparkzxl.cache.offheap;
+
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * description: 堆外slab存储，序列化后的值存放在直接内存ByteBuffer中，堆内只保留 key -> (slab, offset, length) 索引。
+ * <p>
+ * 内存按slab申请，每个slab划归一个块大小等级并切分为等长的块，值写入能容纳它的最小等级的块中；
+ * 等级内没有空闲块且不能再申请slab时，按时钟算法淘汰该等级的条目（最近被读取过的条目多保留一轮，过期条目优先淘汰），
+ * 该等级没有可淘汰的条目时，从占用slab最多的等级回收一个slab改划给当前等级。
+ * 存储分为若干段，每段独立的读写锁，读取只持有读锁
+ *
+ * @author zhouxinlei
+ * @date 2020-10-18 10:52:31
+ */
+@Slf4j
+public class OffHeapSlabStore {
+
+    /**
+     * 存活条目清理阈值，时钟队列中已删除的条目超过该数量且超过一半时清理
+     */
+    private static final int COMPACT_THRESHOLD = 64;
+
+    private final int slabSize;
+    private final int[] chunkSizes;
+    private final Segment[] segments;
+    private final Consumer<String> evictionListener;
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    /**
+     * @param offHeapProperties 堆外缓存配置
+     * @param evictionListener  未过期条目因内存不足被淘汰时的回调，在段锁内调用，不可执行耗时操作
+     */
+    public OffHeapSlabStore(CacheProperties.OffHeap offHeapProperties, Consumer<String> evictionListener) {
+        this.slabSize = offHeapProperties.getSlabSize();
+        this.chunkSizes = chunkSizes(offHeapProperties.getMinChunkSize(), slabSize, offHeapProperties.getGrowthFactor());
+        this.evictionListener = evictionListener;
+        long slabCount = offHeapProperties.getMaximumMemory() / slabSize;
+        if (slabCount < 1) {
+            throw new IllegalArgumentException("堆外内存预算 maximumMemory=" + offHeapProperties.getMaximumMemory()
+                    + " 小于一个slab的大小 slabSize=" + slabSize);
+        }
+        // 每段至少一个slab，预算容纳不下配置的分段数量时减少分段，内存占用不超过预算
+        int segmentCount = (int) Math.min(Math.max(1, offHeapProperties.getSegments()), slabCount);
+        if (segmentCount < offHeapProperties.getSegments()) {
+            log.warn("堆外内存预算只能容纳 {} 个slab，分段数量由 {} 调整为 {}", slabCount, offHeapProperties.getSegments(), segmentCount);
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) (slabCount / segmentCount + (i < slabCount % segmentCount ? 1 : 0)));
+        }
+    }
+
+    /**
+     * 块大小等级，从最小块按增长倍数递增到slab大小，按8字节对齐
+     */
+    static int[] chunkSizes(int minChunkSize, int slabSize, double growthFactor) {
+        List<Integer> sizes = Lists.newArrayList();
+        int size = align(Math.max(8, minChunkSize));
+        while (size < slabSize) {
+            sizes.add(size);
+            size = align(Math.max(size + 8, (int) (size * growthFactor)));
+        }
+        sizes.add(slabSize);
+        return sizes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    private Segment segment(String key) {
+        int hash = key.hashCode();
+        return segments[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % segments.length];
+    }
+
+    private static long expireAt(long ttlNanos) {
+        if (ttlNanos <= 0) {
+            return 0L;
+        }
+        long expireAt = System.nanoTime() + ttlNanos;
+        // 0表示不过期
+        return expireAt == 0 ? 1L : expireAt;
+    }
+
+    /**
+     * 读取并复制缓存值
+     *
+     * @param key 缓存键 不可为空
+     * @return byte[] 不存在或已过期时为null
+     */
+    public byte[] get(String key) {
+        return segment(key).get(key);
+    }
+
+    /**
+     * 写入缓存值，值超过slab大小或无法分配内存时不写入并移除旧值
+     *
+     * @param key      缓存键 不可为空
+     * @param value    序列化后的值 不可为空
+     * @param ttlNanos 存活时间（单位：纳秒），小于等于0不过期
+     * @return boolean 是否写入
+     */
+    public boolean put(String key, byte[] value, long ttlNanos) {
+        return segment(key).put(key, value, expireAt(ttlNanos), false);
+    }
+
+    /**
+     * 不存在或已过期时写入缓存值
+     *
+     * @param key      缓存键 不可为空
+     * @param value    序列化后的值 不可为空
+     * @param ttlNanos 存活时间（单位：纳秒），小于等于0不过期
+     * @return boolean 是否写入
+     */
+    public boolean putIfAbsent(String key, byte[] value, long ttlNanos) {
+        return segment(key).put(key, value, expireAt(ttlNanos), true);
+    }
+
+    /**
+     * 在段锁内以当前值计算新值并写入，新值为null时移除
+     *
+     * @param key       缓存键 不可为空
+     * @param remapping 入参为当前值，不存在时为null
+     * @param ttlNanos  存活时间（单位：纳秒），小于0时保留原过期时间，等于0不过期
+     * @return byte[] 新值
+     */
+    public byte[] compute(String key, UnaryOperator<byte[]> remapping, long ttlNanos) {
+        return segment(key).compute(key, remapping, ttlNanos);
+    }
+
+    /**
+     * 移除缓存值
+     *
+     * @param key 缓存键 不可为空
+     * @return byte[] 移除前的值，不存在或已过期时为null
+     */
+    public byte[] remove(String key) {
+        return segment(key).remove(key);
+    }
+
+    /**
+     * 移除满足条件的全部key
+     *
+     * @param keyPredicate key条件
+     * @return int 移除数量
+     */
+    public int removeIf(Predicate<String> keyPredicate) {
+        int removed = 0;
+        for (Segment segment : segments) {
+            removed += segment.removeIf(keyPredicate);
+        }
+        return removed;
+    }
+
+    /**
+     * 遍历满足条件且未过期的条目，遍历一个段时持有该段的读锁
+     *
+     * @param keyFilter key条件
+     * @param visitor   条目访问
+     */
+    public void forEach(Predicate<String> keyFilter, EntryVisitor visitor) {
+        for (Segment segment : segments) {
+            segment.forEach(keyFilter, visitor);
+        }
+    }
+
+    /**
+     * 清空全部条目，已申请的slab保留复用
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 释放全部slab
+     */
+    public void release() {
+        for (Segment segment : segments) {
+            segment.release();
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return 全部条目序列化后的字节数
+     */
+    public long usedBytes() {
+        long usedBytes = 0;
+        for (Segment segment : segments) {
+            usedBytes += segment.usedBytes;
+        }
+        return usedBytes;
+    }
+
+    /**
+     * @return 已申请的直接内存字节数
+     */
+    public long allocatedBytes() {
+        long allocatedBytes = 0;
+        for (Segment segment : segments) {
+            allocatedBytes += (long) segment.allocatedSlabs * slabSize;
+        }
+        return allocatedBytes;
+    }
+
+    /**
+     * @return 直接内存预算字节数
+     */
+    public long capacity() {
+        long capacity = 0;
+        for (Segment segment : segments) {
+            capacity += (long) segment.slabs.length * slabSize;
+        }
+        return capacity;
+    }
+
+    public int getMaximumValueSize() {
+        return slabSize;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return 因超过slab大小或内存不足未写入的次数
+     */
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @FunctionalInterface
+    public interface EntryVisitor {
+
+        /**
+         * 访问条目
+         *
+         * @param key      缓存键
+         * @param value    序列化后的值
+         * @param ttlNanos 剩余存活时间（单位：纳秒），0不过期
+         */
+        void visit(String key, byte[] value, long ttlNanos);
+    }
+
+    private final class Segment {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Entry> index = Maps.newHashMap();
+        private final ByteBuffer[] slabs;
+        private final SizeClass[] classes;
+        private final LongStack freeSlabs = new LongStack();
+        private int slabLimit;
+        private volatile int allocatedSlabs;
+        private volatile long usedBytes;
+
+        Segment(int slabCount) {
+            this.slabs = new ByteBuffer[slabCount];
+            this.slabLimit = slabCount;
+            this.classes = new SizeClass[chunkSizes.length];
+            for (int i = 0; i < chunkSizes.length; i++) {
+                classes[i] = new SizeClass(chunkSizes[i]);
+            }
+        }
+
+        byte[] get(String key) {
+            lock.readLock().lock();
+            try {
+                Entry entry = index.get(key);
+                if (entry == null || entry.isExpired(System.nanoTime())) {
+                    return null;
+                }
+                entry.referenced = true;
+                return read(entry);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        boolean put(String key, byte[] value, long expireAt, boolean onlyIfAbsent) {
+            lock.writeLock().lock();
+            try {
+                if (onlyIfAbsent) {
+                    Entry current = index.get(key);
+                    if (current != null && !current.isExpired(System.nanoTime())) {
+                        return false;
+                    }
+                }
+                return write(key, value, expireAt);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        byte[] compute(String key, UnaryOperator<byte[]> remapping, long ttlNanos) {
+            lock.writeLock().lock();
+            try {
+                Entry current = index.get(key);
+                if (current != null && current.isExpired(System.nanoTime())) {
+                    current = null;
+                }
+                byte[] value = remapping.apply(current == null ? null : read(current));
+                if (value == null) {
+                    if (current != null) {
+                        discard(index.remove(key));
+                    }
+                    return null;
+                }
+                long expireAt = ttlNanos < 0 ? (current == null ? 0L : current.expireAt) : expireAt(ttlNanos);
+                write(key, value, expireAt);
+                return value;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        byte[] remove(String key) {
+            lock.writeLock().lock();
+            try {
+                Entry entry = index.remove(key);
+                if (entry == null) {
+                    return null;
+                }
+                byte[] value = entry.isExpired(System.nanoTime()) ? null : read(entry);
+                discard(entry);
+                return value;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int removeIf(Predicate<String> keyPredicate) {
+            lock.writeLock().lock();
+            try {
+                int removed = 0;
+                Iterator<Entry> iterator = index.values().iterator();
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (keyPredicate.test(entry.key)) {
+                        iterator.remove();
+                        discard(entry);
+                        removed++;
+                    }
+                }
+                return removed;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void clear() {
+            lock.writeLock().lock();
+            try {
+                index.values().forEach(entry -> entry.removed = true);
+                index.clear();
+                for (SizeClass sizeClass : classes) {
+                    sizeClass.clear();
+                }
+                freeSlabs.clear();
+                for (int slab = allocatedSlabs - 1; slab >= 0; slab--) {
+                    freeSlabs.push(slab);
+                }
+                usedBytes = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void release() {
+            lock.writeLock().lock();
+            try {
+                clear();
+                freeSlabs.clear();
+                Arrays.fill(slabs, null);
+                allocatedSlabs = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void forEach(Predicate<String> keyFilter, EntryVisitor visitor) {
+            lock.readLock().lock();
+            try {
+                long now = System.nanoTime();
+                for (Entry entry : index.values()) {
+                    if (!entry.isExpired(now) && keyFilter.test(entry.key)) {
+                        visitor.visit(entry.key, read(entry), entry.expireAt == 0 ? 0L : entry.expireAt - now);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return index.size();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * 分配块并写入，分配失败时移除旧值，保证读取不到过时的数据
+         */
+        private boolean write(String key, byte[] value, long expireAt) {
+            Entry entry = allocate(key, value.length, expireAt);
+            if (entry == null) {
+                rejections.increment();
+                Entry previous = index.remove(key);
+                if (previous != null) {
+                    discard(previous);
+                }
+                return false;
+            }
+            ByteBuffer buffer = slabs[entry.slab].duplicate();
+            buffer.position(entry.offset);
+            buffer.put(value);
+            // 分配时可能已淘汰旧值，此处返回的才是仍需释放的旧值
+            Entry previous = index.put(key, entry);
+            if (previous != null) {
+                discard(previous);
+            }
+            return true;
+        }
+
+        private byte[] read(Entry entry) {
+            byte[] value = new byte[entry.length];
+            ByteBuffer buffer = slabs[entry.slab].duplicate();
+            buffer.position(entry.offset);
+            buffer.get(value);
+            return value;
+        }
+
+        private Entry allocate(String key, int length, long expireAt) {
+            int classIndex = sizeClass(length);
+            if (classIndex < 0) {
+                return null;
+            }
+            SizeClass sizeClass = classes[classIndex];
+            long chunk = sizeClass.free.pop();
+            if (chunk < 0 && assignSlab(classIndex)) {
+                chunk = sizeClass.free.pop();
+            }
+            if (chunk < 0) {
+                chunk = evict(sizeClass);
+            }
+            if (chunk < 0 && reassignSlab(classIndex)) {
+                chunk = sizeClass.free.pop();
+            }
+            if (chunk < 0) {
+                return null;
+            }
+            Entry entry = new Entry(key, (int) (chunk >>> 32), (int) chunk, length, classIndex, expireAt);
+            sizeClass.clock.addLast(entry);
+            usedBytes += length;
+            return entry;
+        }
+
+        private int sizeClass(int length) {
+            if (length > slabSize) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(chunkSizes, length);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        /**
+         * 取一个未划归等级的slab，没有时在预算内申请直接内存
+         */
+        private boolean assignSlab(int classIndex) {
+            int slab = (int) freeSlabs.pop();
+            if (slab < 0) {
+                if (allocatedSlabs >= slabLimit) {
+                    return false;
+                }
+                try {
+                    slabs[allocatedSlabs] = ByteBuffer.allocateDirect(slabSize);
+                } catch (OutOfMemoryError e) {
+                    // 直接内存上限小于配置的预算，以实际可申请的数量为准
+                    slabLimit = allocatedSlabs;
+                    log.warn("堆外缓存申请直接内存失败，slab数量限制为 {}：{}", slabLimit, e.getMessage());
+                    return false;
+                }
+                slab = allocatedSlabs;
+                allocatedSlabs = slab + 1;
+            }
+            carve(slab, classIndex);
+            return true;
+        }
+
+        private void carve(int slab, int classIndex) {
+            SizeClass sizeClass = classes[classIndex];
+            int chunkSize = sizeClass.chunkSize;
+            sizeClass.slabs.push(slab);
+            for (int offset = (slabSize / chunkSize - 1) * chunkSize; offset >= 0; offset -= chunkSize) {
+                sizeClass.free.push(((long) slab << 32) | offset);
+            }
+        }
+
+        /**
+         * 时钟淘汰：被读取过的未过期条目清除标记后放回队尾，遇到第一个未被读取或已过期的条目时淘汰
+         */
+        private long evict(SizeClass sizeClass) {
+            long now = System.nanoTime();
+            int limit = sizeClass.clock.size() * 2;
+            for (int scanned = 0; scanned < limit && !sizeClass.clock.isEmpty(); scanned++) {
+                Entry entry = sizeClass.clock.pollFirst();
+                if (entry.removed) {
+                    sizeClass.stale--;
+                    continue;
+                }
+                boolean expired = entry.isExpired(now);
+                if (entry.referenced && !expired) {
+                    entry.referenced = false;
+                    sizeClass.clock.addLast(entry);
+                    continue;
+                }
+                index.remove(entry.key);
+                free(entry);
+                if (!expired) {
+                    evicted(entry);
+                }
+                return sizeClass.free.pop();
+            }
+            return -1L;
+        }
+
+        /**
+         * 当前等级没有可淘汰的条目时，从占用slab最多的等级回收最后划入的slab，淘汰其中的全部条目后改划给当前等级
+         */
+        private boolean reassignSlab(int classIndex) {
+            SizeClass victim = null;
+            for (int i = 0; i < classes.length; i++) {
+                if (i != classIndex && classes[i].slabs.size() > 0
+                        && (victim == null || classes[i].slabs.size() > victim.slabs.size())) {
+                    victim = classes[i];
+                }
+            }
+            if (victim == null) {
+                return false;
+            }
+            int slab = (int) victim.slabs.pop();
+            long now = System.nanoTime();
+            SizeClass owner = victim;
+            victim.clock.removeIf(entry -> {
+                if (entry.slab != slab) {
+                    return false;
+                }
+                if (entry.removed) {
+                    owner.stale--;
+                } else {
+                    index.remove(entry.key);
+                    entry.removed = true;
+                    usedBytes -= entry.length;
+                    if (!entry.isExpired(now)) {
+                        evicted(entry);
+                    }
+                }
+                return true;
+            });
+            victim.free.removeIf(chunk -> (int) (chunk >>> 32) == slab);
+            carve(slab, classIndex);
+            return true;
+        }
+
+        private void evicted(Entry entry) {
+            evictions.increment();
+            if (evictionListener != null) {
+                evictionListener.accept(entry.key);
+            }
+        }
+
+        /**
+         * 释放已移出时钟队列的条目
+         */
+        private void free(Entry entry) {
+            entry.removed = true;
+            usedBytes -= entry.length;
+            classes[entry.sizeClass].free.push(((long) entry.slab << 32) | entry.offset);
+        }
+
+        /**
+         * 释放仍在时钟队列中的条目，队列中的已删除条目过多时清理
+         */
+        private void discard(Entry entry) {
+            free(entry);
+            SizeClass sizeClass = classes[entry.sizeClass];
+            sizeClass.stale++;
+            if (sizeClass.stale > COMPACT_THRESHOLD && sizeClass.stale > sizeClass.clock.size() / 2) {
+                sizeClass.clock.removeIf(e -> e.removed);
+                sizeClass.stale = 0;
+            }
+        }
+    }
+
+    private static final class SizeClass {
+
+        private final int chunkSize;
+        private final LongStack free = new LongStack();
+        private final LongStack slabs = new LongStack();
+        private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+        private int stale;
+
+        SizeClass(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+
+        void clear() {
+            free.clear();
+            slabs.clear();
+            clock.clear();
+            stale = 0;
+        }
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final int slab;
+        private final int offset;
+        private final int length;
+        private final int sizeClass;
+        private final long expireAt;
+        private volatile boolean referenced;
+        private boolean removed;
+
+        Entry(String key, int slab, int offset, int length, int sizeClass, long expireAt) {
+            this.key = key;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+            this.sizeClass = sizeClass;
+            this.expireAt = expireAt;
+        }
+
+        boolean isExpired(long now) {
+            return expireAt != 0 && now - expireAt >= 0;
+        }
+    }
+
+    /**
+     * long栈，空时pop返回-1，避免空闲块列表装箱
+     */
+    private static final class LongStack {
+
+        private long[] elements = new long[16];
+        private int size;
+
+        void push(long value) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size << 1);
+            }
+            elements[size++] = value;
+        }
+
+        long pop() {
+            return size == 0 ? -1L : elements[--size];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void removeIf(LongPredicate predicate) {
+            int retained = 0;
+            for (int i = 0; i < size; i++) {
+                if (!predicate.test(elements[i])) {
+                    elements[retained++] = elements[i];
+                }
+            }
+            size = retained;
+        }
+    }
+}
@@ -0,0 +1,468 @@
+package com.github.sparkzxl.cache.properties;
+
+import com.github.sparkzxl.cache.bloom.BloomFilterType;
+import com.github.sparkzxl.cache.counter.CounterReadMode;
+import com.github.sparkzxl.cache.serializer.SerializerType;
+import com.github.sparkzxl.cache.template.CacheCaffeineTemplateImpl;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * description: 缓存属性配置
+ *
+ * @author zhouxinlei
+ * @date 2020-10-10 10:12:36
+ */
+@Data
+@ConfigurationProperties(prefix = "sparkzxl.cache")
+public class CacheProperties {
+
+    /**
+     * 是否启用@Cached / @CacheEvict注解
+     */
+    private boolean aopEnabled = true;
+
+    /**
+     * 二级缓存（Caffeine本地缓存 + redis）配置
+     */
+    private NearCache near = new NearCache();
+
+    /**
+     * 缓存未命中时的加载配置
+     */
+    private Load load = new Load();
+
+    /**
+     * redis值序列化配置
+     */
+    private Serializer serializer = new Serializer();
+
+    /**
+     * Caffeine本地缓存配置
+     */
+    private CaffeineCache caffeine = new CaffeineCache();
+
+    /**
+     * 热点key提前刷新配置
+     */
+    private RefreshAhead refreshAhead = new RefreshAhead();
+
+    /**
+     * 空值缓存配置
+     */
+    private NullValueCache nullValue = new NullValueCache();
+
+    /**
+     * 布隆过滤器配置
+     */
+    private BloomFilter bloomFilter = new BloomFilter();
+
+    /**
+     * 热点key探测配置
+     */
+    private HotKey hotKey = new HotKey();
+
+    /**
+     * 区域版本命名空间配置
+     */
+    private Namespace namespace = new Namespace();
+
+    /**
+     * 合并写计数器配置
+     */
+    private Counter counter = new Counter();
+
+    /**
+     * 堆外本地缓存配置
+     */
+    private OffHeap offHeap = new OffHeap();
+
+    /**
+     * 本地缓存快照配置
+     */
+    private Snapshot snapshot = new Snapshot();
+
+    @Data
+    public static class NearCache {
+
+        /**
+         * 是否启用二级缓存，启用后替换redis缓存作为默认CacheTemplate
+         */
+        private boolean enabled = false;
+
+        /**
+         * 本地缓存最大条数
+         */
+        private long maximumSize = 10000L;
+
+        /**
+         * 本地缓存默认过期时间（单位：秒）
+         */
+        private long expireTime = 60L;
+
+        /**
+         * 各缓存区域的本地过期时间（单位：秒），key为缓存key的区域前缀
+         */
+        private Map<String, Long> regions = new HashMap<>();
+
+        /**
+         * 缓存失效广播通道
+         */
+        private String topic = "sparkzxl:cache:invalidation";
+
+        /**
+         * 获取key对应的本地过期时间
+         *
+         * @param key 缓存key
+         * @return long 过期时间（单位：秒）
+         */
+        public long getExpireTime(String key) {
+            return regions.getOrDefault(KeyUtils.getRegion(key), expireTime);
+        }
+    }
+
+    @Data
+    public static class Load {
+
+        /**
+         * 是否启用合并加载，同一JVM内同一个key并发未命中时只加载一次
+         */
+        private boolean singleFlight = true;
+
+        /**
+         * 是否启用分布式加载租约（SET NX PX），多个节点同一个key并发未命中时只有一个节点加载
+         */
+        private boolean leaseEnabled = false;
+
+        /**
+         * 加载租约有效期（单位：毫秒），应大于加载函数的最长耗时
+         */
+        private long leaseTime = 3000L;
+
+        /**
+         * 未获取到租约时等待其他节点加载的最长时间（单位：毫秒），超时后自行加载
+         */
+        private long leaseWaitTime = 200L;
+
+        /**
+         * 等待期间轮询缓存的间隔（单位：毫秒）
+         */
+        private long leasePollInterval = 20L;
+    }
+
+    @Data
+    public static class Serializer {
+
+        /**
+         * 序列化方式
+         */
+        private SerializerType type = SerializerType.FASTJSON;
+
+        /**
+         * 紧凑二进制序列化的压缩阈值（单位：字节），编码后超过该大小时压缩，小于等于0不压缩
+         */
+        private int compressThreshold = 4096;
+
+        /**
+         * 紧凑二进制序列化的注册类型表，key为类型id，所有节点必须保持一致，已使用的id不可变更
+         */
+        private Map<Integer, Class<?>> types = new LinkedHashMap<>();
+
+        /**
+         * 紧凑二进制序列化允许按类名写入的包，枚举和未注册类型必须位于其中，读取时不在其中的类名不会被加载
+         */
+        private List<String> allowedPackages = new ArrayList<>();
+    }
+
+    @Data
+    public static class CaffeineCache {
+
+        /**
+         * 本地缓存最大内存占用估算值（单位：字节）
+         */
+        private long maximumWeight = CacheCaffeineTemplateImpl.DEFAULT_MAXIMUM_WEIGHT;
+
+        /**
+         * 每个缓存区域的最小内存占用估算值（单位：字节）
+         */
+        private long minimumRegionWeight = 1024L * 1024;
+
+        /**
+         * 缓存区域数量上限（包含默认区域），实际上限不超过 maximumWeight / minimumRegionWeight；
+         * 没有区域前缀的key及超出上限后出现的区域共用默认区域
+         */
+        private int maximumRegions = 64;
+
+        /**
+         * 是否按各缓存区域的命中收益自动调整区域容量，关闭时各区域平分内存预算
+         */
+        private boolean adaptive = true;
+
+        /**
+         * 容量调整周期（单位：秒）
+         */
+        private long resizeInterval = 60L;
+
+        /**
+         * 每次调整从收益最低的区域转移的容量比例
+         */
+        private double resizeStep = 0.1D;
+    }
+
+    @Data
+    public static class RefreshAhead {
+
+        /**
+         * 是否启用提前刷新，仅对带加载函数及过期时间的查询生效
+         */
+        private boolean enabled = false;
+
+        /**
+         * 启用提前刷新的缓存区域，为空时对所有区域生效
+         */
+        private Set<String> regions = new HashSet<>();
+
+        /**
+         * XFetch系数，越大越早刷新
+         */
+        private double beta = 1.0D;
+
+        /**
+         * 刷新线程数
+         */
+        private int poolSize = 4;
+
+        /**
+         * 刷新任务队列长度，队列满时放弃本次刷新
+         */
+        private int queueCapacity = 256;
+    }
+
+    @Data
+    public static class NullValueCache {
+
+        /**
+         * 是否缓存空值，加载函数返回null时写入空值占位
+         */
+        private boolean enabled = false;
+
+        /**
+         * 空值过期时间（单位：秒），应远小于正常缓存的过期时间
+         */
+        private long expireTime = 60L;
+    }
+
+    @Data
+    public static class BloomFilter {
+
+        /**
+         * 布隆过滤器存储方式
+         */
+        private BloomFilterType type = BloomFilterType.LOCAL;
+
+        /**
+         * 预计元素数量
+         */
+        private long expectedInsertions = 1000000L;
+
+        /**
+         * 期望误判率
+         */
+        private double fpp = 0.01D;
+
+        /**
+         * redis位图key前缀
+         */
+        private String keyPrefix = "bloom";
+    }
+
+    @Data
+    public static class HotKey {
+
+        /**
+         * 是否启用热点key探测，热点key的redis读取结果在本地保留短期副本
+         */
+        private boolean enabled = false;
+
+        /**
+         * 请求采样率
+         */
+        private double sampleRate = 0.1D;
+
+        /**
+         * 热点key阈值（单位：每秒请求数）
+         */
+        private double threshold = 500D;
+
+        /**
+         * 计数衰减周期（单位：秒），每个周期计数减半
+         */
+        private long decayInterval = 10L;
+
+        /**
+         * 计数最小草图每行计数器数量
+         */
+        private int sketchWidth = 4096;
+
+        /**
+         * 本地副本过期时间（单位：毫秒），即其他节点修改后本节点可能读到旧值的最长时间
+         */
+        private long localExpireTime = 2000L;
+
+        /**
+         * 热点key及本地副本的最大数量
+         */
+        private long maximumSize = 1000L;
+    }
+
+    @Data
+    public static class Namespace {
+
+        /**
+         * 启用版本命名空间的区域（key第一个冒号之前的部分），区域内的key带上版本号，整体失效只需递增版本号
+         */
+        private Set<String> regions = new HashSet<>();
+
+        /**
+         * 版本号在redis中的key前缀
+         */
+        private String keyPrefix = "cache:generation";
+
+        /**
+         * 本地缓存的版本号刷新间隔（单位：毫秒），其他节点递增版本号后最多延迟该时间生效
+         */
+        private long refreshInterval = 1000L;
+
+        /**
+         * 是否启用后台清理旧版本key，默认启用，只在配置了regions时运行；
+         * 关闭后旧版本key只能按过期时间自然淘汰，没有过期时间的旧版本key会一直保留
+         */
+        private boolean sweepEnabled = true;
+
+        /**
+         * 后台清理间隔（单位：秒）
+         */
+        private long sweepInterval = 300L;
+
+        /**
+         * 每批SCAN和UNLINK的key数量
+         */
+        private int sweepBatchSize = 500;
+
+        /**
+         * 每批之间的停顿时间（单位：毫秒），避免持续占用redis
+         */
+        private long sweepPause = 10L;
+    }
+
+    @Data
+    public static class Counter {
+
+        /**
+         * 是否启用合并写计数器
+         */
+        private boolean enabled = false;
+
+        /**
+         * 本地累加值写入redis的间隔（单位：毫秒）
+         */
+        private long flushInterval = 1000L;
+
+        /**
+         * 本地累计的未写入次数达到该值时提前写入，小于等于0时只按间隔写入
+         */
+        private long flushThreshold = 10000L;
+
+        /**
+         * 默认读取模式
+         */
+        private CounterReadMode readMode = CounterReadMode.EVENTUAL;
+
+        /**
+         * 最终一致读取时redis计数的本地缓存时间（单位：毫秒）
+         */
+        private long readExpireTime = 1000L;
+
+        /**
+         * 最终一致读取时本地缓存的最大key数量
+         */
+        private long maximumSize = 10000L;
+    }
+
+    @Data
+    public static class OffHeap {
+
+        /**
+         * 是否启用堆外本地缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 堆外内存预算（单位：字节），与-Xmx相互独立，-XX:MaxDirectMemorySize需不小于该值，不能小于slabSize
+         */
+        private long maximumMemory = 256L * 1024 * 1024;
+
+        /**
+         * 每个slab的大小（单位：字节），也是单个缓存值序列化后的最大长度
+         */
+        private int slabSize = 1024 * 1024;
+
+        /**
+         * 分段数量，每段独立加锁并平分内存预算，每段至少一个slab，预算不足时自动减少分段
+         */
+        private int segments = 4;
+
+        /**
+         * 最小的块大小（单位：字节）
+         */
+        private int minChunkSize = 64;
+
+        /**
+         * 相邻块大小的增长倍数
+         */
+        private double growthFactor = 1.25D;
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * 是否启用本地缓存快照
+         */
+        private boolean enabled = false;
+
+        /**
+         * 快照文件目录，容器部署时需挂载持久卷
+         */
+        private String directory = "cache-snapshot";
+
+        /**
+         * 写入快照的缓存区域，为空时写入全部区域
+         */
+        private Set<String> regions = new HashSet<>();
+
+        /**
+         * 写入快照的间隔（单位：秒）
+         */
+        private long interval = 300L;
+
+        /**
+         * 快照最大有效时长（单位：秒），启动时超过该时长的快照不加载，小于等于0不限制
+         */
+        private long maxAge = 3600L;
+
+        /**
+         * 应用关闭时是否写入快照
+         */
+        private boolean snapshotOnShutdown = true;
+    }
+}
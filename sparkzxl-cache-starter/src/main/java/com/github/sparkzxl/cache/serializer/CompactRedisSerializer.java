@@ -0,0 +1,510 @@
+package com.github.sparkzxl.cache.serializer;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.github.sparkzxl.cache.support.NullValue;
+import com.github.sparkzxl.cache.support.RefreshAheadValue;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * description: redis 紧凑二进制序列化
+ * <p>
+ * 首字节为格式头：{@link #HEADER_RAW} 未压缩，{@link #HEADER_DEFLATE} 已压缩，其他首字节视为fastJson写入的历史数据，
+ * 使用独立的ParserConfig解析，只接受注册类型和允许包内的类型信息，便于平滑迁移。
+ * 基础类型、集合及组件自身写入的空值占位{@link NullValue}、提前刷新值{@link RefreshAheadValue}按标签编码；{@link CompactTypeRegistry} 中注册的类型只写入类型id和字段值，不写类名和字段名；
+ * 枚举和未注册的类型写入 类名 + 值/JSON，只允许{@link CompactTypeRegistry}允许包内的类，读取时先校验类名再加载类，
+ * JSON中不写入类型信息，不依赖fastJson的autoType。
+ *
+ * @author zhouxinlei
+ * @date 2020-10-13 10:26:05
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    static final byte HEADER_RAW = 0x01;
+    static final byte HEADER_DEFLATE = 0x02;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte FLOAT = 6;
+    private static final byte STRING = 7;
+    private static final byte BYTES = 8;
+    private static final byte SHORT = 9;
+    private static final byte BYTE = 10;
+    private static final byte CHAR = 11;
+    private static final byte BIG_DECIMAL = 12;
+    private static final byte BIG_INTEGER = 13;
+    private static final byte DATE = 14;
+    private static final byte LOCAL_DATE_TIME = 15;
+    private static final byte LOCAL_DATE = 16;
+    private static final byte LOCAL_TIME = 17;
+    private static final byte ENUM = 18;
+    private static final byte LIST = 19;
+    private static final byte SET = 20;
+    private static final byte MAP = 21;
+    private static final byte OBJECT = 22;
+    private static final byte JSON_OBJECT = 23;
+    private static final byte NULL_VALUE = 24;
+    private static final byte REFRESH_AHEAD = 25;
+
+    private final CompactTypeRegistry typeRegistry;
+    private final int compressThreshold;
+    private final ParserConfig legacyConfig = new ParserConfig();
+
+    /**
+     * @param typeRegistry      注册类型表
+     * @param compressThreshold 编码后超过该字节数时压缩，小于等于0不压缩
+     */
+    public CompactRedisSerializer(CompactTypeRegistry typeRegistry, int compressThreshold) {
+        this.typeRegistry = typeRegistry;
+        this.compressThreshold = compressThreshold;
+        typeRegistry.getAllowedNames().forEach(legacyConfig::addAccept);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        Output out = new Output(128);
+        out.writeByte(HEADER_RAW);
+        try {
+            writeValue(out, value, Object.class);
+        } catch (ReflectiveOperationException e) {
+            throw new SerializationException("序列化失败：" + value.getClass().getName(), e);
+        }
+        if (compressThreshold > 0 && out.size() > compressThreshold) {
+            byte[] compressed = deflate(out.buffer, out.size());
+            if (compressed != null) {
+                return compressed;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            switch (bytes[0]) {
+                case HEADER_RAW:
+                    return readValue(new Input(bytes, 1));
+                case HEADER_DEFLATE:
+                    return readValue(new Input(inflate(bytes), 0));
+                default:
+                    return JSON.parseObject(new String(bytes, StandardCharsets.UTF_8), Object.class, legacyConfig);
+            }
+        } catch (ReflectiveOperationException | DataFormatException | RuntimeException e) {
+            if (e instanceof SerializationException) {
+                throw (SerializationException) e;
+            }
+            throw new SerializationException("反序列化失败", e);
+        }
+    }
+
+    private void writeValue(Output out, Object value, Class<?> declaredType) throws ReflectiveOperationException {
+        if (value == null) {
+            out.writeByte(NULL);
+            return;
+        }
+        Class<?> type = value.getClass();
+        if (type == String.class) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (type == Integer.class) {
+            out.writeByte(INT);
+            out.writeVarLong(zigZag((Integer) value));
+        } else if (type == Long.class) {
+            out.writeByte(LONG);
+            out.writeVarLong(zigZag((Long) value));
+        } else if (type == Boolean.class) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (type == Double.class) {
+            out.writeByte(DOUBLE);
+            out.writeLong(Double.doubleToLongBits((Double) value));
+        } else if (type == Float.class) {
+            out.writeByte(FLOAT);
+            out.writeVarLong(Float.floatToIntBits((Float) value) & 0xFFFFFFFFL);
+        } else if (type == Short.class) {
+            out.writeByte(SHORT);
+            out.writeVarLong(zigZag((Short) value));
+        } else if (type == Byte.class) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (type == Character.class) {
+            out.writeByte(CHAR);
+            out.writeVarLong((Character) value);
+        } else if (type == byte[].class) {
+            byte[] bytes = (byte[]) value;
+            out.writeByte(BYTES);
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes, 0, bytes.length);
+        } else if (type == BigDecimal.class) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeString(value.toString());
+        } else if (type == BigInteger.class) {
+            out.writeByte(BIG_INTEGER);
+            out.writeString(value.toString());
+        } else if (type == Date.class) {
+            out.writeByte(DATE);
+            out.writeVarLong(zigZag(((Date) value).getTime()));
+        } else if (type == LocalDateTime.class) {
+            out.writeByte(LOCAL_DATE_TIME);
+            out.writeString(value.toString());
+        } else if (type == LocalDate.class) {
+            out.writeByte(LOCAL_DATE);
+            out.writeString(value.toString());
+        } else if (type == LocalTime.class) {
+            out.writeByte(LOCAL_TIME);
+            out.writeString(value.toString());
+        } else if (type == NullValue.class) {
+            out.writeByte(NULL_VALUE);
+        } else if (type == RefreshAheadValue.class) {
+            RefreshAheadValue refreshAheadValue = (RefreshAheadValue) value;
+            out.writeByte(REFRESH_AHEAD);
+            writeValue(out, refreshAheadValue.getValue(), Object.class);
+            out.writeVarLong(zigZag(refreshAheadValue.getDelta()));
+            out.writeVarLong(zigZag(refreshAheadValue.getExpireAt()));
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            out.writeString(allowedName(((Enum) value).getDeclaringClass()));
+            out.writeString(((Enum) value).name());
+        } else {
+            CompactTypeRegistry.ClassSchema schema = typeRegistry.getSchema(type);
+            if (schema != null) {
+                writeObject(out, value, schema);
+            } else if (value instanceof List && declaredType.isAssignableFrom(ArrayList.class)) {
+                out.writeByte(LIST);
+                writeElements(out, (Collection) value);
+            } else if (value instanceof Set && declaredType.isAssignableFrom(LinkedHashSet.class)) {
+                out.writeByte(SET);
+                writeElements(out, (Collection) value);
+            } else if (value instanceof Map && declaredType.isAssignableFrom(LinkedHashMap.class)) {
+                out.writeByte(MAP);
+                Map<Object, Object> map = (Map<Object, Object>) value;
+                out.writeVarLong(map.size());
+                for (Map.Entry<Object, Object> entry : map.entrySet()) {
+                    writeValue(out, entry.getKey(), Object.class);
+                    writeValue(out, entry.getValue(), Object.class);
+                }
+            } else {
+                out.writeByte(JSON_OBJECT);
+                out.writeString(allowedName(type));
+                out.writeString(JSON.toJSONString(value));
+            }
+        }
+    }
+
+    /**
+     * 按类名写入的类型必须在允许包内，否则写入的数据无法读取
+     */
+    private String allowedName(Class<?> type) {
+        String className = type.getName();
+        if (!typeRegistry.isAllowed(className)) {
+            throw new SerializationException("未注册且不在允许包内的序列化类型：" + className);
+        }
+        return className;
+    }
+
+    private void writeObject(Output out, Object value, CompactTypeRegistry.ClassSchema schema) throws ReflectiveOperationException {
+        out.writeByte(OBJECT);
+        out.writeVarLong(schema.getId());
+        out.writeLong(schema.getFingerprint());
+        for (Field field : schema.getFields()) {
+            writeValue(out, field.get(value), field.getType());
+        }
+    }
+
+    private void writeElements(Output out, Collection<Object> collection) throws ReflectiveOperationException {
+        out.writeVarLong(collection.size());
+        for (Object element : collection) {
+            writeValue(out, element, Object.class);
+        }
+    }
+
+    private Object readValue(Input in) throws ReflectiveOperationException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case INT:
+                return (int) unZigZag(in.readVarLong());
+            case LONG:
+                return unZigZag(in.readVarLong());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readLong());
+            case FLOAT:
+                return Float.intBitsToFloat((int) in.readVarLong());
+            case STRING:
+                return in.readString();
+            case BYTES:
+                return in.readBytes((int) in.readVarLong());
+            case SHORT:
+                return (short) unZigZag(in.readVarLong());
+            case BYTE:
+                return in.readByte();
+            case CHAR:
+                return (char) in.readVarLong();
+            case BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            case BIG_INTEGER:
+                return new BigInteger(in.readString());
+            case DATE:
+                return new Date(unZigZag(in.readVarLong()));
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(in.readString());
+            case LOCAL_DATE:
+                return LocalDate.parse(in.readString());
+            case LOCAL_TIME:
+                return LocalTime.parse(in.readString());
+            case NULL_VALUE:
+                return NullValue.INSTANCE;
+            case REFRESH_AHEAD:
+                Object wrapped = readValue(in);
+                long delta = unZigZag(in.readVarLong());
+                return new RefreshAheadValue(wrapped, delta, unZigZag(in.readVarLong()));
+            case ENUM:
+                Class enumType = typeRegistry.resolve(in.readString());
+                if (!enumType.isEnum()) {
+                    throw new SerializationException("不是枚举类型：" + enumType.getName());
+                }
+                return Enum.valueOf(enumType, in.readString());
+            case LIST:
+                int listSize = (int) in.readVarLong();
+                List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            case SET:
+                int setSize = (int) in.readVarLong();
+                Set<Object> set = new LinkedHashSet<>(Math.max(16, (int) (setSize / .75f) + 1));
+                for (int i = 0; i < setSize; i++) {
+                    set.add(readValue(in));
+                }
+                return set;
+            case MAP:
+                int mapSize = (int) in.readVarLong();
+                Map<Object, Object> map = new LinkedHashMap<>(Math.max(16, (int) (mapSize / .75f) + 1));
+                for (int i = 0; i < mapSize; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                return map;
+            case OBJECT:
+                return readObject(in);
+            case JSON_OBJECT:
+                Class<?> type = typeRegistry.resolve(in.readString());
+                return JSON.parseObject(in.readString(), type);
+            default:
+                throw new SerializationException("未知的序列化标签：" + tag);
+        }
+    }
+
+    private Object readObject(Input in) throws ReflectiveOperationException {
+        int id = (int) in.readVarLong();
+        CompactTypeRegistry.ClassSchema schema = typeRegistry.getSchema(id);
+        if (schema == null) {
+            throw new SerializationException("未注册的序列化类型id：" + id);
+        }
+        if (in.readLong() != schema.getFingerprint()) {
+            throw new SerializationException("序列化类型结构已变更：" + schema.getType().getName());
+        }
+        Object instance = schema.newInstance();
+        for (Field field : schema.getFields()) {
+            Object value = readValue(in);
+            if (value != null) {
+                field.set(instance, value);
+            }
+        }
+        return instance;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] deflate(byte[] buffer, int length) {
+        int payloadLength = length - 1;
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(buffer, 1, payloadLength);
+            deflater.finish();
+            Output out = new Output(payloadLength / 2 + 16);
+            out.writeByte(HEADER_DEFLATE);
+            out.writeVarLong(payloadLength);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(chunk);
+                out.writeBytes(chunk, 0, count);
+                if (out.size() >= length) {
+                    // 压缩后没有变小，保留原始编码
+                    return null;
+                }
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes) throws DataFormatException {
+        Input in = new Input(bytes, 1);
+        int payloadLength = (int) in.readVarLong();
+        byte[] payload = new byte[payloadLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, in.position, bytes.length - in.position);
+            int offset = 0;
+            while (offset < payloadLength && !inflater.finished()) {
+                int count = inflater.inflate(payload, offset, payloadLength - offset);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("压缩数据不完整");
+                }
+                offset += count;
+            }
+            return payload;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static class Output {
+
+        private byte[] buffer;
+        private int position;
+
+        Output(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        int size() {
+            return position;
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes, int offset, int length) {
+            ensure(length);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes, 0, bytes.length);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+            }
+        }
+    }
+
+    private static class Input {
+
+        private final byte[] buffer;
+        private int position;
+
+        Input(byte[] buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        byte readByte() {
+            return buffer[position++];
+        }
+
+        byte[] readBytes(int length) {
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        long readVarLong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = buffer[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new SerializationException("变长整数格式错误");
+        }
+
+        long readLong() {
+            long result = 0;
+            for (int i = 0; i < 8; i++) {
+                result = (result << 8) | (buffer[position++] & 0xFF);
+            }
+            return result;
+        }
+
+        String readString() {
+            int length = (int) readVarLong();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
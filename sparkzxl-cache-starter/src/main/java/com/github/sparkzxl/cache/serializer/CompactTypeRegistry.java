@@ -0,0 +1,163 @@
+package com.github.sparkzxl.cache.serializer;
+
+import lombok.Getter;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * description: 紧凑二进制序列化类型表，类型id与类一一对应，各节点的类型表必须保持一致；
+ * 枚举和未注册类型按类名写入，只允许允许包内的类，读取时先校验类名再加载类
+ *
+ * @author zhouxinlei
+ * @date 2020-10-13 09:52:17
+ */
+public class CompactTypeRegistry {
+
+    private final Map<Class<?>, ClassSchema> schemasByType = new HashMap<>();
+    private final Map<Integer, ClassSchema> schemasById = new HashMap<>();
+    private final List<String> allowedPackages = new ArrayList<>();
+
+    public CompactTypeRegistry(Map<Integer, Class<?>> types) {
+        this(types, Collections.emptyList());
+    }
+
+    /**
+     * @param types           注册类型表
+     * @param allowedPackages 允许按类名写入的枚举和未注册类型所在的包
+     */
+    public CompactTypeRegistry(Map<Integer, Class<?>> types, Collection<String> allowedPackages) {
+        types.forEach(this::register);
+        for (String allowedPackage : allowedPackages) {
+            this.allowedPackages.add(allowedPackage.endsWith(".") ? allowedPackage : allowedPackage + ".");
+        }
+    }
+
+    private void register(Integer id, Class<?> type) {
+        if (schemasById.containsKey(id)) {
+            throw new IllegalArgumentException("序列化类型id重复：" + id);
+        }
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("序列化类型必须为具体类：" + type.getName());
+        }
+        ClassSchema schema = new ClassSchema(id, type);
+        schemasById.put(id, schema);
+        schemasByType.put(type, schema);
+    }
+
+    public ClassSchema getSchema(Class<?> type) {
+        return schemasByType.get(type);
+    }
+
+    public ClassSchema getSchema(int id) {
+        return schemasById.get(id);
+    }
+
+    /**
+     * 类名是否允许按类名写入和读取
+     *
+     * @param className 类名
+     * @return boolean
+     */
+    public boolean isAllowed(String className) {
+        for (String allowedPackage : allowedPackages) {
+            if (className.startsWith(allowedPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 允许的包及注册类型的类名，用于限定fastJson读取历史数据时按类型信息加载的类
+     *
+     * @return List<String>
+     */
+    public List<String> getAllowedNames() {
+        List<String> names = new ArrayList<>(allowedPackages);
+        schemasByType.keySet().forEach(type -> names.add(type.getName()));
+        return names;
+    }
+
+    /**
+     * 校验类名后加载类，不在允许包内的类名不会触发类加载
+     *
+     * @param className 类名
+     * @return Class<?>
+     * @throws ClassNotFoundException 类不存在
+     */
+    public Class<?> resolve(String className) throws ClassNotFoundException {
+        if (!isAllowed(className)) {
+            throw new SerializationException("不允许反序列化的类型：" + className);
+        }
+        return ClassUtils.forName(className, ClassUtils.getDefaultClassLoader());
+    }
+
+    /**
+     * 注册类型的字段结构，字段按继承层级由父到子、同层按名称排序，指纹用于发现类结构变更后的旧数据
+     */
+    @Getter
+    public static class ClassSchema {
+
+        private final int id;
+        private final Class<?> type;
+        private final Field[] fields;
+        private final int fingerprint;
+        private final Constructor<?> constructor;
+
+        ClassSchema(int id, Class<?> type) {
+            this.id = id;
+            this.type = type;
+            this.fields = resolveFields(type);
+            int hash = type.getName().hashCode();
+            for (Field field : fields) {
+                hash = 31 * hash + field.getName().hashCode();
+                hash = 31 * hash + field.getType().getName().hashCode();
+            }
+            this.fingerprint = hash;
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("序列化类型缺少无参构造函数：" + type.getName(), e);
+            }
+        }
+
+        Object newInstance() throws ReflectiveOperationException {
+            return constructor.newInstance();
+        }
+
+        private static Field[] resolveFields(Class<?> type) {
+            LinkedList<Class<?>> hierarchy = new LinkedList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                hierarchy.addFirst(current);
+            }
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> current : hierarchy) {
+                Field[] declaredFields = current.getDeclaredFields();
+                Arrays.sort(declaredFields, Comparator.comparing(Field::getName));
+                for (Field field : declaredFields) {
+                    int modifiers = field.getModifiers();
+                    if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+                        continue;
+                    }
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            return fields.toArray(new Field[0]);
+        }
+    }
+}
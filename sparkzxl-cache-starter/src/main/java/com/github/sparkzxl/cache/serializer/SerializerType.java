@@ -0,0 +1,25 @@
+package com.github.sparkzxl.cache.serializer;
+
+/**
+ * description: redis值序列化方式
+ *
+ * @author zhouxinlei
+ * @date 2020-10-13 09:41:22
+ */
+public enum SerializerType {
+
+    /**
+     * fastJson序列化，写入类名，兼容历史数据
+     */
+    FASTJSON,
+
+    /**
+     * 紧凑二进制序列化，注册类型按字段顺序编码，超过阈值自动压缩，可读取fastJson写入的历史数据
+     */
+    COMPACT,
+
+    /**
+     * jdk序列化
+     */
+    JDK
+}
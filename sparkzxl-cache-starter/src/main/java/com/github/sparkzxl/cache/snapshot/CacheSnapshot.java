@@ -0,0 +1,192 @@
+package com.github.sparkzxl.cache.snapshot;
+
+import com.github.sparkzxl.core.utils.KeyUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * description: 内存映射的本地缓存快照，打开时只扫描key建立 key -> 文件偏移 索引，值在首次访问时读取，每个key只加载一次。
+ * <p>
+ * 文件格式：magic(int) version(int) 创建时间(long)，之后为若干条目：
+ * key长度(int) key(UTF-8) 写入时间(long) 存活时间毫秒(long，0不过期) 值长度(int) 值；
+ * 加载时以写入时间计算剩余存活时间，已过期的条目丢弃
+ *
+ * @author zhouxinlei
+ * @date 2020-10-18 14:20:36
+ */
+@Slf4j
+public class CacheSnapshot {
+
+    static final int MAGIC = 0x53435348;
+    static final int VERSION = 1;
+
+    private static final int HEADER_LENGTH = 16;
+    private static final int RECORD_META_LENGTH = 20;
+
+    private final String name;
+    private final ByteBuffer buffer;
+    private final Map<String, Integer> index;
+
+    private CacheSnapshot(String name, ByteBuffer buffer, Map<String, Integer> index) {
+        this.name = name;
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+    /**
+     * 映射快照文件
+     *
+     * @param file         快照文件
+     * @param maxAgeMillis 快照最大有效时长（单位：毫秒），超过时不加载，小于等于0不限制
+     * @return CacheSnapshot 文件不存在、格式不符或已超过有效时长时为null
+     */
+    public static CacheSnapshot open(File file, long maxAgeMillis) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_LENGTH || size > Integer.MAX_VALUE) {
+                log.warn("缓存快照[{}]大小不符：{} 字节", file, size);
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.warn("缓存快照[{}]格式不符", file);
+                return null;
+            }
+            long createdAt = buffer.getLong();
+            if (maxAgeMillis > 0 && System.currentTimeMillis() - createdAt > maxAgeMillis) {
+                log.info("缓存快照[{}]已超过有效时长，不加载", file);
+                return null;
+            }
+            return new CacheSnapshot(file.getName(), buffer, scan(file, buffer));
+        } catch (IOException e) {
+            log.warn("缓存快照[{}]读取失败：{}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 只读取key并跳过值，值所在的页在访问前不会载入内存
+     */
+    private static Map<String, Integer> scan(File file, ByteBuffer buffer) {
+        Map<String, Integer> index = new ConcurrentHashMap<>(1024);
+        try {
+            while (buffer.hasRemaining()) {
+                byte[] key = new byte[buffer.getInt()];
+                buffer.get(key);
+                int position = buffer.position();
+                buffer.position(position + RECORD_META_LENGTH - 4);
+                int valueLength = buffer.getInt();
+                buffer.position(buffer.position() + valueLength);
+                index.put(new String(key, StandardCharsets.UTF_8), position);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+            log.warn("缓存快照[{}]不完整，只加载前 {} 条", file, index.size());
+        }
+        return index;
+    }
+
+    /**
+     * 取出并丢弃key对应的条目
+     *
+     * @param key 缓存键
+     * @return Value 不存在或已过期时为null
+     */
+    public Value take(String key) {
+        Integer position = index.remove(key);
+        return position == null ? null : read(position);
+    }
+
+    private Value read(int position) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(position);
+        long writeTime = record.getLong();
+        long ttlMillis = record.getLong();
+        long remaining = ttlMillis - (System.currentTimeMillis() - writeTime);
+        if (ttlMillis > 0 && remaining <= 0) {
+            return null;
+        }
+        byte[] value = new byte[record.getInt()];
+        record.get(value);
+        return new Value(value, writeTime, ttlMillis, ttlMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(remaining) : 0L);
+    }
+
+    /**
+     * 丢弃key对应的条目，缓存写入或移除key后快照中的旧值不再加载
+     *
+     * @param key 缓存键
+     */
+    public void discard(String key) {
+        index.remove(key);
+    }
+
+    /**
+     * 丢弃缓存区域内的全部条目
+     *
+     * @param region 缓存区域
+     */
+    public void discardRegion(String region) {
+        index.keySet().removeIf(key -> region.equals(KeyUtils.getRegion(key)));
+    }
+
+    /**
+     * 将尚未加载且未过期的条目按原写入时间写入新快照
+     *
+     * @param writer       快照写入
+     * @param regionFilter 缓存区域过滤条件
+     */
+    public void copyTo(CacheSnapshotWriter writer, Predicate<String> regionFilter) {
+        index.forEach((key, position) -> {
+            if (regionFilter.test(KeyUtils.getRegion(key))) {
+                Value value = read(position);
+                if (value != null) {
+                    writer.write(key, value.writeTime, value.ttlMillis, value.bytes);
+                }
+            }
+        });
+    }
+
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Value {
+
+        private final byte[] bytes;
+
+        private final long writeTime;
+
+        private final long ttlMillis;
+
+        /**
+         * 剩余存活时间（单位：纳秒），0不过期
+         */
+        private final long ttlNanos;
+    }
+}
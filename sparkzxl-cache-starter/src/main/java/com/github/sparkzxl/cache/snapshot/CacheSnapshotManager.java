@@ -0,0 +1,126 @@
+package com.github.sparkzxl.cache.snapshot;
+
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * description: 本地缓存快照管理，启动时挂载上次的快照文件，按间隔及应用关闭时将选定区域写入快照，
+ * 先写入临时文件再原子替换，挂载中的旧快照映射不受影响
+ *
+ * @author zhouxinlei
+ * @date 2020-10-18 14:48:03
+ */
+@Slf4j
+public class CacheSnapshotManager implements InitializingBean, DisposableBean {
+
+    private static final String SUFFIX = ".snapshot";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final Map<String, SnapshotSupport> snapshotSupports;
+    private final CacheProperties.Snapshot snapshotProperties;
+    private final Predicate<String> regionFilter;
+    private final File directory;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param snapshotSupports   支持快照的本地缓存，key为bean名称，同时作为快照文件名
+     * @param snapshotProperties 快照配置
+     */
+    public CacheSnapshotManager(Map<String, SnapshotSupport> snapshotSupports, CacheProperties.Snapshot snapshotProperties) {
+        this.snapshotSupports = snapshotSupports;
+        this.snapshotProperties = snapshotProperties;
+        Set<String> regions = snapshotProperties.getRegions();
+        this.regionFilter = regions.isEmpty() ? region -> true : regions::contains;
+        this.directory = new File(snapshotProperties.getDirectory());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            log.warn("缓存快照目录[{}]创建失败，不启用快照", directory.getAbsolutePath());
+            return;
+        }
+        long maxAgeMillis = TimeUnit.SECONDS.toMillis(snapshotProperties.getMaxAge());
+        snapshotSupports.forEach((name, snapshotSupport) -> {
+            CacheSnapshot snapshot = CacheSnapshot.open(file(name), maxAgeMillis);
+            if (snapshot != null && !snapshot.isEmpty()) {
+                snapshotSupport.attachSnapshot(snapshot);
+                log.info("[{}]已挂载缓存快照，共 {} 条待加载", name, snapshot.size());
+            }
+        });
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-snapshot-");
+        threadFactory.setDaemon(true);
+        scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        long interval = snapshotProperties.getInterval();
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 将全部本地缓存的选定区域写入快照
+     */
+    public void snapshot() {
+        snapshotSupports.forEach(this::snapshot);
+    }
+
+    private void snapshot(String name, SnapshotSupport snapshotSupport) {
+        long start = System.currentTimeMillis();
+        File file = file(name);
+        File tempFile = new File(directory, name + SUFFIX + TEMP_SUFFIX);
+        long count;
+        try {
+            try (CacheSnapshotWriter writer = new CacheSnapshotWriter(tempFile)) {
+                snapshotSupport.exportSnapshot(regionFilter, writer);
+                count = writer.getCount();
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            log.error("[{}]写入缓存快照失败：{}", name, e.getMessage());
+            if (tempFile.exists() && !tempFile.delete()) {
+                log.warn("缓存快照临时文件[{}]删除失败", tempFile.getAbsolutePath());
+            }
+            return;
+        }
+        log.info("[{}]缓存快照写入 {} 条，耗时 {} ms", name, count, System.currentTimeMillis() - start);
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (Exception e) {
+            log.error("缓存快照写入失败：{}", e.getMessage());
+        }
+    }
+
+    private File file(String name) {
+        return new File(directory, name + SUFFIX);
+    }
+
+    /**
+     * 应用关闭时写入最后一次快照，滚动重启后的新实例从该快照加载
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(snapshotProperties.getInterval(), TimeUnit.SECONDS);
+        if (snapshotProperties.isSnapshotOnShutdown()) {
+            snapshot();
+        }
+    }
+}
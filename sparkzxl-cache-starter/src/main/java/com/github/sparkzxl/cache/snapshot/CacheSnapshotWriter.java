@@ -0,0 +1,66 @@
+package com.github.sparkzxl.cache.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * description: 快照文件顺序写入，格式见{@link CacheSnapshot}
+ *
+ * @author zhouxinlei
+ * @date 2020-10-18 14:12:47
+ */
+public class CacheSnapshotWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataOutputStream output;
+    private long count;
+
+    public CacheSnapshotWriter(File file) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+        output.writeInt(CacheSnapshot.MAGIC);
+        output.writeInt(CacheSnapshot.VERSION);
+        output.writeLong(System.currentTimeMillis());
+    }
+
+    /**
+     * 写入条目，写入时间为当前时间
+     *
+     * @param key       缓存键
+     * @param value     序列化后的值
+     * @param ttlMillis 剩余存活时间（单位：毫秒），小于等于0不过期
+     */
+    public void write(String key, byte[] value, long ttlMillis) {
+        write(key, System.currentTimeMillis(), ttlMillis, value);
+    }
+
+    void write(String key, long writeTime, long ttlMillis, byte[] value) {
+        try {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(keyBytes.length);
+            output.write(keyBytes);
+            output.writeLong(writeTime);
+            output.writeLong(Math.max(0L, ttlMillis));
+            output.writeInt(value.length);
+            output.write(value);
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.sparkzxl.cache.snapshot;
+
+import java.util.function.Predicate;
+
+/**
+ * description: 支持快照的本地缓存，定期导出选定区域的条目，重启后挂载快照文件在未命中时懒加载
+ *
+ * @author zhouxinlei
+ * @date 2020-10-18 14:05:12
+ */
+public interface SnapshotSupport {
+
+    /**
+     * 导出选定区域内未过期的条目，包括挂载的快照中尚未加载的条目
+     *
+     * @param regionFilter 缓存区域过滤条件
+     * @param writer       快照写入
+     */
+    void exportSnapshot(Predicate<String> regionFilter, CacheSnapshotWriter writer);
+
+    /**
+     * 挂载快照，之后未命中的key先从快照中加载，写入或移除的key从快照中丢弃
+     *
+     * @param snapshot 快照
+     */
+    void attachSnapshot(CacheSnapshot snapshot);
+}
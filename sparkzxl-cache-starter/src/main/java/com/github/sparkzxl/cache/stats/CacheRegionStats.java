@@ -0,0 +1,102 @@
+package com.github.sparkzxl.cache.stats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * description: 缓存区域统计，记录命中、未命中、加载耗时及淘汰次数
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 09:12:40
+ */
+public class CacheRegionStats {
+
+    private final String region;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 本地缓存当前的最大内存占用估算值（单位：字节），远程缓存为-1
+     */
+    private volatile long maximumWeight = -1L;
+
+    /**
+     * 本地缓存当前的内存占用估算值（单位：字节），远程缓存为-1
+     */
+    private volatile long weightedSize = -1L;
+
+    public CacheRegionStats(String region) {
+        this.region = region;
+    }
+
+    public void recordHits(long count) {
+        hits.add(count);
+    }
+
+    public void recordMisses(long count) {
+        misses.add(count);
+    }
+
+    public void recordLoad(long loadTimeNanos) {
+        loads.increment();
+        totalLoadTime.add(loadTimeNanos);
+    }
+
+    public void recordEviction() {
+        evictions.increment();
+    }
+
+    public void recordWeight(long maximumWeight, long weightedSize) {
+        this.maximumWeight = maximumWeight;
+        this.weightedSize = weightedSize;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getRequests() {
+        return getHits() + getMisses();
+    }
+
+    public double getHitRatio() {
+        long hitCount = getHits();
+        long requestCount = hitCount + getMisses();
+        return requestCount == 0 ? 1.0D : (double) hitCount / requestCount;
+    }
+
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * 平均加载耗时（单位：毫秒）
+     */
+    public double getAverageLoadTime() {
+        long loadCount = getLoads();
+        return loadCount == 0 ? 0.0D : (double) TimeUnit.NANOSECONDS.toMicros(totalLoadTime.sum()) / loadCount / 1000;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getWeightedSize() {
+        return weightedSize;
+    }
+}
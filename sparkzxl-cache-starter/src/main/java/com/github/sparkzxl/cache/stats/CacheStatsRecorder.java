@@ -0,0 +1,98 @@
+package com.github.sparkzxl.cache.stats;
+
+import com.github.sparkzxl.core.utils.KeyUtils;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * description: 按缓存区域（缓存key第一段前缀）汇总统计；没有区域前缀的key及超出区域数量上限的新区域计入默认区域，
+ * 避免 "token" + uuid 这类key每个都产生一个统计项
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 09:20:17
+ */
+public class CacheStatsRecorder {
+
+    /**
+     * 默认区域，没有区域前缀的key及超出区域数量上限的区域统计在该区域下
+     */
+    public static final String DEFAULT_REGION = "default";
+
+    /**
+     * 默认的区域数量上限
+     */
+    public static final int DEFAULT_MAXIMUM_REGIONS = 256;
+
+    private final Map<String, CacheRegionStats> regions = new ConcurrentHashMap<>();
+    private final int maximumRegions;
+
+    public CacheStatsRecorder() {
+        this(DEFAULT_MAXIMUM_REGIONS);
+    }
+
+    /**
+     * @param maximumRegions 区域数量上限，包含默认区域
+     */
+    public CacheStatsRecorder(int maximumRegions) {
+        this.maximumRegions = Math.max(1, maximumRegions);
+    }
+
+    /**
+     * 缓存key所属的区域，没有区域前缀时为默认区域
+     *
+     * @param key 缓存key
+     * @return String
+     */
+    public static String regionName(String key) {
+        return key.indexOf(':') < 0 ? DEFAULT_REGION : KeyUtils.getRegion(key);
+    }
+
+    /**
+     * 获取缓存key所属区域的统计
+     *
+     * @param key 缓存key
+     * @return CacheRegionStats
+     */
+    public CacheRegionStats region(String key) {
+        return forRegion(regionName(key));
+    }
+
+    /**
+     * 获取区域统计，不存在时创建，区域数量达到上限后新区域计入默认区域
+     *
+     * @param region 缓存区域
+     * @return CacheRegionStats
+     */
+    public CacheRegionStats forRegion(String region) {
+        CacheRegionStats stats = regions.get(region);
+        if (stats != null) {
+            return stats;
+        }
+        if (!DEFAULT_REGION.equals(region) && regions.size() >= maximumRegions - 1) {
+            return regions.computeIfAbsent(DEFAULT_REGION, CacheRegionStats::new);
+        }
+        return regions.computeIfAbsent(region, CacheRegionStats::new);
+    }
+
+    public void recordHit(String key) {
+        region(key).recordHits(1L);
+    }
+
+    public void recordMiss(String key) {
+        region(key).recordMisses(1L);
+    }
+
+    public void recordLoad(String key, long loadTimeNanos) {
+        region(key).recordLoad(loadTimeNanos);
+    }
+
+    public void recordEviction(String key) {
+        region(key).recordEviction();
+    }
+
+    public Map<String, CacheRegionStats> getRegions() {
+        return Collections.unmodifiableMap(regions);
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.sparkzxl.cache.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * description: 本地缓存失效广播消息
+ *
+ * @author zhouxinlei
+ * @date 2020-10-10 10:35:18
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheInvalidationMessage {
+
+    /**
+     * 发送消息的节点标识，节点忽略自己发出的消息
+     */
+    private String nodeId;
+
+    /**
+     * 失效的缓存key
+     */
+    private List<String> keys;
+
+    /**
+     * 是否清空全部本地缓存
+     */
+    private boolean flush;
+
+    /**
+     * 整体失效的缓存区域
+     */
+    private List<String> regions;
+
+}
@@ -0,0 +1,40 @@
+package com.github.sparkzxl.cache.support;
+
+import com.github.sparkzxl.cache.template.CacheCaffeineTemplateImpl;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: 本地缓存容量自适应调整调度
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 10:41:55
+ */
+@Slf4j
+public class CacheResizeScheduler implements DisposableBean {
+
+    private final ScheduledExecutorService scheduler;
+
+    public CacheResizeScheduler(CacheCaffeineTemplateImpl cacheCaffeineTemplate, long resizeInterval) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-resize-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        this.scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                cacheCaffeineTemplate.rebalance();
+            } catch (Exception e) {
+                log.error("本地缓存容量调整失败：{}", e.getMessage());
+            }
+        }, resizeInterval, resizeInterval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
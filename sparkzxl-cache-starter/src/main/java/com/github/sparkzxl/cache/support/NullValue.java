@@ -0,0 +1,45 @@
+package com.github.sparkzxl.cache.support;
+
+import java.io.Serializable;
+
+/**
+ * description: 空值占位，加载函数返回null时写入缓存，防止不存在的key反复穿透到数据库
+ *
+ * @author zhouxinlei
+ * @date 2020-10-15 09:21:37
+ */
+public final class NullValue implements Serializable {
+
+    private static final long serialVersionUID = -2651624127353421780L;
+
+    public static final NullValue INSTANCE = new NullValue();
+
+    /**
+     * 反序列化时可能产生新实例，判断空值请使用{@link #isNull(Object)}
+     */
+    public NullValue() {
+    }
+
+    public static boolean isNull(Object value) {
+        return value instanceof NullValue;
+    }
+
+    private Object readResolve() {
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof NullValue;
+    }
+
+    @Override
+    public int hashCode() {
+        return NullValue.class.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "NullValue";
+    }
+}
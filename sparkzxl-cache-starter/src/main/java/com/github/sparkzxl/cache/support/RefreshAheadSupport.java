@@ -0,0 +1,121 @@
+package com.github.sparkzxl.cache.support;
+
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: 热点key提前刷新（XFetch概率性提前过期），越接近过期、加载越慢的key越早被后台刷新，
+ * 读请求始终返回当前值，加载函数在有界线程池中异步执行
+ *
+ * @author zhouxinlei
+ * @date 2020-10-14 10:18:27
+ */
+@Slf4j
+public class RefreshAheadSupport implements DisposableBean {
+
+    private final CacheProperties.RefreshAhead properties;
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor executor;
+
+    public RefreshAheadSupport(CacheProperties.RefreshAhead properties) {
+        this.properties = properties;
+        if (properties.isEnabled()) {
+            this.executor = new ThreadPoolExecutor(properties.getPoolSize(), properties.getPoolSize(),
+                    60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                    new CustomizableThreadFactory("cache-refresh-"));
+            this.executor.allowCoreThreadTimeOut(true);
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * key是否启用提前刷新
+     *
+     * @param key 缓存key
+     * @return boolean
+     */
+    public boolean isEnabled(String key) {
+        return properties.isEnabled()
+                && (properties.getRegions().isEmpty() || properties.getRegions().contains(KeyUtils.getRegion(key)));
+    }
+
+    /**
+     * 包装加载结果
+     *
+     * @param value      缓存值
+     * @param delta      加载耗时（单位：毫秒）
+     * @param expireTime 过期时间（单位：秒）
+     * @return RefreshAheadValue
+     */
+    public RefreshAheadValue wrap(Object value, long delta, long expireTime) {
+        return new RefreshAheadValue(value, delta, System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(expireTime));
+    }
+
+    /**
+     * XFetch: now - delta * beta * ln(random) >= expireAt 时提前刷新
+     *
+     * @param value 缓存值
+     * @return boolean
+     */
+    public boolean shouldRefresh(RefreshAheadValue value) {
+        double random = ThreadLocalRandom.current().nextDouble();
+        double gap = -value.getDelta() * properties.getBeta() * Math.log(random);
+        return System.currentTimeMillis() + gap >= value.getExpireAt();
+    }
+
+    /**
+     * 异步刷新，同一个key同时只有一个刷新任务，线程池已满时放弃本次刷新
+     *
+     * @param key     缓存key
+     * @param refresh 刷新任务
+     */
+    public void refreshAsync(String key, Runnable refresh) {
+        if (executor == null || !refreshing.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    refresh.run();
+                } catch (Exception e) {
+                    log.error("提前刷新缓存[{}]失败：{}", key, e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程池已满，放弃本次刷新，由后续读请求再次触发
+            refreshing.remove(key);
+        }
+    }
+
+    /**
+     * 拆出缓存值
+     *
+     * @param value redis中读取的值
+     * @return Object
+     */
+    public static Object unwrap(Object value) {
+        return value instanceof RefreshAheadValue ? ((RefreshAheadValue) value).getValue() : value;
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.sparkzxl.cache.support;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * description: 提前刷新缓存值，记录加载耗时及过期时间，用于概率性提前过期判断
+ *
+ * @author zhouxinlei
+ * @date 2020-10-14 10:05:42
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshAheadValue implements Serializable {
+
+    private static final long serialVersionUID = 3718402955163372810L;
+
+    /**
+     * 缓存值
+     */
+    private Object value;
+
+    /**
+     * 加载耗时（单位：毫秒）
+     */
+    private long delta;
+
+    /**
+     * 过期时间戳（单位：毫秒）
+     */
+    private long expireAt;
+
+}
@@ -0,0 +1,255 @@
+package com.github.sparkzxl.cache.support;
+
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * description: 缓存区域版本命名空间，区域内的key在redis中带上版本号（region:v{版本号}:...），
+ * 区域整体失效时只需递增版本号，旧版本的key不再被访问，按过期时间自然淘汰或由{@link RegionSweeper}后台清理
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 09:36:14
+ */
+@Slf4j
+public class RegionNamespace {
+
+    private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+    private static final String VERSION_PREFIX = ":v";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Set<String> regions;
+    private final String keyPrefix;
+    private final long refreshInterval;
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+
+    public RegionNamespace(RedisTemplate<String, Object> redisTemplate, CacheProperties.Namespace namespace) {
+        this.redisTemplate = redisTemplate;
+        this.regions = namespace.getRegions();
+        this.keyPrefix = namespace.getKeyPrefix();
+        this.refreshInterval = namespace.getRefreshInterval();
+    }
+
+    /**
+     * 区域是否启用版本命名空间
+     *
+     * @param region 缓存区域
+     * @return boolean
+     */
+    public boolean isEnabled(String region) {
+        return regions.contains(region);
+    }
+
+    public Set<String> getRegions() {
+        return regions;
+    }
+
+    /**
+     * 缓存key对应的redis key，未启用版本命名空间的区域原样返回
+     *
+     * @param key 缓存key
+     * @return String
+     */
+    public String toRedisKey(String key) {
+        if (regions.isEmpty()) {
+            return key;
+        }
+        String region = KeyUtils.getRegion(key);
+        if (!regions.contains(region)) {
+            return key;
+        }
+        return toRedisKey(key, region, generation(region));
+    }
+
+    /**
+     * 按指定版本号拼接redis key
+     *
+     * @param key        缓存key
+     * @param region     缓存区域
+     * @param generation 版本号
+     * @return String
+     */
+    public String toRedisKey(String key, String region, long generation) {
+        return region + VERSION_PREFIX + generation + key.substring(region.length());
+    }
+
+    /**
+     * 区域当前版本号，本地缓存refreshInterval毫秒
+     *
+     * @param region 缓存区域
+     * @return long
+     */
+    public long generation(String region) {
+        Long cached = cachedGeneration(region);
+        if (cached != null) {
+            return cached;
+        }
+        byte[] generationKey = getGenerationKey(region).getBytes(DEFAULT_CHARSET);
+        byte[] bytes = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(generationKey));
+        return refreshGeneration(region, bytes == null ? null : new String(bytes, DEFAULT_CHARSET));
+    }
+
+    /**
+     * 本地缓存的区域版本号
+     *
+     * @param region 缓存区域
+     * @return Long 超过刷新间隔或未加载时返回null，由调用方从redis读取后调用{@link #refreshGeneration}
+     */
+    public Long cachedGeneration(String region) {
+        Generation generation = generations.get(region);
+        if (generation != null && System.currentTimeMillis() - generation.loadTime < refreshInterval) {
+            return generation.value;
+        }
+        return null;
+    }
+
+    /**
+     * 记录从redis读取的区域版本号
+     *
+     * @param region 缓存区域
+     * @param value  redis中的版本号，不存在时为null
+     * @return long 版本号
+     */
+    public long refreshGeneration(String region, String value) {
+        long generation = value == null ? 0L : Long.parseLong(value);
+        generations.put(region, new Generation(generation, System.currentTimeMillis()));
+        return generation;
+    }
+
+    /**
+     * 递增区域版本号，区域内已有的key全部失效
+     *
+     * @param region 缓存区域
+     * @return long 新的版本号
+     */
+    public long invalidate(String region) {
+        byte[] generationKey = getGenerationKey(region).getBytes(DEFAULT_CHARSET);
+        Long value = redisTemplate.execute((RedisCallback<Long>) connection -> connection.incr(generationKey));
+        long generation = value == null ? 0L : value;
+        generations.put(region, new Generation(generation, System.currentTimeMillis()));
+        return generation;
+    }
+
+    /**
+     * 从redis key中解析版本号
+     *
+     * @param region   缓存区域
+     * @param redisKey redis key
+     * @return long 不是带版本号的key时返回-1
+     */
+    public static long parseGeneration(String region, String redisKey) {
+        int start = region.length() + VERSION_PREFIX.length();
+        if (!redisKey.startsWith(region + VERSION_PREFIX)) {
+            return -1L;
+        }
+        int end = redisKey.indexOf(':', start);
+        String generation = end < 0 ? redisKey.substring(start) : redisKey.substring(start, end);
+        try {
+            return Long.parseLong(generation);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * SCAN + UNLINK分批删除区域内的key，不阻塞redis
+     *
+     * @param redisTemplate redisTemplate
+     * @param region        缓存区域
+     * @param batchSize     每批的key数量
+     * @return long 删除的数量
+     */
+    public static long unlinkRegion(RedisTemplate<String, Object> redisTemplate, String region, int batchSize) {
+        return unlink(redisTemplate, region + ":*", batchSize, 0L, key -> true);
+    }
+
+    /**
+     * SCAN匹配的key，满足条件的分批UNLINK
+     *
+     * @param redisTemplate redisTemplate
+     * @param pattern       SCAN匹配模式
+     * @param batchSize     每批的key数量
+     * @param pause         每批之间的停顿时间（单位：毫秒）
+     * @param filter        需要删除的key
+     * @return long 删除的数量
+     */
+    public static long unlink(RedisTemplate<String, Object> redisTemplate, String pattern, int batchSize, long pause,
+                              Predicate<String> filter) {
+        Long count = redisTemplate.execute((RedisCallback<Long>) connection -> {
+            long unlinked = 0L;
+            List<byte[]> batch = Lists.newArrayListWithCapacity(batchSize);
+            ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+            try (Cursor<byte[]> cursor = connection.scan(options)) {
+                while (cursor.hasNext() && !Thread.currentThread().isInterrupted()) {
+                    byte[] key = cursor.next();
+                    if (filter.test(new String(key, DEFAULT_CHARSET))) {
+                        batch.add(key);
+                    }
+                    if (batch.size() >= batchSize) {
+                        unlinked += unlinkBatch(connection, batch);
+                        pause(pause);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("清理缓存key失败：{}", e.getMessage());
+            }
+            if (!batch.isEmpty()) {
+                unlinked += unlinkBatch(connection, batch);
+            }
+            return unlinked;
+        });
+        return count == null ? 0L : count;
+    }
+
+    private static long unlinkBatch(RedisConnection connection, List<byte[]> batch) {
+        Long count = connection.unlink(batch.toArray(new byte[0][]));
+        batch.clear();
+        return count == null ? 0L : count;
+    }
+
+    private static void pause(long pause) {
+        if (pause <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(pause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 区域版本号在redis中的key
+     *
+     * @param region 缓存区域
+     * @return String
+     */
+    public String getGenerationKey(String region) {
+        return keyPrefix + ":" + region;
+    }
+
+    private static class Generation {
+
+        private final long value;
+        private final long loadTime;
+
+        private Generation(long value, long loadTime) {
+            this.value = value;
+            this.loadTime = loadTime;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.sparkzxl.cache.support;
+
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: 旧版本key后台清理，定期SCAN启用版本命名空间的区域，分批UNLINK版本号小于当前版本的key，
+ * 没有配置启用版本命名空间的区域时不启动
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 10:05:47
+ */
+@Slf4j
+public class RegionSweeper implements DisposableBean {
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RegionNamespace regionNamespace;
+    private final CacheProperties.Namespace namespace;
+    private final ScheduledExecutorService scheduler;
+
+    public RegionSweeper(RedisTemplate<String, Object> redisTemplate, RegionNamespace regionNamespace,
+                         CacheProperties.Namespace namespace) {
+        this.redisTemplate = redisTemplate;
+        this.regionNamespace = regionNamespace;
+        this.namespace = namespace;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-sweeper-");
+        threadFactory.setDaemon(true);
+        this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        if (regionNamespace.getRegions().isEmpty()) {
+            return;
+        }
+        this.scheduler.scheduleWithFixedDelay(this::sweep, namespace.getSweepInterval(), namespace.getSweepInterval(),
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * 清理全部启用版本命名空间的区域
+     */
+    public void sweep() {
+        for (String region : regionNamespace.getRegions()) {
+            try {
+                sweep(region);
+            } catch (Exception e) {
+                log.error("清理缓存区域[{}]旧版本key失败：{}", region, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 清理区域内版本号小于当前版本的key
+     *
+     * @param region 缓存区域
+     * @return long 删除的数量
+     */
+    public long sweep(String region) {
+        long generation = regionNamespace.generation(region);
+        if (generation <= 0) {
+            return 0L;
+        }
+        long count = RegionNamespace.unlink(redisTemplate, region + ":v*", namespace.getSweepBatchSize(),
+                namespace.getSweepPause(), key -> {
+                    long keyGeneration = RegionNamespace.parseGeneration(region, key);
+                    return keyGeneration >= 0 && keyGeneration < generation;
+                });
+        if (count > 0) {
+            log.info("清理缓存区域[{}]旧版本key {} 个", region, count);
+        }
+        return count;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
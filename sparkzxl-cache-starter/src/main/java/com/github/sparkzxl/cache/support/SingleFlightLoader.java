@@ -0,0 +1,135 @@
+package com.github.sparkzxl.cache.support;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * description: 缓存合并加载，同一JVM内同一个key并发未命中时只执行一次加载，其余线程共享加载结果，
+ * 同时记录等待线程及分布式加载租约的统计数据
+ *
+ * @author zhouxinlei
+ * @date 2020-10-12 14:20:31
+ */
+@SuppressWarnings("unchecked")
+public class SingleFlightLoader {
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+    private final LongAdder leaseAcquired = new LongAdder();
+    private final LongAdder leaseContended = new LongAdder();
+    private final LongAdder leaseTimeout = new LongAdder();
+
+    /**
+     * 合并加载
+     *
+     * @param key    缓存键
+     * @param loader 加载函数
+     * @return T
+     */
+    public <T> T load(String key, Supplier<T> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return await(existing);
+        }
+        loads.increment();
+        try {
+            T value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private <T> T await(CompletableFuture<Object> future) {
+        waits.increment();
+        waiting.incrementAndGet();
+        try {
+            return (T) future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void recordLeaseAcquired() {
+        leaseAcquired.increment();
+    }
+
+    public void recordLeaseContended() {
+        leaseContended.increment();
+    }
+
+    public void recordLeaseTimeout() {
+        leaseTimeout.increment();
+    }
+
+    /**
+     * 当前正在等待其他线程加载结果的线程数
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * 当前正在加载的key数量
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * 实际执行加载的次数
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * 共享其他线程加载结果的次数
+     */
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    /**
+     * 成功获取分布式加载租约的次数
+     */
+    public long getLeaseAcquired() {
+        return leaseAcquired.sum();
+    }
+
+    /**
+     * 分布式加载租约被其他节点持有的次数
+     */
+    public long getLeaseContended() {
+        return leaseContended.sum();
+    }
+
+    /**
+     * 等待其他节点加载超时后自行加载的次数
+     */
+    public long getLeaseTimeout() {
+        return leaseTimeout.sum();
+    }
+}
@@ -0,0 +1,166 @@
+package com.github.sparkzxl.cache.template;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * description: 非阻塞缓存提供接口，语义与{@link CacheTemplate}一致，调用线程不等待redis响应
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 16:10:24
+ */
+public interface AsyncCacheTemplate {
+
+    /**
+     * 查询缓存
+     *
+     * @param key 缓存键 不可为空
+     * @return CompletableFuture<T> 不存在时结果为null
+     */
+    <T> CompletableFuture<T> get(String key);
+
+    /**
+     * 查询缓存
+     *
+     * @param key      缓存键 不可为空
+     * @param function 如没有缓存，调用该异步加载函数返回对象 不可为空
+     * @return CompletableFuture<T>
+     */
+    <T> CompletableFuture<T> get(String key, Function<String, CompletionStage<T>> function);
+
+    /**
+     * 查询缓存，同一个key并发未命中时只执行一次加载函数
+     *
+     * @param key        缓存键 不可为空
+     * @param function   如没有缓存，调用该异步加载函数返回对象 不可为空
+     * @param expireTime 过期时间（单位：秒） 可为空
+     * @return CompletableFuture<T>
+     */
+    <T> CompletableFuture<T> get(String key, Function<String, CompletionStage<T>> function, Long expireTime);
+
+    /**
+     * 批量查询缓存
+     *
+     * @param keys 缓存键集合 不可为空
+     * @return CompletableFuture<Map<String, T>> 只包含命中的key，按传入顺序排列
+     */
+    <T> CompletableFuture<Map<String, T>> multiGet(Collection<String> keys);
+
+    /**
+     * 设置缓存键值
+     *
+     * @param key   缓存键 不可为空
+     * @param value 缓存值 不可为空
+     * @return CompletableFuture<Void>
+     */
+    CompletableFuture<Void> set(String key, Object value);
+
+    /**
+     * 设置缓存键值
+     *
+     * @param key        缓存键 不可为空
+     * @param value      缓存值 不可为空
+     * @param expireTime 过期时间（单位：秒） 可为空
+     * @return CompletableFuture<Void>
+     */
+    CompletableFuture<Void> set(String key, Object value, Long expireTime);
+
+    /**
+     * 递增
+     *
+     * @param key 缓存键 不可为空
+     * @return CompletableFuture<Long> 递增后的值
+     */
+    CompletableFuture<Long> increment(String key);
+
+    /**
+     * 递增
+     *
+     * @param key   缓存键 不可为空
+     * @param delta 递增值
+     * @return CompletableFuture<Long> 递增后的值
+     */
+    CompletableFuture<Long> increment(String key, long delta);
+
+    /**
+     * 递减
+     *
+     * @param key 缓存键 不可为空
+     * @return CompletableFuture<Long> 递减后的值
+     */
+    CompletableFuture<Long> decrement(String key);
+
+    /**
+     * 递减
+     *
+     * @param key   缓存键 不可为空
+     * @param delta 递减值
+     * @return CompletableFuture<Long> 递减后的值
+     */
+    CompletableFuture<Long> decrement(String key, long delta);
+
+    /**
+     * 删除缓存
+     *
+     * @param keys 缓存键 可多个
+     * @return CompletableFuture<Long> 删除的数量
+     */
+    CompletableFuture<Long> remove(String... keys);
+
+    /**
+     * 是否存在缓存
+     *
+     * @param key 缓存键 不可为空
+     * @return CompletableFuture<Boolean>
+     */
+    CompletableFuture<Boolean> exists(String key);
+
+    /**
+     * 查询缓存，供WebFlux使用
+     *
+     * @param key 缓存键 不可为空
+     * @return Mono<T> 不存在时为空
+     */
+    default <T> Mono<T> getMono(String key) {
+        return Mono.defer(() -> Mono.fromFuture(this.<T>get(key)));
+    }
+
+    /**
+     * 查询缓存，供WebFlux使用
+     *
+     * @param key        缓存键 不可为空
+     * @param function   如没有缓存，调用该异步加载函数返回对象 不可为空
+     * @param expireTime 过期时间（单位：秒） 可为空
+     * @return Mono<T> 加载结果为null时为空
+     */
+    default <T> Mono<T> getMono(String key, Function<String, CompletionStage<T>> function, Long expireTime) {
+        return Mono.defer(() -> Mono.fromFuture(this.get(key, function, expireTime)));
+    }
+
+    /**
+     * 设置缓存键值，供WebFlux使用
+     *
+     * @param key        缓存键 不可为空
+     * @param value      缓存值 不可为空
+     * @param expireTime 过期时间（单位：秒） 可为空
+     * @return Mono<Void>
+     */
+    default Mono<Void> setMono(String key, Object value, Long expireTime) {
+        return Mono.defer(() -> Mono.fromFuture(set(key, value, expireTime)));
+    }
+
+    /**
+     * 删除缓存，供WebFlux使用
+     *
+     * @param keys 缓存键 可多个
+     * @return Mono<Long> 删除的数量
+     */
+    default Mono<Long> removeMono(String... keys) {
+        return Mono.defer(() -> Mono.fromFuture(remove(keys)));
+    }
+}
@@ -1,27 +1,257 @@
 package com.github.sparkzxl.cache.template;
 
-import java.time.Duration;
-import java.util.concurrent.atomic.LongAdder;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.serializer.CompactRedisSerializer;
+import com.github.sparkzxl.cache.serializer.CompactTypeRegistry;
+import com.github.sparkzxl.cache.snapshot.CacheSnapshot;
+import com.github.sparkzxl.cache.snapshot.CacheSnapshotWriter;
+import com.github.sparkzxl.cache.snapshot.SnapshotSupport;
+import com.github.sparkzxl.cache.stats.CacheRegionStats;
+import com.github.sparkzxl.cache.stats.CacheStatsRecorder;
+import com.github.sparkzxl.cache.support.NullValue;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 /**
- * description: Caffeine本地缓存实现
+ * description: Caffeine本地缓存实现，每个缓存区域一个缓存，条目按各自的过期时间失效、按估算的内存占用淘汰，
+ * 全局内存预算在区域间分配，开启自适应后按各区域实测的边际命中收益周期性调整；区域数量有上限，
+ * 没有区域前缀的key及超出上限后出现的区域共用默认区域；
+ * 支持快照，重启后未命中的key先从快照中加载
  *
  * @author: zhouxinlei
  * @date: 2020-07-28 17:46:50
  */
+@Slf4j
 @SuppressWarnings("unchecked")
-public class CacheCaffeineTemplateImpl implements CacheTemplate {
+public class CacheCaffeineTemplateImpl implements CacheTemplate, SnapshotSupport {
 
-    long maxSize = 1000L;
-    private final Cache<String, Cache<String, Object>> cacheMap;
+    /**
+     * 默认最大内存占用估算值 64MB
+     */
+    public static final long DEFAULT_MAXIMUM_WEIGHT = 64L * 1024 * 1024;
+
+    private static final long NO_EXPIRE = Long.MAX_VALUE;
+    private static final long KEEP_EXPIRE = -1L;
+
+    /**
+     * 剩余存活时间超过该值时快照中记为不过期
+     */
+    private static final long SNAPSHOT_NO_EXPIRE = TimeUnit.DAYS.toNanos(365L * 100);
+
+    /**
+     * 内存占用达到上限的该比例视为已满，增加容量才可能提升命中率
+     */
+    private static final double FULL_RATIO = 0.9D;
+
+    /**
+     * 未满区域回收空闲容量后保留的余量
+     */
+    private static final double SLACK_RATIO = 1.25D;
+
+    /**
+     * 接收方边际收益需超过让出方的倍数才转移容量，避免来回抖动
+     */
+    private static final double HYSTERESIS = 1.2D;
+
+    /**
+     * 统计窗口内请求数少于该值的区域不参与收益评估
+     */
+    private static final long MIN_WINDOW_REQUESTS = 100L;
+
+    private static final ClassValue<Integer> SHALLOW_WEIGHT = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            int fieldCount = 0;
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        fieldCount++;
+                    }
+                }
+            }
+            return 16 + 8 * fieldCount;
+        }
+    };
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+    private final CacheStatsRecorder statsRecorder;
+    private final Object allocationLock = new Object();
+    private final CacheProperties.CaffeineCache caffeineProperties;
+    private final CacheProperties.NullValueCache nullValueProperties;
+    private final CacheProperties.Serializer serializerProperties;
+    private volatile RedisSerializer<Object> snapshotSerializer;
+    private volatile CacheSnapshot snapshot;
 
     public CacheCaffeineTemplateImpl() {
-        this.cacheMap = Caffeine.newBuilder().maximumSize(this.maxSize).build();
+        this(new CacheProperties());
+    }
+
+    public CacheCaffeineTemplateImpl(CacheProperties cacheProperties) {
+        this.caffeineProperties = cacheProperties.getCaffeine();
+        this.nullValueProperties = cacheProperties.getNullValue();
+        this.serializerProperties = cacheProperties.getSerializer();
+        this.statsRecorder = new CacheStatsRecorder(maximumRegions());
+        synchronized (allocationLock) {
+            regions.put(CacheStatsRecorder.DEFAULT_REGION, newRegion(CacheStatsRecorder.DEFAULT_REGION));
+        }
+    }
+
+    private Cache<String, CacheEntry> cache(String key) {
+        return regionOf(key).cache;
+    }
+
+    private Region regionOf(String key) {
+        return region(CacheStatsRecorder.regionName(key));
+    }
+
+    /**
+     * 获取区域，不存在时创建；区域数量达到上限后返回默认区域
+     */
+    private Region region(String name) {
+        Region region = regions.get(name);
+        if (region != null) {
+            return region;
+        }
+        synchronized (allocationLock) {
+            region = regions.get(name);
+            if (region == null) {
+                if (regions.size() >= maximumRegions()) {
+                    return regions.get(CacheStatsRecorder.DEFAULT_REGION);
+                }
+                region = newRegion(name);
+                regions.put(name, region);
+            }
+        }
+        return region;
+    }
+
+    /**
+     * 区域数量上限，保证每个区域至少分得最小容量时总量不超过全局预算
+     */
+    private int maximumRegions() {
+        long byWeight = caffeineProperties.getMaximumWeight() / Math.max(1L, minimumRegionWeight());
+        return (int) Math.max(1L, Math.min(caffeineProperties.getMaximumRegions(), byWeight));
+    }
+
+    /**
+     * 新区域分得平均份额，已有区域高出最小容量的部分按比例缩减，总量保持在全局预算内
+     */
+    private Region newRegion(String name) {
+        long budget = caffeineProperties.getMaximumWeight();
+        long minimum = minimumRegionWeight();
+        int count = regions.size();
+        long share = Math.max(minimum, budget / (count + 1));
+        long current = regions.values().stream().mapToLong(Region::maximum).sum();
+        long available = budget - share;
+        if (count > 0 && current > available) {
+            long reserved = count * minimum;
+            double scale = current > reserved ? (double) Math.max(0L, available - reserved) / (current - reserved) : 0D;
+            regions.values().forEach(region -> region.resize(minimum + (long) ((region.maximum() - minimum) * scale)));
+        }
+        CacheRegionStats stats = statsRecorder.forRegion(name);
+        Cache<String, CacheEntry> cache = Caffeine.newBuilder()
+                .maximumWeight(share)
+                .weigher((String key, CacheEntry entry) -> entry.weight)
+                .expireAfter(new Expiry<String, CacheEntry>() {
+                    @Override
+                    public long expireAfterCreate(String key, CacheEntry entry, long currentTime) {
+                        return entry.expireNanos == KEEP_EXPIRE ? NO_EXPIRE : entry.expireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CacheEntry entry, long currentTime, long currentDuration) {
+                        return entry.expireNanos == KEEP_EXPIRE ? currentDuration : entry.expireNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CacheEntry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .removalListener((String key, CacheEntry entry, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        stats.recordEviction();
+                    }
+                })
+                .build();
+        return new Region(cache, stats);
+    }
+
+    private long minimumRegionWeight() {
+        return Math.min(caffeineProperties.getMinimumRegionWeight(), caffeineProperties.getMaximumWeight());
+    }
+
+    /**
+     * 按上一个统计窗口内各区域的边际命中收益（每字节容量带来的命中数）重新分配全局内存预算：
+     * 未满的区域回收空闲容量，空闲预算按收益分给已满的区域，收益最低的区域让出一个步长给收益最高的已满区域。
+     * 上一轮调整过容量的区域用实测的命中率变化计算收益，否则用未命中数与容量之比估算
+     */
+    public void rebalance() {
+        synchronized (allocationLock) {
+            if (regions.isEmpty()) {
+                return;
+            }
+            List<Region> regionList = Lists.newArrayList(regions.values());
+            long budget = caffeineProperties.getMaximumWeight();
+            long minimum = minimumRegionWeight();
+            for (Region region : regionList) {
+                region.evaluate();
+            }
+            long allocated = 0;
+            for (Region region : regionList) {
+                long maximum = region.maximum();
+                region.target = region.full ? maximum : Math.max(minimum, Math.min(maximum, (long) (region.weightedSize() * SLACK_RATIO)));
+                allocated += region.target;
+            }
+            List<Region> receivers = regionList.stream().filter(region -> region.full && region.gain > 0)
+                    .sorted(Comparator.comparingDouble((Region region) -> region.gain).reversed())
+                    .collect(Collectors.toList());
+            long free = budget - allocated;
+            if (free > 0 && !receivers.isEmpty()) {
+                double totalGain = receivers.stream().mapToDouble(region -> region.gain).sum();
+                for (Region receiver : receivers) {
+                    receiver.target += (long) (free * receiver.gain / totalGain);
+                }
+            } else if (!receivers.isEmpty()) {
+                Region receiver = receivers.get(0);
+                Region donor = regionList.stream().filter(region -> region != receiver)
+                        .filter(region -> region.target - (long) (region.target * caffeineProperties.getResizeStep()) >= minimum)
+                        .min(Comparator.comparingDouble((Region region) -> region.gain))
+                        .orElse(null);
+                if (donor != null && receiver.gain > donor.gain * HYSTERESIS) {
+                    long step = (long) (donor.target * caffeineProperties.getResizeStep());
+                    donor.target -= step;
+                    receiver.target += step;
+                }
+            }
+            for (Region region : regionList) {
+                region.resize(region.target);
+            }
+        }
     }
 
     @Override
@@ -31,66 +261,148 @@ public class CacheCaffeineTemplateImpl implements CacheTemplate {
 
     @Override
     public void set(String key, Object value, Long expireTime) {
-        Cache<String, Object> cache;
-        if (expireTime == null) {
-            cache = Caffeine.newBuilder().maximumSize(this.maxSize).build();
-        } else {
-            cache =
-                    Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(expireTime)).maximumSize(this.maxSize).build();
+        if (StringUtils.isEmpty(key) || value == null) {
+            return;
         }
-        cache.put(key, value);
-        this.cacheMap.put(key, cache);
+        cache(key).put(key, new CacheEntry(value, expireTime));
+        discardSnapshot(key);
     }
 
     @Override
-    public Long increment(String key) {
-        Function<Long, Long> function = x -> {
-            LongAdder longAdder = new LongAdder();
-            longAdder.increment();
-            return longAdder.longValue();
-        };
-        return get(key, function, 0L, null);
+    public boolean setIfAbsent(String key, Object value, Long expireTime) {
+        if (StringUtils.isEmpty(key) || value == null) {
+            return false;
+        }
+        Region region = regionOf(key);
+        if (restore(region, key) != null) {
+            return false;
+        }
+        return region.cache.asMap().putIfAbsent(key, new CacheEntry(value, expireTime)) == null;
+    }
+
+    @Override
+    public <T> T getAndRemove(String key) {
+        if (StringUtils.isEmpty(key)) {
+            return null;
+        }
+        Region region = regionOf(key);
+        restore(region, key);
+        CacheEntry entry = region.cache.asMap().remove(key);
+        return entry == null ? null : (T) entry.get();
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> map) {
+        multiSet(map, null);
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> map, Long expireTime) {
+        if (CollectionUtils.isEmpty(map)) {
+            return;
+        }
+        Map<String, Map<String, CacheEntry>> entriesByRegion = Maps.newHashMap();
+        map.forEach((key, value) -> {
+            if (!StringUtils.isEmpty(key) && value != null) {
+                entriesByRegion.computeIfAbsent(CacheStatsRecorder.regionName(key), region -> Maps.newHashMap())
+                        .put(key, new CacheEntry(value, expireTime));
+            }
+        });
+        entriesByRegion.forEach((region, entries) -> region(region).cache.putAll(entries));
+        map.keySet().forEach(this::discardSnapshot);
     }
 
+    @Override
+    public Long increment(String key) {
+        return add(key, 1L);
+    }
 
     @Override
     public Long increment(String key, long delta) {
-        Function<Long, Long> function = x -> {
-            LongAdder longAdder = new LongAdder();
-            longAdder.add(delta);
-            return longAdder.longValue();
-        };
-        return get(key, function, delta, null);
+        return add(key, delta);
     }
 
     @Override
     public Long decrement(String key) {
-        Function<Long, Long> function = x -> {
-            LongAdder longAdder = new LongAdder();
-            longAdder.decrement();
-            return longAdder.longValue();
-        };
-        return get(key, function, 0L, null);
+        return add(key, -1L);
     }
 
     @Override
     public Long decrement(String key, long delta) {
-        Function<Long, Long> function = x -> {
-            LongAdder longAdder = new LongAdder();
-            longAdder.add(-delta);
-            return longAdder.longValue();
-        };
-        return get(key, function, delta, null);
+        return add(key, -delta);
+    }
+
+    /**
+     * 计数器累加，已存在的计数器直接原子累加，不存在时原子创建；key上已有数值类型的缓存值时以其为初始值并保留原过期时间
+     */
+    private Long add(String key, long delta) {
+        Region region = regionOf(key);
+        Cache<String, CacheEntry> cache = region.cache;
+        CacheEntry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            entry = restore(region, key);
+        }
+        if (entry != null && entry.counter != null) {
+            return entry.counter.addAndGet(delta);
+        }
+        AtomicLong result = new AtomicLong();
+        cache.asMap().compute(key, (k, current) -> {
+            if (current != null && current.counter != null) {
+                result.set(current.counter.addAndGet(delta));
+                return current;
+            }
+            long initial = current != null && current.value instanceof Number ? ((Number) current.value).longValue() : 0L;
+            CacheEntry counter = CacheEntry.counter(initial + delta, current == null ? NO_EXPIRE : KEEP_EXPIRE);
+            result.set(initial + delta);
+            return counter;
+        });
+        return result.get();
     }
 
     @Override
     public Long remove(String... keys) {
         for (String key : keys) {
-            this.cacheMap.invalidate(key);
+            cache(key).invalidate(key);
+            discardSnapshot(key);
         }
         return (long) keys.length;
     }
 
+    @Override
+    public Long multiRemove(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return 0L;
+        }
+        keys.stream().collect(Collectors.groupingBy(CacheStatsRecorder::regionName))
+                .forEach((region, regionKeys) -> region(region).cache.invalidateAll(regionKeys));
+        keys.forEach(this::discardSnapshot);
+        return (long) keys.size();
+    }
+
+    @Override
+    public <T> Map<String, T> multiGet(Collection<String> keys) {
+        Map<String, T> result = Maps.newLinkedHashMap();
+        if (CollectionUtils.isEmpty(keys)) {
+            return result;
+        }
+        for (String key : keys) {
+            Region region = regionOf(key);
+            CacheEntry entry = region.cache.getIfPresent(key);
+            if (entry == null) {
+                entry = restore(region, key);
+            }
+            if (entry == null) {
+                region.stats.recordMisses(1L);
+                continue;
+            }
+            region.stats.recordHits(1L);
+            if (!NullValue.isNull(entry.value)) {
+                result.put(key, (T) entry.get());
+            }
+        }
+        return result;
+    }
+
     @Override
     public <T> T get(String key) {
         return get(key, null, null, null);
@@ -113,47 +425,314 @@ public class CacheCaffeineTemplateImpl implements CacheTemplate {
 
     @Override
     public <T, M> T get(String key, Function<M, T> function, M funcParam, Long expireTime) {
-        T obj = null;
         if (StringUtils.isEmpty(key)) {
             return null;
         }
-        Cache<String, Object> ifPresent = this.cacheMap.getIfPresent(key);
-        if (ifPresent == null && function != null) {
-            obj = function.apply(funcParam);
-            if (obj != null) {
-                //设置缓存信息
-                set(key, obj, expireTime);
-            }
-        } else if (ifPresent != null) {
-            obj = (T) ifPresent.getIfPresent(key);
+        Region region = regionOf(key);
+        CacheEntry entry = region.cache.getIfPresent(key);
+        if (entry == null) {
+            entry = restore(region, key);
+        }
+        if (entry != null) {
+            region.stats.recordHits(1L);
+            return (T) entry.get();
         }
-        return obj;
+        region.stats.recordMisses(1L);
+        if (function == null) {
+            return null;
+        }
+        // 同一个key并发未命中时只有一个线程执行加载函数
+        entry = region.cache.get(key, k -> {
+            long start = System.nanoTime();
+            T obj = function.apply(funcParam);
+            region.stats.recordLoad(System.nanoTime() - start);
+            if (obj == null) {
+                return nullValueProperties.isEnabled() ? new CacheEntry(NullValue.INSTANCE, nullValueProperties.getExpireTime()) : null;
+            }
+            return new CacheEntry(obj, expireTime);
+        });
+        return entry == null ? null : (T) entry.get();
     }
 
 
     @Override
     public void flushDb() {
-        this.cacheMap.invalidateAll();
+        snapshot = null;
+        regions.values().forEach(region -> region.cache.invalidateAll());
+    }
+
+    @Override
+    public void invalidateRegion(String region) {
+        Region cacheRegion = regions.get(region);
+        if (cacheRegion != null) {
+            cacheRegion.cache.invalidateAll();
+        }
+        // 没有区域前缀的key及超出上限的区域存放在默认区域中
+        Region defaultRegion = regions.get(CacheStatsRecorder.DEFAULT_REGION);
+        if (defaultRegion != cacheRegion) {
+            defaultRegion.cache.asMap().keySet().removeIf(key -> region.equals(KeyUtils.getRegion(key)));
+        }
+        CacheSnapshot current = snapshot;
+        if (current != null) {
+            current.discardRegion(region);
+        }
     }
 
     @Override
     public boolean exists(String key) {
-        Cache cache = this.cacheMap.getIfPresent(key);
-        if (cache == null) {
-            return false;
-        } else {
-            cache.cleanUp();
-            return cache.estimatedSize() > 0L;
+        Region region = regionOf(key);
+        CacheEntry entry = region.cache.getIfPresent(key);
+        if (entry == null) {
+            entry = restore(region, key);
+        }
+        return entry != null && !NullValue.isNull(entry.value);
+    }
+
+    @Override
+    public Map<String, CacheRegionStats> getRegionStats() {
+        regions.values().forEach(region -> region.stats.recordWeight(region.maximum(), region.weightedSize()));
+        return statsRecorder.getRegions();
+    }
+
+    @Override
+    public void exportSnapshot(Predicate<String> regionFilter, CacheSnapshotWriter writer) {
+        RedisSerializer<Object> serializer = snapshotSerializer();
+        regions.forEach((name, region) -> {
+            boolean shared = CacheStatsRecorder.DEFAULT_REGION.equals(name);
+            if (!shared && !regionFilter.test(name)) {
+                return;
+            }
+            Optional<Policy.VarExpiration<String, CacheEntry>> expiration = region.cache.policy().expireVariably();
+            region.cache.asMap().forEach((key, entry) -> {
+                // 默认区域中的key按各自的区域过滤
+                if (shared && !regionFilter.test(KeyUtils.getRegion(key))) {
+                    return;
+                }
+                Object value = entry.get();
+                if (value == null) {
+                    return;
+                }
+                long ttlNanos = entry.expireNanos == NO_EXPIRE ? NO_EXPIRE
+                        : expiration.flatMap(policy -> policy.getExpiresAfter(key, TimeUnit.NANOSECONDS)).orElse(NO_EXPIRE);
+                if (ttlNanos <= 0) {
+                    return;
+                }
+                byte[] bytes;
+                try {
+                    bytes = serializer.serialize(value);
+                } catch (RuntimeException e) {
+                    log.debug("缓存快照跳过无法序列化的key[{}]：{}", key, e.getMessage());
+                    return;
+                }
+                if (bytes != null) {
+                    writer.write(key, bytes, ttlNanos >= SNAPSHOT_NO_EXPIRE ? 0L : Math.max(1L, TimeUnit.NANOSECONDS.toMillis(ttlNanos)));
+                }
+            });
+        });
+        CacheSnapshot current = snapshot;
+        if (current != null) {
+            current.copyTo(writer, regionFilter);
+        }
+    }
+
+    @Override
+    public void attachSnapshot(CacheSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * 从快照中加载key，已加载或已丢弃的key返回null；快照全部加载后解除挂载
+     */
+    private CacheEntry restore(Region region, String key) {
+        CacheSnapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        CacheSnapshot.Value value = current.take(key);
+        if (current.isEmpty()) {
+            snapshot = null;
+        }
+        if (value == null) {
+            return null;
+        }
+        Object obj;
+        try {
+            obj = snapshotSerializer().deserialize(value.getBytes());
+        } catch (RuntimeException e) {
+            log.debug("缓存快照中的key[{}]反序列化失败：{}", key, e.getMessage());
+            return null;
+        }
+        if (obj == null) {
+            return null;
+        }
+        CacheEntry entry = new CacheEntry(obj, value.getTtlNanos() > 0 ? value.getTtlNanos() : NO_EXPIRE, TimeUnit.NANOSECONDS);
+        CacheEntry existing = region.cache.asMap().putIfAbsent(key, entry);
+        return existing == null ? entry : existing;
+    }
+
+    private void discardSnapshot(String key) {
+        CacheSnapshot current = snapshot;
+        if (current != null) {
+            current.discard(key);
+        }
+    }
+
+    private RedisSerializer<Object> snapshotSerializer() {
+        RedisSerializer<Object> serializer = snapshotSerializer;
+        if (serializer == null) {
+            serializer = new CompactRedisSerializer(new CompactTypeRegistry(serializerProperties.getTypes(),
+                    serializerProperties.getAllowedPackages()), serializerProperties.getCompressThreshold());
+            snapshotSerializer = serializer;
+        }
+        return serializer;
+    }
+
+    /**
+     * 估算缓存值占用的内存大小（单位：字节），集合只抽样前若干个元素
+     */
+    private static int weigh(Object value, int depth) {
+        if (value == null) {
+            return 16;
+        }
+        if (value instanceof CharSequence) {
+            return 40 + 2 * ((CharSequence) value).length();
+        }
+        if (value instanceof byte[]) {
+            return 16 + ((byte[]) value).length;
+        }
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character || value instanceof Enum) {
+            return 16;
+        }
+        if (depth > 2) {
+            return SHALLOW_WEIGHT.get(value.getClass());
+        }
+        if (value instanceof Collection) {
+            return 32 + weighElements((Collection<?>) value, depth);
+        }
+        if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            return 32 + weighElements(map.keySet(), depth) + weighElements(map.values(), depth);
+        }
+        return SHALLOW_WEIGHT.get(value.getClass());
+    }
+
+    private static int weighElements(Collection<?> elements, int depth) {
+        int sampleSize = 32;
+        int size = elements.size();
+        if (size == 0) {
+            return 0;
         }
+        long sampled = 0;
+        int count = 0;
+        for (Object element : elements) {
+            sampled += 8 + weigh(element, depth + 1);
+            if (++count >= sampleSize) {
+                break;
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, sampled * size / count);
     }
 
-    public static void main(String[] args) {
-        CacheCaffeineTemplateImpl caffeineRepository = new CacheCaffeineTemplateImpl();
-        Long data = caffeineRepository.increment("hahha", 10);
-        System.out.println(data);
-        Long datav = caffeineRepository.get("hahha");
-        System.out.println(datav);
+    private static final class CacheEntry {
+
+        private final Object value;
+        private final AtomicLong counter;
+        private final long expireNanos;
+        private final int weight;
+
+        CacheEntry(Object value, Long expireTime) {
+            this(value, expireTime == null ? NO_EXPIRE : expireTime, expireTime == null ? TimeUnit.NANOSECONDS : TimeUnit.SECONDS);
+        }
+
+        CacheEntry(Object value, long duration, TimeUnit unit) {
+            this.value = value;
+            this.counter = null;
+            this.expireNanos = unit.toNanos(duration);
+            this.weight = 64 + weigh(value, 0);
+        }
+
+        private CacheEntry(long count, long expireNanos) {
+            this.value = null;
+            this.counter = new AtomicLong(count);
+            this.expireNanos = expireNanos;
+            this.weight = 96;
+        }
+
+        static CacheEntry counter(long count, long expireNanos) {
+            return new CacheEntry(count, expireNanos);
+        }
 
+        Object get() {
+            if (counter != null) {
+                return counter.get();
+            }
+            return NullValue.isNull(value) ? null : value;
+        }
     }
 
+    private final class Region {
+
+        private final Cache<String, CacheEntry> cache;
+        private final Policy.Eviction<String, CacheEntry> eviction;
+        private final CacheRegionStats stats;
+
+        private long lastHits;
+        private long lastMisses;
+        private double lastHitRatio = -1.0D;
+        private long lastResize;
+
+        private boolean full;
+        private double gain;
+        private long target;
+
+        Region(Cache<String, CacheEntry> cache, CacheRegionStats stats) {
+            this.cache = cache;
+            this.eviction = cache.policy().eviction().orElseThrow(IllegalStateException::new);
+            this.stats = stats;
+        }
+
+        long maximum() {
+            return eviction.getMaximum();
+        }
+
+        long weightedSize() {
+            return eviction.weightedSize().orElse(0L);
+        }
+
+        /**
+         * 计算上一个统计窗口的边际收益（每字节容量带来的命中数）
+         */
+        void evaluate() {
+            long hits = stats.getHits();
+            long misses = stats.getMisses();
+            long windowHits = hits - lastHits;
+            long windowMisses = misses - lastMisses;
+            long windowRequests = windowHits + windowMisses;
+            lastHits = hits;
+            lastMisses = misses;
+            full = weightedSize() >= maximum() * FULL_RATIO;
+            if (windowRequests < MIN_WINDOW_REQUESTS) {
+                gain = 0.0D;
+                lastHitRatio = -1.0D;
+                return;
+            }
+            double hitRatio = (double) windowHits / windowRequests;
+            if (lastResize != 0 && lastHitRatio >= 0) {
+                // 扩容后命中率上升或缩容后命中率下降的幅度即为实测收益
+                gain = Math.max(0.0D, (hitRatio - lastHitRatio) * windowRequests / lastResize);
+            } else {
+                gain = full ? (double) windowMisses / Math.max(1L, maximum()) : 0.0D;
+            }
+            lastHitRatio = hitRatio;
+        }
+
+        void resize(long maximum) {
+            long current = maximum();
+            lastResize = maximum - current;
+            if (lastResize != 0) {
+                eviction.setMaximum(maximum);
+            }
+            stats.recordWeight(maximum, weightedSize());
+        }
+    }
 }
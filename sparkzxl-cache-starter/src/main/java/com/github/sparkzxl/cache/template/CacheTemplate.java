@@ -1,6 +1,14 @@
 package com.github.sparkzxl.cache.template;
 
+import com.github.sparkzxl.cache.stats.CacheRegionStats;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * description: 缓存提供接口
@@ -60,6 +68,54 @@ public interface CacheTemplate {
      **/
     <T, M> T get(String key, Function<M, T> function, M funcParam, Long expireTime);
 
+    /**
+     * 批量查询缓存
+     *
+     * @param keys 缓存键集合 不可为空
+     * @return Map<String, T> 命中的缓存键值，按keys顺序排列，未命中的key不包含在内
+     */
+    <T> Map<String, T> multiGet(Collection<String> keys);
+
+    /**
+     * 批量查询缓存，未命中的key统一交由function批量加载并回写缓存
+     *
+     * @param keys     缓存键集合 不可为空
+     * @param function 未命中时的批量加载函数，入参为未命中的key集合 可为空
+     * @return Map<String, T>
+     */
+    default <T> Map<String, T> multiGet(Collection<String> keys, Function<Collection<String>, Map<String, T>> function) {
+        return multiGet(keys, function, null);
+    }
+
+    /**
+     * 批量查询缓存，未命中的key统一交由function批量加载并回写缓存
+     *
+     * @param keys       缓存键集合 不可为空
+     * @param function   未命中时的批量加载函数，入参为未命中的key集合 可为空
+     * @param expireTime 过期时间（单位：秒） 可为空
+     * @return Map<String, T> 按keys顺序排列，加载后仍不存在的key不包含在内
+     */
+    default <T> Map<String, T> multiGet(Collection<String> keys, Function<Collection<String>, Map<String, T>> function, Long expireTime) {
+        Map<String, T> cached = multiGet(keys);
+        if (function == null || cached.size() == keys.size()) {
+            return cached;
+        }
+        List<String> missKeys = keys.stream().filter(key -> !cached.containsKey(key)).collect(Collectors.toList());
+        Map<String, T> loaded = function.apply(missKeys);
+        if (loaded == null || loaded.isEmpty()) {
+            return cached;
+        }
+        multiSet(loaded, expireTime);
+        Map<String, T> result = new LinkedHashMap<>(keys.size());
+        for (String key : keys) {
+            T value = cached.containsKey(key) ? cached.get(key) : loaded.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
     /**
      * 设置缓存键值
      *
@@ -79,6 +135,41 @@ public interface CacheTemplate {
      **/
     void set(String key, Object value, Long expireTime);
 
+    /**
+     * 缓存键不存在时设置缓存键值，一次原子操作
+     *
+     * @param key        缓存键 不可为空
+     * @param value      缓存值 不可为空
+     * @param expireTime 过期时间（单位：秒） 可为空
+     * @return boolean 是否设置成功
+     */
+    boolean setIfAbsent(String key, Object value, Long expireTime);
+
+    /**
+     * 查询并移除缓存，一次原子操作，并发调用时只有一个调用方取得缓存值
+     *
+     * @param key 缓存键 不可为空
+     * @return T 不存在时为null
+     */
+    <T> T getAndRemove(String key);
+
+    /**
+     * 批量设置缓存键值
+     *
+     * @param map 缓存键值 不可为空，值为空的键值将被忽略
+     * @return void
+     */
+    void multiSet(Map<String, ?> map);
+
+    /**
+     * 批量设置缓存键值
+     *
+     * @param map        缓存键值 不可为空，值为空的键值将被忽略
+     * @param expireTime 过期时间（单位：秒） 可为空
+     * @return void
+     */
+    void multiSet(Map<String, ?> map, Long expireTime);
+
     /**
      * 自增长
      *
@@ -125,6 +216,14 @@ public interface CacheTemplate {
      */
     Long remove(String... keys);
 
+    /**
+     * 批量移除缓存
+     *
+     * @param keys 缓存键集合 不可为空
+     * @return Long
+     */
+    Long multiRemove(Collection<String> keys);
+
     /**
      * 是否存在缓存
      *
@@ -140,5 +239,20 @@ public interface CacheTemplate {
      **/
     void flushDb();
 
+    /**
+     * 整体失效缓存区域（key第一个冒号之前的部分），只影响该区域的key
+     *
+     * @param region 缓存区域 不可为空
+     */
+    void invalidateRegion(String region);
+
+    /**
+     * 各缓存区域的命中、加载及淘汰统计
+     *
+     * @return Map<String, CacheRegionStats> key为缓存区域
+     */
+    default Map<String, CacheRegionStats> getRegionStats() {
+        return Collections.emptyMap();
+    }
 
 }
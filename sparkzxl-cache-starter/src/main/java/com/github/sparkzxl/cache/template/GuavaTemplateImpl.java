@@ -1,21 +1,30 @@
 package com.github.sparkzxl.cache.template;
 
+import com.github.sparkzxl.cache.stats.CacheRegionStats;
+import com.github.sparkzxl.cache.stats.CacheStatsRecorder;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import com.google.common.base.Throwables;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
-import java.util.function.Supplier;
 
 /**
  * description：Guava Cache
@@ -34,15 +43,10 @@ public class GuavaTemplateImpl implements CacheTemplate {
 
     private static final Lock LOCK = new ReentrantLock();
 
+    private static final CacheStatsRecorder STATS_RECORDER = new CacheStatsRecorder();
+
     static {
-        Cache<String, Object> cacheContainer = CacheBuilder.newBuilder()
-                .maximumSize(CACHE_MAXIMUM_SIZE)
-                //最后一次写入后的一段时间移出
-                .expireAfterWrite(CACHE_MINUTE, TimeUnit.SECONDS)
-                //.expireAfterAccess(CACHE_MINUTE, TimeUnit.MILLISECONDS) //最后一次访问后的一段时间移出
-                .recordStats()//开启统计功能
-                .build();
-        CACHE_CONCURRENT_MAP.put(String.valueOf(CACHE_MINUTE), cacheContainer);
+        CACHE_CONCURRENT_MAP.put(String.valueOf(CACHE_MINUTE), newCacheContainer(CACHE_MINUTE));
     }
 
     /**
@@ -107,17 +111,65 @@ public class GuavaTemplateImpl implements CacheTemplate {
         expireTime = getExpireTime(expireTime);
         Cache<String, Object> cacheContainer = getCacheContainer(expireTime);
         try {
-            if (function == null) {
-                obj = (T) cacheContainer.getIfPresent(key);
+            CacheRegionStats regionStats = STATS_RECORDER.region(key);
+            obj = (T) fromStoreValue(cacheContainer.getIfPresent(key));
+            if (obj != null) {
+                regionStats.recordHits(1L);
             } else {
-                obj = (T) cacheContainer.get(key, () -> function.apply(funcParam));
+                regionStats.recordMisses(1L);
+                if (function != null) {
+                    obj = (T) cacheContainer.get(key, () -> {
+                        long start = System.nanoTime();
+                        T value = function.apply(funcParam);
+                        regionStats.recordLoad(System.nanoTime() - start);
+                        return value;
+                    });
+                }
             }
+        } catch (UncheckedExecutionException | ExecutionError e) {
+            // 加载函数抛出的异常原样抛给调用方
+            Throwables.throwIfUnchecked(e.getCause());
+            throw e;
         } catch (Exception e) {
             log.error(e.getMessage());
         }
         return obj;
     }
 
+    /**
+     * 批量查询缓存
+     *
+     * @param keys 缓存键集合 不可为空
+     **/
+    @Override
+    public <T> Map<String, T> multiGet(Collection<String> keys) {
+        Map<String, T> result = Maps.newLinkedHashMap();
+        if (CollectionUtils.isEmpty(keys)) {
+            return result;
+        }
+        // 不同过期时间的缓存值位于不同容器，逐个容器查询尚未命中的key
+        Map<String, Object> present = Maps.newHashMapWithExpectedSize(keys.size());
+        Set<String> remaining = Sets.newHashSet(keys);
+        for (Cache<String, Object> cacheContainer : CACHE_CONCURRENT_MAP.values()) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            Map<String, Object> values = cacheContainer.getAllPresent(remaining);
+            present.putAll(values);
+            remaining.removeAll(values.keySet());
+        }
+        for (String key : keys) {
+            Object value = fromStoreValue(present.get(key));
+            if (value != null) {
+                STATS_RECORDER.recordHit(key);
+                result.put(key, (T) value);
+            } else {
+                STATS_RECORDER.recordMiss(key);
+            }
+        }
+        return result;
+    }
+
     /**
      * 设置缓存键值  直接向缓存中插入值，这会直接覆盖掉给定键之前映射的值
      *
@@ -149,72 +201,109 @@ public class GuavaTemplateImpl implements CacheTemplate {
         cacheContainer.put(key, obj);
     }
 
+    /**
+     * 缓存键不存在时设置缓存键值
+     *
+     * @param key        缓存键 不可为空
+     * @param value      缓存值 不可为空
+     * @param expireTime 过期时间（单位：秒） 可为空
+     **/
     @Override
-    public Long increment(String key) {
-        Long expireTime = getExpireTime(CACHE_MINUTE);
-        Cache<String, Object> cacheContainer = getCacheContainer(expireTime);
-        Supplier<LongAdder> function = LongAdder::new;
-        LongAdder longAdder;
-        try {
-            longAdder = (LongAdder) cacheContainer.get(key, function::get);
-            longAdder.increment();
-            cacheContainer.put(key, longAdder);
-            return longAdder.longValue();
-        } catch (ExecutionException e) {
-            e.printStackTrace();
+    public boolean setIfAbsent(String key, Object value, Long expireTime) {
+        if (StringUtils.isEmpty(key) || value == null) {
+            return false;
         }
-        return 0L;
+        Cache<String, Object> cacheContainer = getCacheContainer(getExpireTime(expireTime));
+        return cacheContainer.asMap().putIfAbsent(key, value) == null;
     }
 
+    /**
+     * 查询并移除缓存
+     *
+     * @param key 缓存键 不可为空
+     **/
     @Override
-    public Long increment(String key, long delta) {
-        Long expireTime = getExpireTime(CACHE_MINUTE);
-        Cache<String, Object> cacheContainer = getCacheContainer(expireTime);
-        Supplier<LongAdder> function = LongAdder::new;
-        LongAdder longAdder;
-        try {
-            longAdder = (LongAdder) cacheContainer.get(key, function::get);
-            longAdder.add(delta);
-            cacheContainer.put(key, longAdder);
-            return longAdder.longValue();
-        } catch (ExecutionException e) {
-            e.printStackTrace();
+    public <T> T getAndRemove(String key) {
+        if (StringUtils.isEmpty(key)) {
+            return null;
         }
-        return 0L;
+        // 不同过期时间的缓存值位于不同容器，逐个容器原子移除
+        for (Cache<String, Object> cacheContainer : CACHE_CONCURRENT_MAP.values()) {
+            Object value = cacheContainer.asMap().remove(key);
+            if (value != null) {
+                return (T) fromStoreValue(value);
+            }
+        }
+        return null;
     }
 
+    /**
+     * 批量设置缓存键值
+     *
+     * @param map 缓存键值 不可为空
+     **/
     @Override
-    public Long decrement(String key, long delta) {
-        Long expireTime = getExpireTime(CACHE_MINUTE);
-        Cache<String, Object> cacheContainer = getCacheContainer(expireTime);
-        Supplier<LongAdder> function = LongAdder::new;
-        LongAdder longAdder;
-        try {
-            longAdder = (LongAdder) cacheContainer.get(key, function::get);
-            longAdder.add(-delta);
-            cacheContainer.put(key, longAdder);
-            return longAdder.longValue();
-        } catch (ExecutionException e) {
-            e.printStackTrace();
+    public void multiSet(Map<String, ?> map) {
+        multiSet(map, CACHE_MINUTE);
+    }
+
+    /**
+     * 批量设置缓存键值
+     *
+     * @param map        缓存键值 不可为空
+     * @param expireTime 过期时间（单位：秒） 可为空
+     **/
+    @Override
+    public void multiSet(Map<String, ?> map, Long expireTime) {
+        if (CollectionUtils.isEmpty(map)) {
+            return;
         }
-        return 0L;
+        Map<String, Object> values = Maps.newHashMapWithExpectedSize(map.size());
+        map.forEach((key, value) -> {
+            if (!StringUtils.isEmpty(key) && value != null) {
+                values.put(key, value);
+            }
+        });
+        Cache<String, Object> cacheContainer = getCacheContainer(getExpireTime(expireTime));
+        cacheContainer.putAll(values);
+    }
+
+    @Override
+    public Long increment(String key) {
+        return add(key, 1L);
+    }
+
+    @Override
+    public Long increment(String key, long delta) {
+        return add(key, delta);
+    }
+
+    @Override
+    public Long decrement(String key, long delta) {
+        return add(key, -delta);
     }
 
     @Override
     public Long decrement(String key) {
-        Long expireTime = getExpireTime(CACHE_MINUTE);
-        Cache<String, Object> cacheContainer = getCacheContainer(expireTime);
-        Supplier<LongAdder> function = LongAdder::new;
-        LongAdder longAdder;
-        try {
-            longAdder = (LongAdder) cacheContainer.get(key, function::get);
-            longAdder.decrement();
-            cacheContainer.put(key, longAdder);
-            return longAdder.longValue();
-        } catch (ExecutionException e) {
-            e.printStackTrace();
+        return add(key, -1L);
+    }
+
+    /**
+     * 计数器累加，同一个key始终累加到同一个AtomicLong，返回本次累加后的值；key上已有数值类型的缓存值时以其为初始值
+     */
+    private Long add(String key, long delta) {
+        Cache<String, Object> cacheContainer = getCacheContainer(getExpireTime(CACHE_MINUTE));
+        Object current = cacheContainer.getIfPresent(key);
+        if (current instanceof AtomicLong) {
+            return ((AtomicLong) current).addAndGet(delta);
         }
-        return 0L;
+        AtomicLong counter = (AtomicLong) cacheContainer.asMap().compute(key, (k, value) -> {
+            if (value instanceof AtomicLong) {
+                return value;
+            }
+            return new AtomicLong(value instanceof Number ? ((Number) value).longValue() : 0L);
+        });
+        return counter.addAndGet(delta);
     }
 
     @Override
@@ -223,12 +312,19 @@ public class GuavaTemplateImpl implements CacheTemplate {
         if (Iterables.isEmpty(iterable)) {
             return 0L;
         }
-        long expireTime = getExpireTime(CACHE_MINUTE);
-        Cache<String, Object> cacheContainer = getCacheContainer(expireTime);
-        cacheContainer.invalidateAll(iterable);
+        CACHE_CONCURRENT_MAP.values().forEach(cacheContainer -> cacheContainer.invalidateAll(iterable));
         return (long) keys.length;
     }
 
+    @Override
+    public Long multiRemove(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return 0L;
+        }
+        CACHE_CONCURRENT_MAP.values().forEach(cacheContainer -> cacheContainer.invalidateAll(keys));
+        return (long) keys.size();
+    }
+
     @Override
     public boolean exists(String key) {
         boolean exists = false;
@@ -249,6 +345,19 @@ public class GuavaTemplateImpl implements CacheTemplate {
         cacheContainer.invalidateAll();
     }
 
+    @Override
+    public void invalidateRegion(String region) {
+        CACHE_CONCURRENT_MAP.values().forEach(cacheContainer -> cacheContainer.asMap().keySet()
+                .removeIf(key -> region.equals(KeyUtils.getRegion(key))));
+    }
+
+    /**
+     * 计数器以AtomicLong保存，读取时返回当前计数
+     */
+    private static Object fromStoreValue(Object value) {
+        return value instanceof AtomicLong ? ((AtomicLong) value).get() : value;
+    }
+
     private Cache<String, Object> getCacheContainer(Long expireTime) {
         Cache<String, Object> cacheContainer;
         if (expireTime == null) {
@@ -261,20 +370,33 @@ public class GuavaTemplateImpl implements CacheTemplate {
         }
         LOCK.lock();
         try {
-            cacheContainer = CacheBuilder.newBuilder()
-                    .maximumSize(CACHE_MAXIMUM_SIZE)
-                    //最后一次写入后的一段时间移出
-                    .expireAfterWrite(expireTime, TimeUnit.SECONDS)
-                    //.expireAfterAccess(AppConst.CACHE_MINUTE, TimeUnit.MILLISECONDS) //最后一次访问后的一段时间移出
-                    .recordStats()//开启统计功能
-                    .build();
-            CACHE_CONCURRENT_MAP.put(mapKey, cacheContainer);
+            cacheContainer = CACHE_CONCURRENT_MAP.computeIfAbsent(mapKey, k -> newCacheContainer(expireTime));
         } finally {
             LOCK.unlock();
         }
         return cacheContainer;
     }
 
+    private static Cache<String, Object> newCacheContainer(long expireTime) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(CACHE_MAXIMUM_SIZE)
+                //最后一次写入后的一段时间移出
+                .expireAfterWrite(expireTime, TimeUnit.SECONDS)
+                //.expireAfterAccess(AppConst.CACHE_MINUTE, TimeUnit.MILLISECONDS) //最后一次访问后的一段时间移出
+                .removalListener((RemovalListener<String, Object>) notification -> {
+                    if (notification.wasEvicted() && notification.getKey() != null) {
+                        STATS_RECORDER.recordEviction(notification.getKey());
+                    }
+                })
+                .recordStats()//开启统计功能
+                .build();
+    }
+
+    @Override
+    public Map<String, CacheRegionStats> getRegionStats() {
+        return STATS_RECORDER.getRegions();
+    }
+
     /**
      * 获取过期时间 单位：秒
      *
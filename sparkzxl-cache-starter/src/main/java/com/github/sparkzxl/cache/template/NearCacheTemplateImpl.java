@@ -0,0 +1,311 @@
+package com.github.sparkzxl.cache.template;
+
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.stats.CacheRegionStats;
+import com.github.sparkzxl.cache.stats.CacheStatsRecorder;
+import com.github.sparkzxl.cache.support.CacheInvalidationMessage;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * description: 二级缓存实现，Caffeine本地缓存作为一级缓存，redis作为二级缓存，
+ * 通过redis发布订阅广播失效消息，保证set/remove后其他节点的本地缓存同步失效
+ *
+ * @author zhouxinlei
+ * @date 2020-10-10 10:48:52
+ */
+@Slf4j
+@SuppressWarnings("unchecked")
+public class NearCacheTemplateImpl implements CacheTemplate, MessageListener {
+
+    private static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
+
+    private final String nodeId = IdUtil.fastSimpleUUID();
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCacheTemplateImpl redisCacheTemplate;
+    private final byte[] topic;
+    private final Cache<String, Object> localCache;
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+
+    public NearCacheTemplateImpl(RedisTemplate<String, Object> redisTemplate, RedisCacheTemplateImpl redisCacheTemplate,
+                                 CacheProperties.NearCache nearCache) {
+        this.redisTemplate = redisTemplate;
+        this.redisCacheTemplate = redisCacheTemplate;
+        this.topic = nearCache.getTopic().getBytes(DEFAULT_CHARSET);
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(nearCache.getMaximumSize())
+                .removalListener((String key, Object value, RemovalCause cause) -> {
+                    if (key != null && cause.wasEvicted()) {
+                        statsRecorder.recordEviction(key);
+                    }
+                })
+                .expireAfter(new Expiry<String, Object>() {
+                    @Override
+                    public long expireAfterCreate(String key, Object value, long currentTime) {
+                        return TimeUnit.SECONDS.toNanos(nearCache.getExpireTime(key));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Object value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Object value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public <T> T get(String key) {
+        return get(key, null, null, null);
+    }
+
+    @Override
+    public <T> T get(String key, Function<String, T> function) {
+        return get(key, function, key, null);
+    }
+
+    @Override
+    public <T, M> T get(String key, Function<M, T> function, M funcParam) {
+        return get(key, function, funcParam, null);
+    }
+
+    @Override
+    public <T> T get(String key, Function<String, T> function, Long expireTime) {
+        return get(key, function, key, expireTime);
+    }
+
+    @Override
+    public <T, M> T get(String key, Function<M, T> function, M funcParam, Long expireTime) {
+        if (StringUtils.isEmpty(key)) {
+            return null;
+        }
+        Object value = localCache.getIfPresent(key);
+        CacheRegionStats regionStats = statsRecorder.region(key);
+        if (value != null) {
+            regionStats.recordHits(1L);
+            return (T) value;
+        }
+        regionStats.recordMisses(1L);
+        long start = System.nanoTime();
+        T obj = redisCacheTemplate.get(key, function, funcParam, expireTime);
+        regionStats.recordLoad(System.nanoTime() - start);
+        if (obj != null) {
+            localCache.put(key, obj);
+        }
+        return obj;
+    }
+
+    @Override
+    public <T> Map<String, T> multiGet(Collection<String> keys) {
+        Map<String, T> result = Maps.newLinkedHashMap();
+        if (CollectionUtils.isEmpty(keys)) {
+            return result;
+        }
+        Map<String, Object> present = localCache.getAllPresent(keys);
+        List<String> missKeys = keys.stream().filter(key -> !present.containsKey(key)).collect(Collectors.toList());
+        present.keySet().forEach(statsRecorder::recordHit);
+        missKeys.forEach(statsRecorder::recordMiss);
+        Map<String, T> remote = missKeys.isEmpty() ? Collections.emptyMap() : redisCacheTemplate.multiGet(missKeys);
+        localCache.putAll(remote);
+        for (String key : keys) {
+            Object value = present.containsKey(key) ? present.get(key) : remote.get(key);
+            if (value != null) {
+                result.put(key, (T) value);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        set(key, value, null);
+    }
+
+    @Override
+    public void set(String key, Object value, Long expireTime) {
+        redisCacheTemplate.set(key, value, expireTime);
+        localCache.put(key, value);
+        publish(new CacheInvalidationMessage(nodeId, Collections.singletonList(key), false, null));
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, Object value, Long expireTime) {
+        if (!redisCacheTemplate.setIfAbsent(key, value, expireTime)) {
+            return false;
+        }
+        localCache.invalidate(key);
+        publish(new CacheInvalidationMessage(nodeId, Collections.singletonList(key), false, null));
+        return true;
+    }
+
+    @Override
+    public <T> T getAndRemove(String key) {
+        T value = redisCacheTemplate.getAndRemove(key);
+        localCache.invalidate(key);
+        publish(new CacheInvalidationMessage(nodeId, Collections.singletonList(key), false, null));
+        return value;
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> map) {
+        multiSet(map, null);
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> map, Long expireTime) {
+        if (CollectionUtils.isEmpty(map)) {
+            return;
+        }
+        redisCacheTemplate.multiSet(map, expireTime);
+        List<String> keys = Lists.newArrayListWithCapacity(map.size());
+        map.forEach((key, value) -> {
+            if (value != null) {
+                localCache.put(key, value);
+                keys.add(key);
+            }
+        });
+        publish(new CacheInvalidationMessage(nodeId, keys, false, null));
+    }
+
+    /**
+     * 计数器以redis为准，不进入本地缓存；INCR/DECR之后清除本节点并广播清除其他节点可能残留的旧值
+     */
+    @Override
+    public Long increment(String key) {
+        return counted(key, redisCacheTemplate.increment(key));
+    }
+
+    @Override
+    public Long increment(String key, long delta) {
+        return counted(key, redisCacheTemplate.increment(key, delta));
+    }
+
+    @Override
+    public Long decrement(String key) {
+        return counted(key, redisCacheTemplate.decrement(key));
+    }
+
+    @Override
+    public Long decrement(String key, long delta) {
+        return counted(key, redisCacheTemplate.decrement(key, delta));
+    }
+
+    private Long counted(String key, Long value) {
+        localCache.invalidate(key);
+        publish(new CacheInvalidationMessage(nodeId, Collections.singletonList(key), false, null));
+        return value;
+    }
+
+    @Override
+    public Long remove(String... keys) {
+        List<String> keyList = Lists.newArrayList(keys);
+        Long count = redisCacheTemplate.remove(keys);
+        localCache.invalidateAll(keyList);
+        publish(new CacheInvalidationMessage(nodeId, keyList, false, null));
+        return count;
+    }
+
+    @Override
+    public Long multiRemove(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return 0L;
+        }
+        Long count = redisCacheTemplate.multiRemove(keys);
+        localCache.invalidateAll(keys);
+        publish(new CacheInvalidationMessage(nodeId, Lists.newArrayList(keys), false, null));
+        return count;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return localCache.getIfPresent(key) != null || redisCacheTemplate.exists(key);
+    }
+
+    /**
+     * 本地缓存各区域的统计，未命中后的加载耗时包含读取redis的耗时
+     */
+    @Override
+    public Map<String, CacheRegionStats> getRegionStats() {
+        return statsRecorder.getRegions();
+    }
+
+    @Override
+    public void flushDb() {
+        redisCacheTemplate.flushDb();
+        localCache.invalidateAll();
+        publish(new CacheInvalidationMessage(nodeId, Collections.emptyList(), true, null));
+    }
+
+    @Override
+    public void invalidateRegion(String region) {
+        redisCacheTemplate.invalidateRegion(region);
+        invalidateLocalRegion(region);
+        publish(new CacheInvalidationMessage(nodeId, Collections.emptyList(), false, Collections.singletonList(region)));
+    }
+
+    private void invalidateLocalRegion(String region) {
+        localCache.asMap().keySet().removeIf(key -> region.equals(KeyUtils.getRegion(key)));
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidationMessage invalidationMessage;
+        try {
+            invalidationMessage = JSON.parseObject(new String(message.getBody(), DEFAULT_CHARSET), CacheInvalidationMessage.class);
+        } catch (Exception e) {
+            log.error("解析缓存失效消息失败：{}", e.getMessage());
+            return;
+        }
+        if (invalidationMessage == null || nodeId.equals(invalidationMessage.getNodeId())) {
+            return;
+        }
+        if (invalidationMessage.isFlush()) {
+            localCache.invalidateAll();
+            redisCacheTemplate.evictLocalAll();
+        } else if (invalidationMessage.getKeys() != null) {
+            localCache.invalidateAll(invalidationMessage.getKeys());
+            redisCacheTemplate.evictLocal(invalidationMessage.getKeys());
+        }
+        if (invalidationMessage.getRegions() != null) {
+            invalidationMessage.getRegions().forEach(this::invalidateLocalRegion);
+            redisCacheTemplate.evictLocalAll();
+        }
+    }
+
+    private void publish(CacheInvalidationMessage invalidationMessage) {
+        byte[] body = JSON.toJSONString(invalidationMessage).getBytes(DEFAULT_CHARSET);
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(topic, body));
+        } catch (Exception e) {
+            log.error("广播缓存失效消息失败：{}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.github.sparkzxl.cache.template;
+
+import com.github.sparkzxl.cache.offheap.OffHeapSlabStore;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.serializer.CompactRedisSerializer;
+import com.github.sparkzxl.cache.serializer.CompactTypeRegistry;
+import com.github.sparkzxl.cache.snapshot.CacheSnapshot;
+import com.github.sparkzxl.cache.snapshot.CacheSnapshotWriter;
+import com.github.sparkzxl.cache.snapshot.SnapshotSupport;
+import com.github.sparkzxl.cache.stats.CacheRegionStats;
+import com.github.sparkzxl.cache.stats.CacheStatsRecorder;
+import com.github.sparkzxl.cache.support.NullValue;
+import com.github.sparkzxl.cache.support.SingleFlightLoader;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * description: 堆外本地缓存实现，适合权限树、字典、渲染结果等大对象，缓存值序列化后存放在直接内存中，
+ * 不占用堆空间也不参与GC扫描，每次读取时反序列化；内存预算独立于-Xmx配置。
+ * 支持快照，快照中直接保存存储内的序列化结果，重启后未命中的key先从快照中加载
+ *
+ * @author zhouxinlei
+ * @date 2020-10-18 11:36:08
+ */
+@Slf4j
+@SuppressWarnings("unchecked")
+public class OffHeapCacheTemplateImpl implements CacheTemplate, SnapshotSupport, DisposableBean {
+
+    /**
+     * 空值占位的序列化结果
+     */
+    private static final byte[] NULL_BYTES = new byte[0];
+
+    /**
+     * 保留原过期时间
+     */
+    private static final long KEEP_EXPIRE = -1L;
+
+    private final OffHeapSlabStore store;
+    private final RedisSerializer<Object> serializer;
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+    private final SingleFlightLoader singleFlightLoader = new SingleFlightLoader();
+    private final CacheProperties.NullValueCache nullValueProperties;
+    private volatile CacheSnapshot snapshot;
+
+    public OffHeapCacheTemplateImpl(CacheProperties cacheProperties) {
+        this(cacheProperties, new CompactRedisSerializer(new CompactTypeRegistry(cacheProperties.getSerializer().getTypes(),
+                cacheProperties.getSerializer().getAllowedPackages()), cacheProperties.getSerializer().getCompressThreshold()));
+    }
+
+    public OffHeapCacheTemplateImpl(CacheProperties cacheProperties, RedisSerializer<Object> serializer) {
+        this.store = new OffHeapSlabStore(cacheProperties.getOffHeap(), statsRecorder::recordEviction);
+        this.serializer = serializer;
+        this.nullValueProperties = cacheProperties.getNullValue();
+    }
+
+    private byte[] serialize(Object value) {
+        return NullValue.isNull(value) ? NULL_BYTES : serializer.serialize(value);
+    }
+
+    private Object deserialize(byte[] bytes) {
+        return bytes.length == 0 ? NullValue.INSTANCE : serializer.deserialize(bytes);
+    }
+
+    private static <T> T fromStoreValue(Object value) {
+        return NullValue.isNull(value) ? null : (T) value;
+    }
+
+    private static long ttlNanos(Long expireTime) {
+        return expireTime == null || expireTime <= 0 ? 0L : TimeUnit.SECONDS.toNanos(expireTime);
+    }
+
+    private void put(String key, Object value, Long expireTime) {
+        byte[] bytes = serialize(value);
+        if (!store.put(key, bytes, ttlNanos(expireTime)) && log.isDebugEnabled()) {
+            log.debug("堆外缓存未写入key[{}]，序列化后 {} 字节，单个值上限 {} 字节", key, bytes.length, store.getMaximumValueSize());
+        }
+        discardSnapshot(key);
+    }
+
+    /**
+     * 读取缓存值，未命中时从快照中加载
+     */
+    private byte[] read(String key) {
+        byte[] bytes = store.get(key);
+        return bytes == null ? restore(key) : bytes;
+    }
+
+    /**
+     * 从快照中加载key写入存储，已加载或已丢弃的key返回null；快照全部加载后解除挂载
+     */
+    private byte[] restore(String key) {
+        CacheSnapshot current = snapshot;
+        if (current == null) {
+            return null;
+        }
+        CacheSnapshot.Value value = current.take(key);
+        if (current.isEmpty()) {
+            snapshot = null;
+        }
+        if (value == null) {
+            return null;
+        }
+        store.putIfAbsent(key, value.getBytes(), value.getTtlNanos());
+        return store.get(key);
+    }
+
+    private void discardSnapshot(String key) {
+        CacheSnapshot current = snapshot;
+        if (current != null) {
+            current.discard(key);
+        }
+    }
+
+    @Override
+    public void set(String key, Object value) {
+        set(key, value, null);
+    }
+
+    @Override
+    public void set(String key, Object value, Long expireTime) {
+        if (StringUtils.isEmpty(key) || value == null) {
+            return;
+        }
+        put(key, value, expireTime);
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, Object value, Long expireTime) {
+        if (StringUtils.isEmpty(key) || value == null) {
+            return false;
+        }
+        restore(key);
+        return store.putIfAbsent(key, serialize(value), ttlNanos(expireTime));
+    }
+
+    @Override
+    public <T> T getAndRemove(String key) {
+        if (StringUtils.isEmpty(key)) {
+            return null;
+        }
+        restore(key);
+        byte[] bytes = store.remove(key);
+        return bytes == null ? null : fromStoreValue(deserialize(bytes));
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> map) {
+        multiSet(map, null);
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> map, Long expireTime) {
+        if (CollectionUtils.isEmpty(map)) {
+            return;
+        }
+        map.forEach((key, value) -> {
+            if (!StringUtils.isEmpty(key) && value != null) {
+                put(key, value, expireTime);
+            }
+        });
+    }
+
+    @Override
+    public Long increment(String key) {
+        return add(key, 1L);
+    }
+
+    @Override
+    public Long increment(String key, long delta) {
+        return add(key, delta);
+    }
+
+    @Override
+    public Long decrement(String key) {
+        return add(key, -1L);
+    }
+
+    @Override
+    public Long decrement(String key, long delta) {
+        return add(key, -delta);
+    }
+
+    /**
+     * 计数器在段锁内读取、累加并写回，key上已有数值类型的缓存值时以其为初始值并保留原过期时间
+     */
+    private Long add(String key, long delta) {
+        long[] result = new long[1];
+        restore(key);
+        store.compute(key, current -> {
+            Object value = current == null ? null : deserialize(current);
+            long initial = value instanceof Number ? ((Number) value).longValue() : 0L;
+            result[0] = initial + delta;
+            return serializer.serialize(result[0]);
+        }, KEEP_EXPIRE);
+        return result[0];
+    }
+
+    @Override
+    public Long remove(String... keys) {
+        for (String key : keys) {
+            store.remove(key);
+            discardSnapshot(key);
+        }
+        return (long) keys.length;
+    }
+
+    @Override
+    public Long multiRemove(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return 0L;
+        }
+        keys.forEach(key -> {
+            store.remove(key);
+            discardSnapshot(key);
+        });
+        return (long) keys.size();
+    }
+
+    @Override
+    public <T> Map<String, T> multiGet(Collection<String> keys) {
+        Map<String, T> result = Maps.newLinkedHashMap();
+        if (CollectionUtils.isEmpty(keys)) {
+            return result;
+        }
+        for (String key : keys) {
+            byte[] bytes = read(key);
+            CacheRegionStats stats = statsRecorder.region(key);
+            if (bytes == null) {
+                stats.recordMisses(1L);
+                continue;
+            }
+            stats.recordHits(1L);
+            if (bytes.length > 0) {
+                result.put(key, (T) deserialize(bytes));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public <T> T get(String key) {
+        return get(key, null, null, null);
+    }
+
+    @Override
+    public <T> T get(String key, Function<String, T> function) {
+        return get(key, function, key, null);
+    }
+
+    @Override
+    public <T, M> T get(String key, Function<M, T> function, M funcParam) {
+        return get(key, function, funcParam, null);
+    }
+
+    @Override
+    public <T> T get(String key, Function<String, T> function, Long expireTime) {
+        return get(key, function, key, expireTime);
+    }
+
+    @Override
+    public <T, M> T get(String key, Function<M, T> function, M funcParam, Long expireTime) {
+        if (StringUtils.isEmpty(key)) {
+            return null;
+        }
+        CacheRegionStats stats = statsRecorder.region(key);
+        byte[] bytes = read(key);
+        if (bytes != null) {
+            stats.recordHits(1L);
+            return fromStoreValue(deserialize(bytes));
+        }
+        stats.recordMisses(1L);
+        if (function == null) {
+            return null;
+        }
+        // 同一个key并发未命中时只有一个线程执行加载函数
+        return singleFlightLoader.load(key, () -> {
+            byte[] loaded = store.get(key);
+            if (loaded != null) {
+                return fromStoreValue(deserialize(loaded));
+            }
+            long start = System.nanoTime();
+            T obj = function.apply(funcParam);
+            stats.recordLoad(System.nanoTime() - start);
+            if (obj == null) {
+                if (nullValueProperties.isEnabled()) {
+                    put(key, NullValue.INSTANCE, nullValueProperties.getExpireTime());
+                }
+                return null;
+            }
+            put(key, obj, expireTime);
+            return obj;
+        });
+    }
+
+    @Override
+    public void flushDb() {
+        snapshot = null;
+        store.clear();
+    }
+
+    @Override
+    public void invalidateRegion(String region) {
+        store.removeIf(key -> region.equals(KeyUtils.getRegion(key)));
+        CacheSnapshot current = snapshot;
+        if (current != null) {
+            current.discardRegion(region);
+        }
+    }
+
+    @Override
+    public boolean exists(String key) {
+        byte[] bytes = read(key);
+        return bytes != null && bytes.length > 0;
+    }
+
+    @Override
+    public Map<String, CacheRegionStats> getRegionStats() {
+        return statsRecorder.getRegions();
+    }
+
+    @Override
+    public void exportSnapshot(Predicate<String> regionFilter, CacheSnapshotWriter writer) {
+        store.forEach(key -> regionFilter.test(KeyUtils.getRegion(key)), (key, value, ttlNanos) -> {
+            if (value.length > 0) {
+                writer.write(key, value, ttlNanos > 0 ? Math.max(1L, TimeUnit.NANOSECONDS.toMillis(ttlNanos)) : 0L);
+            }
+        });
+        CacheSnapshot current = snapshot;
+        if (current != null) {
+            current.copyTo(writer, regionFilter);
+        }
+    }
+
+    @Override
+    public void attachSnapshot(CacheSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * 堆外存储，可读取内存占用、淘汰及拒绝写入次数
+     *
+     * @return OffHeapSlabStore
+     */
+    public OffHeapSlabStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void destroy() {
+        store.release();
+    }
+}
@@ -0,0 +1,260 @@
+package com.github.sparkzxl.cache.template;
+
+import cn.hutool.core.util.IdUtil;
+import com.alibaba.fastjson.JSON;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.support.CacheInvalidationMessage;
+import com.github.sparkzxl.cache.support.NullValue;
+import com.github.sparkzxl.cache.support.RefreshAheadSupport;
+import com.github.sparkzxl.cache.support.RegionNamespace;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * description: 基于Lettuce响应式命令的非阻塞redis缓存实现，与{@link RedisCacheTemplateImpl}共用值序列化方式，
+ * 启用二级缓存时写入和删除同样广播失效消息
+ *
+ * @author zhouxinlei
+ * @date 2020-10-16 16:32:05
+ */
+@Slf4j
+@SuppressWarnings("unchecked")
+public class RedisAsyncCacheTemplateImpl implements AsyncCacheTemplate {
+
+    private final String nodeId = IdUtil.fastSimpleUUID();
+    private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+    private final ReactiveValueOperations<String, Object> valueOperations;
+    private final ReactiveRedisTemplate<String, String> messageTemplate;
+    private final String topic;
+    private final CacheProperties.NullValueCache nullValueProperties;
+    private final RegionNamespace regionNamespace;
+    private final ReactiveRedisTemplate<String, String> generationTemplate;
+    private final ConcurrentMap<String, CompletableFuture<Object>> loading = new ConcurrentHashMap<>();
+
+    public RedisAsyncCacheTemplateImpl(ReactiveRedisConnectionFactory connectionFactory, RedisSerializer<Object> valueSerializer,
+                                       CacheProperties cacheProperties, RegionNamespace regionNamespace) {
+        StringRedisSerializer stringSerializer = new StringRedisSerializer();
+        RedisSerializationContext<String, Object> serializationContext = RedisSerializationContext
+                .<String, Object>newSerializationContext(stringSerializer)
+                .value(valueSerializer)
+                .hashValue(valueSerializer)
+                .build();
+        this.reactiveRedisTemplate = new ReactiveRedisTemplate<>(connectionFactory, serializationContext);
+        this.valueOperations = reactiveRedisTemplate.opsForValue();
+        this.messageTemplate = cacheProperties.getNear().isEnabled()
+                ? new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.string()) : null;
+        this.topic = cacheProperties.getNear().getTopic();
+        this.nullValueProperties = cacheProperties.getNullValue();
+        this.regionNamespace = regionNamespace;
+        this.generationTemplate = regionNamespace != null && !regionNamespace.getRegions().isEmpty()
+                ? new ReactiveRedisTemplate<>(connectionFactory, RedisSerializationContext.string()) : null;
+    }
+
+    /**
+     * 缓存key对应的redis key，版本号本地缓存，刷新间隔到期时通过响应式命令读取，不阻塞调用线程
+     */
+    private Mono<String> redisKey(String key) {
+        if (generationTemplate == null) {
+            return Mono.just(key);
+        }
+        String region = KeyUtils.getRegion(key);
+        if (!regionNamespace.isEnabled(region)) {
+            return Mono.just(key);
+        }
+        Long generation = regionNamespace.cachedGeneration(region);
+        if (generation != null) {
+            return Mono.just(regionNamespace.toRedisKey(key, region, generation));
+        }
+        return generationTemplate.opsForValue().get(regionNamespace.getGenerationKey(region))
+                .map(value -> regionNamespace.refreshGeneration(region, value))
+                .switchIfEmpty(Mono.fromSupplier(() -> regionNamespace.refreshGeneration(region, null)))
+                .map(value -> regionNamespace.toRedisKey(key, region, value));
+    }
+
+    private Mono<List<String>> redisKeys(Collection<String> keys) {
+        return Flux.fromIterable(keys).concatMap(this::redisKey).collectList();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(String key) {
+        if (StringUtils.isEmpty(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return redisKey(key).flatMap(valueOperations::get)
+                .flatMap(value -> Mono.justOrEmpty((T) fromStoreValue(value)))
+                .toFuture();
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(String key, Function<String, CompletionStage<T>> function) {
+        return get(key, function, null);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> get(String key, Function<String, CompletionStage<T>> function, Long expireTime) {
+        if (StringUtils.isEmpty(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return redisKey(key).flatMap(valueOperations::get).toFuture().thenCompose(value -> value != null
+                ? CompletableFuture.completedFuture((T) fromStoreValue(value))
+                : load(key, function, expireTime));
+    }
+
+    /**
+     * 同一个key并发未命中时共用一次加载，加载结果写入redis后完成
+     */
+    private <T> CompletableFuture<T> load(String key, Function<String, CompletionStage<T>> function, Long expireTime) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = loading.putIfAbsent(key, future);
+        if (existing != null) {
+            return (CompletableFuture<T>) (CompletableFuture<?>) existing;
+        }
+        CompletionStage<T> stage;
+        try {
+            stage = function.apply(key);
+        } catch (Exception e) {
+            loading.remove(key, future);
+            future.completeExceptionally(e);
+            return (CompletableFuture<T>) (CompletableFuture<?>) future;
+        }
+        stage.thenCompose(obj -> store(key, obj, expireTime).thenApply(ignored -> obj))
+                .whenComplete((obj, throwable) -> {
+                    loading.remove(key, future);
+                    if (throwable != null) {
+                        future.completeExceptionally(throwable);
+                    } else {
+                        future.complete(obj);
+                    }
+                });
+        return (CompletableFuture<T>) (CompletableFuture<?>) future;
+    }
+
+    private CompletableFuture<Void> store(String key, Object obj, Long expireTime) {
+        if (obj != null) {
+            return setValue(key, obj, expireTime).toFuture();
+        }
+        if (nullValueProperties.isEnabled()) {
+            return setValue(key, NullValue.INSTANCE, nullValueProperties.getExpireTime()).toFuture();
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public <T> CompletableFuture<Map<String, T>> multiGet(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return CompletableFuture.completedFuture(Maps.<String, T>newLinkedHashMap());
+        }
+        List<String> keyList = Lists.newArrayList(keys);
+        return redisKeys(keyList).flatMap(valueOperations::multiGet)
+                .map(values -> {
+                    Map<String, T> result = Maps.newLinkedHashMap();
+                    for (int i = 0; i < keyList.size(); i++) {
+                        Object value = fromStoreValue(values.get(i));
+                        if (value != null) {
+                            result.put(keyList.get(i), (T) value);
+                        }
+                    }
+                    return result;
+                })
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Void> set(String key, Object value) {
+        return set(key, value, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> set(String key, Object value, Long expireTime) {
+        if (StringUtils.isEmpty(key) || value == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return setValue(key, value, expireTime)
+                .then(publish(Lists.newArrayList(key)))
+                .toFuture();
+    }
+
+    private Mono<Void> setValue(String key, Object value, Long expireTime) {
+        return redisKey(key).flatMap(redisKey -> expireTime != null
+                ? valueOperations.set(redisKey, value, Duration.ofSeconds(expireTime))
+                : valueOperations.set(redisKey, value)).then();
+    }
+
+    @Override
+    public CompletableFuture<Long> increment(String key) {
+        return redisKey(key).flatMap(redisKey -> valueOperations.increment(redisKey)).toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> increment(String key, long delta) {
+        return redisKey(key).flatMap(redisKey -> valueOperations.increment(redisKey, delta)).toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> decrement(String key) {
+        return redisKey(key).flatMap(redisKey -> valueOperations.decrement(redisKey)).toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> decrement(String key, long delta) {
+        return redisKey(key).flatMap(redisKey -> valueOperations.decrement(redisKey, delta)).toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Long> remove(String... keys) {
+        if (keys == null || keys.length == 0) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        return redisKeys(Arrays.asList(keys))
+                .flatMap(redisKeys -> reactiveRedisTemplate.delete(redisKeys.toArray(new String[0])))
+                .flatMap(count -> publish(Lists.newArrayList(keys)).thenReturn(count))
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> exists(String key) {
+        return redisKey(key).flatMap(reactiveRedisTemplate::hasKey).toFuture();
+    }
+
+    /**
+     * 启用二级缓存时广播失效消息，发送方使用独立的节点id，本节点的二级缓存同样会清除本地副本
+     */
+    private Mono<Void> publish(List<String> keys) {
+        if (messageTemplate == null) {
+            return Mono.empty();
+        }
+        String body = JSON.toJSONString(new CacheInvalidationMessage(nodeId, keys, false, null));
+        return messageTemplate.convertAndSend(topic, body)
+                .doOnError(e -> log.error("广播缓存失效消息失败：{}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    private static Object fromStoreValue(Object value) {
+        Object unwrapped = RefreshAheadSupport.unwrap(value);
+        return NullValue.isNull(unwrapped) ? null : unwrapped;
+    }
+}
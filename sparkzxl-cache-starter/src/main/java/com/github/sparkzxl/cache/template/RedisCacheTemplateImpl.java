@@ -1,19 +1,38 @@
 package com.github.sparkzxl.cache.template;
 
+import cn.hutool.core.util.IdUtil;
+import com.github.sparkzxl.cache.hotkey.HotKeyDetector;
+import com.github.sparkzxl.cache.properties.CacheProperties;
+import com.github.sparkzxl.cache.stats.CacheRegionStats;
+import com.github.sparkzxl.cache.stats.CacheStatsRecorder;
+import com.github.sparkzxl.cache.support.NullValue;
+import com.github.sparkzxl.cache.support.RefreshAheadSupport;
+import com.github.sparkzxl.cache.support.RefreshAheadValue;
+import com.github.sparkzxl.cache.support.RegionNamespace;
+import com.github.sparkzxl.cache.support.SingleFlightLoader;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
 import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.StringUtils;
 
-import javax.annotation.PostConstruct;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.Optional;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * description: redis缓存提供接口实现类
@@ -26,21 +45,48 @@ import java.util.function.Function;
 public class RedisCacheTemplateImpl implements CacheTemplate {
 
     private static final Charset DEFAULT_CHARSET;
+    private static final String LEASE_SUFFIX = ":lease";
+    private static final int REGION_SCAN_COUNT = 500;
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+    private static final RedisScript<Object> GET_AND_REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "local value = redis.call('get', KEYS[1]) if value then redis.call('del', KEYS[1]) end return value", Object.class);
     private final RedisTemplate<String, Object> redisTemplate;
-    private ValueOperations<String, Object> valueOperations;
+    private final ValueOperations<String, Object> valueOperations;
+    private final SingleFlightLoader singleFlightLoader;
+    private final RefreshAheadSupport refreshAheadSupport;
+    private final CacheProperties.Load loadProperties;
+    private final CacheProperties.NullValueCache nullValueProperties;
+    private final CacheStatsRecorder statsRecorder = new CacheStatsRecorder();
+    private final HotKeyDetector hotKeyDetector;
+    private final RegionNamespace regionNamespace;
 
 
     static {
         DEFAULT_CHARSET = StandardCharsets.UTF_8;
     }
 
-    @PostConstruct
-    public void initRedisOperation() {
-        valueOperations = redisTemplate.opsForValue();
+    public RedisCacheTemplateImpl(RedisTemplate<String, Object> redisTemplate) {
+        this(redisTemplate, new SingleFlightLoader(), new RefreshAheadSupport(new CacheProperties.RefreshAhead()),
+                new CacheProperties());
     }
 
-    public RedisCacheTemplateImpl(RedisTemplate<String, Object> redisTemplate) {
+    public RedisCacheTemplateImpl(RedisTemplate<String, Object> redisTemplate, SingleFlightLoader singleFlightLoader,
+                                  RefreshAheadSupport refreshAheadSupport, CacheProperties cacheProperties) {
+        this(redisTemplate, singleFlightLoader, refreshAheadSupport, cacheProperties, null, null);
+    }
+
+    public RedisCacheTemplateImpl(RedisTemplate<String, Object> redisTemplate, SingleFlightLoader singleFlightLoader,
+                                  RefreshAheadSupport refreshAheadSupport, CacheProperties cacheProperties,
+                                  HotKeyDetector hotKeyDetector, RegionNamespace regionNamespace) {
         this.redisTemplate = redisTemplate;
+        this.hotKeyDetector = hotKeyDetector;
+        this.regionNamespace = regionNamespace;
+        this.valueOperations = redisTemplate.opsForValue();
+        this.singleFlightLoader = singleFlightLoader;
+        this.refreshAheadSupport = refreshAheadSupport;
+        this.loadProperties = cacheProperties.getLoad();
+        this.nullValueProperties = cacheProperties.getNullValue();
     }
 
     @Override
@@ -69,18 +115,202 @@ public class RedisCacheTemplateImpl implements CacheTemplate {
         if (StringUtils.isEmpty(key)) {
             return null;
         }
+        Function<M, T> loader = LoaderException.wrap(function);
         try {
-            obj = (T) valueOperations.get(key);
+            Object value = readValue(key);
+            CacheRegionStats regionStats = statsRecorder.region(key);
+            if (value != null) {
+                regionStats.recordHits(1L);
+            } else {
+                regionStats.recordMisses(1L);
+            }
+            if (value instanceof RefreshAheadValue) {
+                RefreshAheadValue refreshAheadValue = (RefreshAheadValue) value;
+                if (function != null && expireTime != null && refreshAheadSupport.shouldRefresh(refreshAheadValue)) {
+                    refreshAheadSupport.refreshAsync(key, () -> loadAndSet(key, function, funcParam, expireTime));
+                }
+                value = refreshAheadValue.getValue();
+            }
+            if (NullValue.isNull(value)) {
+                return null;
+            }
+            obj = (T) value;
             if (obj == null && function != null) {
-                obj = function.apply(funcParam);
-                Optional.ofNullable(obj).ifPresent(value->set(key, value, expireTime));
+                long start = System.nanoTime();
+                obj = load(key, loader, funcParam, expireTime);
+                regionStats.recordLoad(System.nanoTime() - start);
             }
+        } catch (LoaderException e) {
+            throw e.getCause();
         } catch (Exception e) {
             log.error(e.getMessage());
         }
         return obj;
     }
 
+    /**
+     * 读取redis，热点key优先读取本地副本
+     */
+    private Object readValue(String key) {
+        if (hotKeyDetector == null) {
+            return valueOperations.get(redisKey(key));
+        }
+        boolean hot = hotKeyDetector.record(key);
+        Object value = hotKeyDetector.getLocal(key);
+        if (value == null) {
+            value = valueOperations.get(redisKey(key));
+            if (hot && value != null) {
+                hotKeyDetector.promote(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 清除本节点热点key的本地副本
+     *
+     * @param keys 缓存key
+     */
+    public void evictLocal(Collection<String> keys) {
+        if (hotKeyDetector != null) {
+            hotKeyDetector.invalidateAll(keys);
+        }
+    }
+
+    /**
+     * 清除本节点全部热点key的本地副本
+     */
+    public void evictLocalAll() {
+        if (hotKeyDetector != null) {
+            hotKeyDetector.invalidateAll();
+        }
+    }
+
+    private void evictLocal(String key) {
+        if (hotKeyDetector != null) {
+            hotKeyDetector.invalidate(key);
+        }
+    }
+
+    /**
+     * 缓存key对应的redis key，启用版本命名空间的区域带上当前版本号
+     */
+    private String redisKey(String key) {
+        return regionNamespace == null ? key : regionNamespace.toRedisKey(key);
+    }
+
+    private List<String> redisKeys(Collection<String> keys) {
+        return keys.stream().map(this::redisKey).collect(Collectors.toList());
+    }
+
+    /**
+     * 缓存未命中时加载数据，同一JVM内合并并发加载，启用租约时多节点间只有持有租约的节点加载
+     */
+    private <T, M> T load(String key, Function<M, T> function, M funcParam, Long expireTime) {
+        if (!loadProperties.isSingleFlight()) {
+            return loadAndSet(key, function, funcParam, expireTime);
+        }
+        return singleFlightLoader.load(key, () -> loadProperties.isLeaseEnabled()
+                ? loadWithLease(key, function, funcParam, expireTime)
+                : loadAndSet(key, function, funcParam, expireTime));
+    }
+
+    private <T, M> T loadWithLease(String key, Function<M, T> function, M funcParam, Long expireTime) {
+        String redisKey = redisKey(key);
+        String leaseKey = redisKey.concat(LEASE_SUFFIX);
+        String leaseToken = IdUtil.fastSimpleUUID();
+        Boolean acquired = valueOperations.setIfAbsent(leaseKey, leaseToken, loadProperties.getLeaseTime(), TimeUnit.MILLISECONDS);
+        if (Boolean.TRUE.equals(acquired)) {
+            singleFlightLoader.recordLeaseAcquired();
+            try {
+                // 获取租约前其他节点可能刚完成加载
+                Object cached = RefreshAheadSupport.unwrap(valueOperations.get(redisKey));
+                return cached != null ? (T) fromStoreValue(cached) : loadAndSet(key, function, funcParam, expireTime);
+            } finally {
+                redisTemplate.execute(RELEASE_LEASE_SCRIPT, Collections.singletonList(leaseKey), leaseToken);
+            }
+        }
+        singleFlightLoader.recordLeaseContended();
+        long deadline = System.currentTimeMillis() + loadProperties.getLeaseWaitTime();
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(loadProperties.getLeasePollInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            Object cached = RefreshAheadSupport.unwrap(valueOperations.get(redisKey));
+            if (cached != null) {
+                return (T) fromStoreValue(cached);
+            }
+        }
+        singleFlightLoader.recordLeaseTimeout();
+        return loadAndSet(key, function, funcParam, expireTime);
+    }
+
+    private <T, M> T loadAndSet(String key, Function<M, T> function, M funcParam, Long expireTime) {
+        if (expireTime == null || !refreshAheadSupport.isEnabled(key)) {
+            T obj = function.apply(funcParam);
+            if (obj == null) {
+                setNullValue(key);
+            } else {
+                set(key, obj, expireTime);
+            }
+            return obj;
+        }
+        // 记录加载耗时，供读取时判断是否提前刷新
+        long start = System.currentTimeMillis();
+        T obj = function.apply(funcParam);
+        if (obj == null) {
+            setNullValue(key);
+        } else {
+            valueOperations.set(redisKey(key), refreshAheadSupport.wrap(obj, System.currentTimeMillis() - start, expireTime),
+                    expireTime, TimeUnit.SECONDS);
+            evictLocal(key);
+        }
+        return obj;
+    }
+
+    /**
+     * 加载结果为空时写入空值占位，使用单独的较短过期时间
+     */
+    private void setNullValue(String key) {
+        if (nullValueProperties.isEnabled()) {
+            valueOperations.set(redisKey(key), NullValue.INSTANCE, nullValueProperties.getExpireTime(), TimeUnit.SECONDS);
+            evictLocal(key);
+        }
+    }
+
+    private static Object fromStoreValue(Object value) {
+        return NullValue.isNull(value) ? null : value;
+    }
+
+    @Override
+    public <T> Map<String, T> multiGet(Collection<String> keys) {
+        Map<String, T> result = Maps.newLinkedHashMap();
+        if (CollectionUtils.isEmpty(keys)) {
+            return result;
+        }
+        List<String> keyList = Lists.newArrayList(keys);
+        List<Object> values = valueOperations.multiGet(redisKeys(keyList));
+        if (values == null) {
+            return result;
+        }
+        for (int i = 0; i < keyList.size(); i++) {
+            Object storeValue = values.get(i);
+            if (storeValue != null) {
+                statsRecorder.recordHit(keyList.get(i));
+            } else {
+                statsRecorder.recordMiss(keyList.get(i));
+            }
+            Object value = fromStoreValue(RefreshAheadSupport.unwrap(storeValue));
+            if (value != null) {
+                result.put(keyList.get(i), (T) value);
+            }
+        }
+        return result;
+    }
+
     @Override
     public void set(String key, Object value) {
         set(key, value, null);
@@ -89,40 +319,138 @@ public class RedisCacheTemplateImpl implements CacheTemplate {
     @Override
     public void set(String key, Object value, Long expireTime) {
         if (ObjectUtils.isNotEmpty(expireTime)) {
-            valueOperations.set(key, value, expireTime, TimeUnit.SECONDS);
+            valueOperations.set(redisKey(key), value, expireTime, TimeUnit.SECONDS);
         } else {
-            valueOperations.set(key, value);
+            valueOperations.set(redisKey(key), value);
+        }
+        evictLocal(key);
+    }
+
+    @Override
+    public boolean setIfAbsent(String key, Object value, Long expireTime) {
+        Boolean result = ObjectUtils.isNotEmpty(expireTime)
+                ? valueOperations.setIfAbsent(redisKey(key), value, expireTime, TimeUnit.SECONDS)
+                : valueOperations.setIfAbsent(redisKey(key), value);
+        if (Boolean.TRUE.equals(result)) {
+            evictLocal(key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 通过lua脚本GET + DEL，一次往返完成
+     */
+    @Override
+    public <T> T getAndRemove(String key) {
+        if (StringUtils.isEmpty(key)) {
+            return null;
+        }
+        evictLocal(key);
+        Object value = redisTemplate.execute(GET_AND_REMOVE_SCRIPT, Collections.singletonList(redisKey(key)));
+        return (T) fromStoreValue(value);
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> map) {
+        multiSet(map, null);
+    }
+
+    @Override
+    public void multiSet(Map<String, ?> map, Long expireTime) {
+        if (CollectionUtils.isEmpty(map)) {
+            return;
+        }
+        Map<String, Object> values = Maps.newLinkedHashMap();
+        List<String> keys = Lists.newArrayListWithCapacity(map.size());
+        map.forEach((key, value) -> {
+            if (value != null) {
+                values.put(redisKey(key), value);
+                keys.add(key);
+            }
+        });
+        if (values.isEmpty()) {
+            return;
         }
+        evictLocal(keys);
+        if (ObjectUtils.isEmpty(expireTime)) {
+            valueOperations.multiSet(values);
+            return;
+        }
+        // MSET不支持过期时间，带过期时间时通过管道批量SETEX，一次往返完成
+        RedisSerializer<String> keySerializer = (RedisSerializer<String>) redisTemplate.getKeySerializer();
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            values.forEach((key, value) -> connection.setEx(Objects.requireNonNull(keySerializer.serialize(key)), expireTime,
+                    Objects.requireNonNull(valueSerializer.serialize(value))));
+            return null;
+        });
     }
 
     @Override
     public Long increment(String key) {
-        return valueOperations.increment(key);
+        evictLocal(key);
+        return valueOperations.increment(redisKey(key));
     }
 
     @Override
     public Long increment(String key, long delta) {
-        return valueOperations.increment(key, delta);
+        evictLocal(key);
+        return valueOperations.increment(redisKey(key), delta);
     }
 
     @Override
     public Long decrement(String key) {
-        return valueOperations.decrement(key);
+        evictLocal(key);
+        return valueOperations.decrement(redisKey(key));
     }
 
     @Override
     public Long decrement(String key, long delta) {
-        return valueOperations.decrement(key, delta);
+        evictLocal(key);
+        return valueOperations.decrement(redisKey(key), delta);
     }
 
     @Override
     public Long remove(String... keys) {
-        return redisTemplate.delete(Lists.newArrayList(keys));
+        List<String> keyList = Lists.newArrayList(keys);
+        evictLocal(keyList);
+        return redisTemplate.delete(redisKeys(keyList));
+    }
+
+    @Override
+    public Long multiRemove(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return 0L;
+        }
+        evictLocal(keys);
+        return redisTemplate.delete(redisKeys(keys));
     }
 
     @Override
     public boolean exists(String key) {
-        return redisTemplate.execute((RedisCallback<Boolean>) redisConnection -> redisConnection.exists(key.getBytes(DEFAULT_CHARSET)));
+        return redisTemplate.execute((RedisCallback<Boolean>) redisConnection -> redisConnection.exists(redisKey(key).getBytes(DEFAULT_CHARSET)));
+    }
+
+    @Override
+    public Map<String, CacheRegionStats> getRegionStats() {
+        return statsRecorder.getRegions();
+    }
+
+    /**
+     * 启用版本命名空间的区域只递增版本号，旧版本的key按过期时间自然淘汰或由后台清理；
+     * 其他区域通过SCAN + UNLINK分批删除，不阻塞redis
+     */
+    @Override
+    public void invalidateRegion(String region) {
+        if (regionNamespace != null && regionNamespace.isEnabled(region)) {
+            regionNamespace.invalidate(region);
+        } else {
+            RegionNamespace.unlinkRegion(redisTemplate, region, REGION_SCAN_COUNT);
+        }
+        if (hotKeyDetector != null) {
+            hotKeyDetector.invalidateAll();
+        }
     }
 
     @Override
@@ -131,6 +459,36 @@ public class RedisCacheTemplateImpl implements CacheTemplate {
             connection.flushDb();
             return "ok";
         });
+        evictLocalAll();
     }
 
+    /**
+     * 包装加载函数抛出的异常，与redis读写异常区分，加载函数的异常原样抛给调用方
+     */
+    private static class LoaderException extends RuntimeException {
+
+        private static final long serialVersionUID = -5236718049561254017L;
+
+        private LoaderException(RuntimeException cause) {
+            super(cause.getMessage(), cause, false, false);
+        }
+
+        private static <M, T> Function<M, T> wrap(Function<M, T> function) {
+            if (function == null) {
+                return null;
+            }
+            return param -> {
+                try {
+                    return function.apply(param);
+                } catch (RuntimeException e) {
+                    throw new LoaderException(e);
+                }
+            };
+        }
+
+        @Override
+        public synchronized RuntimeException getCause() {
+            return (RuntimeException) super.getCause();
+        }
+    }
 }
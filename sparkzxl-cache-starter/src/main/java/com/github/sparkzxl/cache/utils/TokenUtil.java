@@ -26,12 +26,17 @@ public class TokenUtil {
     }
 
 
+    /**
+     * 校验并消费token，查询和删除为一次原子操作，同一个token并发提交时只有一个请求校验通过
+     *
+     * @param token token
+     * @return boolean
+     */
     public boolean findToken(String token) {
-        String value = cacheRepository.get(token);
-        if (!StringUtils.isEmpty(value)) {
-            cacheRepository.remove(token);
-            return true;
+        if (StringUtils.isEmpty(token)) {
+            return false;
         }
-        return false;
+        String value = cacheRepository.getAndRemove(token);
+        return !StringUtils.isEmpty(value);
     }
 }
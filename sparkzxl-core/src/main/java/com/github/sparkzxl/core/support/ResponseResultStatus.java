@@ -119,6 +119,11 @@ public enum ResponseResultStatus implements BusinessEnumSysAssert {
      */
     PARAM_FLOW(1003, "热点参数访问限制，请稍后再试"),
 
+    /**
+     * 重复提交
+     */
+    REQ_REPEAT(1004, "请勿重复提交"),
+
 
     JWT_VALID_ERROR(HttpStatus.HTTP_BAD_REQUEST, "token签名不合法"),
 
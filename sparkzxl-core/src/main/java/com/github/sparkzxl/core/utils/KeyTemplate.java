@@ -0,0 +1,149 @@
+package com.github.sparkzxl.core.utils;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * description: 预编译的缓存key模板，模板前缀只拼接一次，生成key时将参数以冒号分隔直接追加到线程复用的缓冲区，
+ * 整数参数直接写入数字不产生中间字符串；结果与 {@link KeyUtils#buildKey(String, Object...)} 一致
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 09:26:44
+ */
+public final class KeyTemplate {
+
+    private static final char SEPARATOR = ':';
+
+    /**
+     * 缓存的模板数量上限，模板由运行时数据拼成时超出部分不再缓存
+     */
+    private static final int MAX_CACHED_TEMPLATES = 1024;
+
+    /**
+     * 复用缓冲区保留的最大长度，超出时丢弃避免线程长期持有大缓冲区
+     */
+    private static final int MAX_RETAINED_CAPACITY = 4096;
+
+    private static final Map<String, KeyTemplate> TEMPLATES = new ConcurrentHashMap<>(64);
+    private static final ThreadLocal<StringBuilder> STRING_BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final String template;
+    private final String prefix;
+
+    private KeyTemplate(String template) {
+        this.template = template;
+        this.prefix = template + SEPARATOR;
+    }
+
+    /**
+     * 获取模板，同一模板只编译一次
+     *
+     * @param template 模板，一般为缓存区域
+     * @return KeyTemplate
+     */
+    public static KeyTemplate of(String template) {
+        KeyTemplate keyTemplate = TEMPLATES.get(template);
+        if (keyTemplate != null) {
+            return keyTemplate;
+        }
+        keyTemplate = new KeyTemplate(template);
+        if (TEMPLATES.size() < MAX_CACHED_TEMPLATES) {
+            KeyTemplate existing = TEMPLATES.putIfAbsent(template, keyTemplate);
+            return existing == null ? keyTemplate : existing;
+        }
+        return keyTemplate;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    /**
+     * key是否由该模板生成
+     *
+     * @param key 缓存key
+     * @return boolean
+     */
+    public boolean matches(String key) {
+        return key.startsWith(prefix);
+    }
+
+    /**
+     * 生成key：模板:参数
+     *
+     * @param arg 参数
+     * @return String
+     */
+    public String key(Object arg) {
+        StringBuilder builder = stringBuffer();
+        builder.append(prefix);
+        append(builder, arg);
+        return release(builder);
+    }
+
+    /**
+     * 生成key：模板:参数1:参数2
+     *
+     * @param arg1 参数1
+     * @param arg2 参数2
+     * @return String
+     */
+    public String key(Object arg1, Object arg2) {
+        StringBuilder builder = stringBuffer();
+        builder.append(prefix);
+        append(builder, arg1);
+        builder.append(SEPARATOR);
+        append(builder, arg2);
+        return release(builder);
+    }
+
+    /**
+     * 生成key：模板:参数1:参数2...，没有参数时为模板本身
+     *
+     * @param args 参数
+     * @return String
+     */
+    public String key(Object... args) {
+        if (args == null || args.length == 0) {
+            return template;
+        }
+        StringBuilder builder = stringBuffer();
+        builder.append(prefix);
+        for (int i = 0; i < args.length; i++) {
+            if (i > 0) {
+                builder.append(SEPARATOR);
+            }
+            append(builder, args[i]);
+        }
+        return release(builder);
+    }
+
+    private static StringBuilder stringBuffer() {
+        StringBuilder builder = STRING_BUFFER.get();
+        builder.setLength(0);
+        return builder;
+    }
+
+    private static String release(StringBuilder builder) {
+        String key = builder.toString();
+        if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+            STRING_BUFFER.remove();
+        }
+        return key;
+    }
+
+    /**
+     * 与StrUtil.format对参数的转换一致：null为"null"，byte[]按UTF-8解码，数组按元素输出
+     */
+    private static void append(StringBuilder builder, Object arg) {
+        if (arg instanceof String) {
+            builder.append((String) arg);
+        } else if (arg instanceof Long || arg instanceof Integer || arg instanceof Short || arg instanceof Byte) {
+            builder.append(((Number) arg).longValue());
+        } else {
+            builder.append(StrUtil.utf8Str(arg));
+        }
+    }
+}
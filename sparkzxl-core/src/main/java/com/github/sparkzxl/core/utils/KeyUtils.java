@@ -12,20 +12,16 @@ import cn.hutool.core.util.StrUtil;
 public class KeyUtils {
 
     /**
-     * 构建key
+     * 构建key，热点路径请使用预编译的 {@link KeyTemplate}
      *
      * @param args 参数
      * @return String
      */
     public static String buildKey(String template, Object... args) {
-        StringBuilder key = new StringBuilder();
-        if (args != null && args.length > 0) {
-            for (int i = 0; i < args.length; i++) {
-                template = template.concat(":{}");
-            }
-            key.append(StrUtil.format(template, args));
+        if (args == null || args.length == 0) {
+            return "";
         }
-        return key.toString();
+        return KeyTemplate.of(template).key(args);
     }
 
     public static String buildKey(Object... args) {
@@ -39,4 +35,15 @@ public class KeyUtils {
     public static String key(Object... args) {
         return buildKey(args);
     }
+
+    /**
+     * 获取key所属的缓存区域，即第一个分隔符之前的前缀
+     *
+     * @param key 缓存key
+     * @return String
+     */
+    public static String getRegion(String key) {
+        int index = key.indexOf(':');
+        return index < 0 ? key : key.substring(0, index);
+    }
 }
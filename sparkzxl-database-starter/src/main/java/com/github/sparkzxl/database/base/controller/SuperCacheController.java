@@ -1,9 +1,15 @@
 package com.github.sparkzxl.database.base.controller;
 
 import com.github.sparkzxl.database.base.service.SuperCacheService;
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.io.Serializable;
+import java.util.List;
 
 /**
  * description: super 缓存controller
@@ -25,4 +31,17 @@ public abstract class SuperCacheController<S extends SuperCacheService<Entity>,
         return baseService.getByIdCache(id);
     }
 
+    /**
+     * 按主键批量查询
+     *
+     * @param ids 主键id
+     * @return 查询结果，按ids顺序排列
+     */
+    @ApiOperation(value = "批量查询数据", notes = "按主键批量查询，优先读取缓存")
+    @ApiImplicitParams({@ApiImplicitParam(name = "ids[]", value = "主键id", dataType = "array", paramType = "query")})
+    @GetMapping("/batch")
+    public List<Entity> getBatch(@RequestParam("ids[]") List<Id> ids) {
+        return baseService.getByIdsCache(ids);
+    }
+
 }
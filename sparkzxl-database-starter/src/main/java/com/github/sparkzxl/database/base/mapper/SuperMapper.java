@@ -1,5 +1,6 @@
 package com.github.sparkzxl.database.base.mapper;
 
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.baomidou.mybatisplus.core.toolkit.Constants;
 import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
@@ -7,6 +8,7 @@ import com.baomidou.mybatisplus.extension.conditions.query.QueryChainWrapper;
 import com.baomidou.mybatisplus.extension.conditions.update.LambdaUpdateChainWrapper;
 import com.baomidou.mybatisplus.extension.conditions.update.UpdateChainWrapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 
@@ -84,4 +86,12 @@ public interface SuperMapper<T> extends BaseMapper<T> {
      * @return int
      */
     int deleteAll();
+
+    /**
+     * 游标查询，需在事务内遍历，遍历结束后关闭
+     *
+     * @param queryWrapper 查询条件
+     * @return Cursor<T>
+     */
+    Cursor<T> selectCursor(@Param(Constants.WRAPPER) Wrapper<T> queryWrapper);
 }
@@ -1,6 +1,10 @@
 package com.github.sparkzxl.database.base.service;
 
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * description: 缓存接口父类
@@ -18,4 +22,21 @@ public interface SuperCacheService<T> extends SuperService<T> {
      */
     T getByIdCache(Serializable var1);
 
+    /**
+     * 批量查询缓存，未命中的主键合并为IN查询加载并批量回写缓存
+     *
+     * @param ids 主键集合
+     * @return List<T> 按ids顺序排列，不存在的主键不包含在内
+     */
+    List<T> getByIdsCache(Collection<? extends Serializable> ids);
+
+    /**
+     * 缓存预热，游标读取预热查询的数据，每凑满一批交给batchConsumer写入缓存
+     *
+     * @param batchSize     每批的数量
+     * @param batchConsumer 批量写入缓存，key为缓存键
+     * @return long 读取的数据条数，未声明预热查询时为0
+     */
+    long warmUpCache(int batchSize, Consumer<Map<String, Object>> batchConsumer);
+
 }
@@ -1,17 +1,38 @@
 package com.github.sparkzxl.database.base.service.impl;
 
 import cn.hutool.core.collection.CollUtil;
-import com.github.sparkzxl.core.utils.KeyUtils;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.github.sparkzxl.cache.bloom.BloomFilterRegistry;
+import com.github.sparkzxl.cache.bloom.CacheBloomFilter;
+import com.github.sparkzxl.core.utils.KeyTemplate;
 import com.github.sparkzxl.cache.template.CacheTemplate;
 import com.github.sparkzxl.database.base.mapper.SuperMapper;
 import com.github.sparkzxl.database.base.service.SuperCacheService;
+import com.github.sparkzxl.database.cache.TransactionalCacheEvictor;
 import com.github.sparkzxl.database.entity.SuperEntity;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * description: 缓存接口父类实现类
@@ -19,11 +40,31 @@ import java.util.Collection;
  * @author: zhouxinlei
  * @date: 2020-07-07 19:38:37
  */
-public abstract class AbstractSuperCacheServiceImpl<M extends SuperMapper<T>, T> extends SuperServiceImpl<M, T> implements SuperCacheService<T> {
+@Slf4j
+public abstract class AbstractSuperCacheServiceImpl<M extends SuperMapper<T>, T> extends SuperServiceImpl<M, T>
+        implements SuperCacheService<T>, SmartInitializingSingleton {
+
+    /**
+     * 构建布隆过滤器时每批查询的主键数量
+     */
+    private static final int BLOOM_FILTER_BATCH_SIZE = 10000;
+
+    /**
+     * 批量查询时每条IN查询的主键数量
+     */
+    private static final int BATCH_IDS_CHUNK_SIZE = 1000;
 
     @Autowired(required = false)
     protected CacheTemplate cacheTemplate;
 
+    @Autowired(required = false)
+    protected BloomFilterRegistry bloomFilterRegistry;
+
+    @Autowired(required = false)
+    protected TransactionalCacheEvictor cacheEvictor;
+
+    private volatile KeyTemplate keyTemplate;
+
     /**
      * 缓存key模板
      *
@@ -31,16 +72,232 @@ public abstract class AbstractSuperCacheServiceImpl<M extends SuperMapper<T>, T>
      */
     protected abstract String getRegion();
 
+    /**
+     * 按缓存区域预编译的key模板
+     *
+     * @return KeyTemplate
+     */
+    protected KeyTemplate keyTemplate() {
+        KeyTemplate template = keyTemplate;
+        if (template == null) {
+            template = KeyTemplate.of(this.getRegion());
+            keyTemplate = template;
+        }
+        return template;
+    }
+
+    /**
+     * 是否启用主键布隆过滤器，启用后getByIdCache直接拒绝一定不存在的主键；
+     * 只在redis布隆过滤器下生效，本地过滤器感知不到其他节点新增的主键，会误拒存在的数据。
+     * 通过本服务的save、saveBatch、saveOrUpdate、saveOrUpdateBatch新增的主键自动写入过滤器，
+     * 绕过本服务（mapper自定义SQL、其他系统）新增的数据需调用addToBloomFilter
+     *
+     * @return boolean
+     */
+    protected boolean isBloomFilterEnabled() {
+        return false;
+    }
+
+    /**
+     * 缓存预热查询，返回null时不预热，例如按热度取前N条：Wrappers.query().orderByDesc("hits").last("limit 10000")
+     *
+     * @return Wrapper<T>
+     */
+    protected Wrapper<T> getWarmUpWrapper() {
+        return null;
+    }
+
+    @Override
+    @Transactional(readOnly = true, rollbackFor = {Exception.class})
+    public long warmUpCache(int batchSize, Consumer<Map<String, Object>> batchConsumer) {
+        Wrapper<T> warmUpWrapper = getWarmUpWrapper();
+        if (warmUpWrapper == null) {
+            return 0L;
+        }
+        long count = 0;
+        Map<String, Object> batch = Maps.newLinkedHashMapWithExpectedSize(batchSize);
+        try (Cursor<T> cursor = this.baseMapper.selectCursor(warmUpWrapper)) {
+            for (T model : cursor) {
+                Object id = idOf(model);
+                if (id == null) {
+                    continue;
+                }
+                batch.put(keyTemplate().key(id), model);
+                count++;
+                if (batch.size() >= batchSize) {
+                    batchConsumer.accept(batch);
+                    batch = Maps.newLinkedHashMapWithExpectedSize(batchSize);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("缓存区域[{}]预热游标关闭失败：{}", this.getRegion(), e.getMessage());
+        }
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(batch);
+        }
+        return count;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (isBloomFilterEnabled() && bloomFilterRegistry != null && !bloomFilterRegistry.isShared()) {
+            log.warn("缓存区域[{}]启用了主键布隆过滤器，但本地布隆过滤器无法感知其他节点新增的主键，已忽略，请使用redis布隆过滤器", this.getRegion());
+            return;
+        }
+        CacheBloomFilter bloomFilter = getBloomFilter();
+        if (bloomFilter == null || bloomFilter.isInitialized()) {
+            return;
+        }
+        try {
+            long count = loadBloomFilter(bloomFilter);
+            bloomFilter.markInitialized();
+            log.info("缓存区域[{}]布隆过滤器构建完成，主键数量：{}", this.getRegion(), count);
+        } catch (Exception e) {
+            log.error("缓存区域[{}]布隆过滤器构建失败，不做拦截：{}", this.getRegion(), e.getMessage());
+        }
+    }
+
+    /**
+     * 按主键顺序分批扫描全部主键写入布隆过滤器
+     */
+    private long loadBloomFilter(CacheBloomFilter bloomFilter) {
+        TableInfo tableInfo = TableInfoHelper.getTableInfo(currentModelClass());
+        String keyColumn = tableInfo.getKeyColumn();
+        Object lastId = null;
+        long count = 0;
+        while (true) {
+            QueryWrapper<T> queryWrapper = Wrappers.<T>query().select(keyColumn)
+                    .gt(lastId != null, keyColumn, lastId)
+                    .orderByAsc(keyColumn)
+                    .last("limit " + BLOOM_FILTER_BATCH_SIZE);
+            List<Object> ids = this.baseMapper.selectObjs(queryWrapper);
+            if (CollUtil.isEmpty(ids)) {
+                return count;
+            }
+            bloomFilter.putAll(ids.stream().filter(Objects::nonNull).map(String::valueOf).collect(Collectors.toList()));
+            count += ids.size();
+            if (ids.size() < BLOOM_FILTER_BATCH_SIZE) {
+                return count;
+            }
+            lastId = ids.get(ids.size() - 1);
+        }
+    }
+
+    private CacheBloomFilter getBloomFilter() {
+        if (!isBloomFilterEnabled() || bloomFilterRegistry == null || !bloomFilterRegistry.isShared()) {
+            return null;
+        }
+        return bloomFilterRegistry.getOrCreate(this.getRegion());
+    }
+
+    /**
+     * 将绕过本服务新增的主键写入布隆过滤器，未启用时忽略
+     *
+     * @param ids 主键集合
+     */
+    protected void addToBloomFilter(Collection<?> ids) {
+        CacheBloomFilter bloomFilter = getBloomFilter();
+        if (bloomFilter == null || CollUtil.isEmpty(ids)) {
+            return;
+        }
+        bloomFilter.putAll(ids.stream().filter(Objects::nonNull).map(String::valueOf).collect(Collectors.toList()));
+    }
+
+    /**
+     * 新增或更新后，主键写入布隆过滤器，并失效缓存（包括之前缓存的空值占位）
+     */
+    private void afterSave(Collection<T> models) {
+        List<Object> ids = models.stream().map(this::idOf).filter(Objects::nonNull).collect(Collectors.toList());
+        if (ids.isEmpty()) {
+            return;
+        }
+        addToBloomFilter(ids);
+        evictCache(ids.stream().map(id -> keyTemplate().key(id)).collect(Collectors.toList()));
+    }
+
     @Override
     public T getByIdCache(Serializable id) {
-        return this.cacheTemplate.get(this.getRegion(), (x) -> super.getById(id));
+        CacheBloomFilter bloomFilter = getBloomFilter();
+        if (bloomFilter != null && !bloomFilter.mightContain(String.valueOf(id))) {
+            return null;
+        }
+        return this.cacheTemplate.get(keyTemplate().key(id), (x) -> super.getById(id));
+    }
+
+    @Override
+    public List<T> getByIdsCache(Collection<? extends Serializable> ids) {
+        if (CollUtil.isEmpty(ids)) {
+            return Lists.newArrayList();
+        }
+        CacheBloomFilter bloomFilter = getBloomFilter();
+        List<String> keys = Lists.newArrayListWithCapacity(ids.size());
+        Map<String, Serializable> idsByKey = Maps.newLinkedHashMapWithExpectedSize(ids.size());
+        for (Serializable id : ids) {
+            if (id == null || (bloomFilter != null && !bloomFilter.mightContain(String.valueOf(id)))) {
+                continue;
+            }
+            String key = keyTemplate().key(id);
+            keys.add(key);
+            idsByKey.putIfAbsent(key, id);
+        }
+        if (idsByKey.isEmpty()) {
+            return Lists.newArrayList();
+        }
+        Map<String, T> models = this.cacheTemplate.multiGet(idsByKey.keySet(),
+                missKeys -> listByKeys(missKeys, idsByKey));
+        List<T> result = Lists.newArrayListWithCapacity(keys.size());
+        for (String key : keys) {
+            T model = models.get(key);
+            if (model != null) {
+                result.add(model);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 未命中的主键按批次IN查询，返回 缓存key -> 实体
+     */
+    private Map<String, T> listByKeys(Collection<String> missKeys, Map<String, Serializable> idsByKey) {
+        List<Serializable> missIds = missKeys.stream().map(idsByKey::get).collect(Collectors.toList());
+        Map<String, T> loaded = Maps.newHashMapWithExpectedSize(missIds.size());
+        for (List<Serializable> chunk : Lists.partition(missIds, BATCH_IDS_CHUNK_SIZE)) {
+            for (T model : this.baseMapper.selectBatchIds(chunk)) {
+                Object id = idOf(model);
+                if (id != null) {
+                    loaded.put(keyTemplate().key(id), model);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * 失效缓存，事务中时在提交后批量删除，避免并发读请求在提交前回填旧数据
+     *
+     * @param keys 缓存键集合
+     */
+    protected void evictCache(Collection<String> keys) {
+        if (this.cacheEvictor != null) {
+            this.cacheEvictor.evict(this.cacheTemplate, keys);
+        } else {
+            this.cacheTemplate.multiRemove(keys);
+        }
+    }
+
+    private Object idOf(T model) {
+        if (model instanceof SuperEntity) {
+            return ((SuperEntity<?>) model).getId();
+        }
+        String keyProperty = TableInfoHelper.getTableInfo(currentModelClass()).getKeyProperty();
+        return new BeanWrapperImpl(model).getPropertyValue(keyProperty);
     }
 
     @Override
     @Transactional(rollbackFor = {Exception.class})
     public boolean removeById(Serializable id) {
         boolean bool = super.removeById(id);
-        this.cacheTemplate.remove(KeyUtils.buildKey(this.getRegion(), id));
+        evictCache(Collections.singletonList(keyTemplate().key(id)));
         return bool;
     }
 
@@ -51,7 +308,8 @@ public abstract class AbstractSuperCacheServiceImpl<M extends SuperMapper<T>, T>
             return true;
         } else {
             boolean flag = super.removeByIds(idList);
-            idList.forEach(id -> this.cacheTemplate.remove(KeyUtils.buildKey(this.getRegion(), id)));
+            List<String> keys = idList.stream().map(id -> keyTemplate().key(id)).collect(Collectors.toList());
+            evictCache(keys);
             return flag;
         }
     }
@@ -60,9 +318,31 @@ public abstract class AbstractSuperCacheServiceImpl<M extends SuperMapper<T>, T>
     @Transactional(rollbackFor = {Exception.class})
     public boolean save(T model) {
         boolean result = super.save(model);
-        if (model instanceof SuperEntity) {
-            this.cacheTemplate.set(KeyUtils.buildKey(this.getRegion(), ((SuperEntity) model).getId()), model);
-        }
+        afterSave(Collections.singletonList(model));
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = {Exception.class})
+    public boolean saveBatch(Collection<T> entityList, int batchSize) {
+        boolean result = super.saveBatch(entityList, batchSize);
+        afterSave(entityList);
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = {Exception.class})
+    public boolean saveOrUpdate(T entity) {
+        boolean result = super.saveOrUpdate(entity);
+        afterSave(Collections.singletonList(entity));
+        return result;
+    }
+
+    @Override
+    @Transactional(rollbackFor = {Exception.class})
+    public boolean saveOrUpdateBatch(Collection<T> entityList, int batchSize) {
+        boolean result = super.saveOrUpdateBatch(entityList, batchSize);
+        afterSave(entityList);
         return result;
     }
 
@@ -71,7 +351,7 @@ public abstract class AbstractSuperCacheServiceImpl<M extends SuperMapper<T>, T>
     public boolean updateById(T model) {
         boolean updateBool = super.updateById(model);
         if (model instanceof SuperEntity) {
-            this.cacheTemplate.remove(KeyUtils.buildKey(this.getRegion(), ((SuperEntity) model).getId()));
+            evictCache(Collections.singletonList(keyTemplate().key(((SuperEntity) model).getId())));
         }
         return updateBool;
     }
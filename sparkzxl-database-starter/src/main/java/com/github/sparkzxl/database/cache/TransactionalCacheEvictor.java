@@ -0,0 +1,155 @@
+package com.github.sparkzxl.database.cache;
+
+import com.github.sparkzxl.cache.template.CacheTemplate;
+import com.github.sparkzxl.database.properties.DataProperties;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: 事务感知的缓存失效，事务中的失效登记到事务同步，提交后同一事务的key按CacheTemplate合并为一次批量删除，
+ * 回滚时不删除；没有事务时立即删除。开启延迟双删后，首次删除后延迟再删除一次，
+ * 清除提交前读取到旧数据的并发读请求回填的缓存
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 10:42:18
+ */
+@Slf4j
+public class TransactionalCacheEvictor implements DisposableBean {
+
+    private final DataProperties.CacheEvict cacheEvictProperties;
+    private final ScheduledExecutorService scheduler;
+
+    public TransactionalCacheEvictor(DataProperties.CacheEvict cacheEvictProperties) {
+        this.cacheEvictProperties = cacheEvictProperties;
+        if (cacheEvictProperties.isDoubleDeleteEnabled()) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-double-delete-");
+            threadFactory.setDaemon(true);
+            this.scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+        } else {
+            this.scheduler = null;
+        }
+    }
+
+    /**
+     * 失效缓存，事务中时在提交后删除
+     *
+     * @param cacheTemplate 缓存
+     * @param key           缓存键
+     */
+    public void evict(CacheTemplate cacheTemplate, String key) {
+        evict(cacheTemplate, Collections.singletonList(key));
+    }
+
+    /**
+     * 批量失效缓存，事务中时在提交后删除
+     *
+     * @param cacheTemplate 缓存
+     * @param keys          缓存键集合
+     */
+    public void evict(CacheTemplate cacheTemplate, Collection<String> keys) {
+        if (cacheTemplate == null || CollectionUtils.isEmpty(keys)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingEvictions pending = (PendingEvictions) TransactionSynchronizationManager.getResource(this);
+            if (pending == null) {
+                pending = new PendingEvictions();
+                TransactionSynchronizationManager.bindResource(this, pending);
+                TransactionSynchronizationManager.registerSynchronization(new EvictionSynchronization(pending));
+            }
+            // 提交后的回调中再失效的key直接删除
+            if (!pending.flushed) {
+                pending.add(cacheTemplate, keys);
+                return;
+            }
+        }
+        remove(cacheTemplate, keys);
+    }
+
+    private void remove(CacheTemplate cacheTemplate, Collection<String> keys) {
+        List<String> keyList = Lists.newArrayList(keys);
+        try {
+            cacheTemplate.multiRemove(keyList);
+        } catch (Exception e) {
+            log.error("缓存失效失败，key数量：{}，{}", keyList.size(), e.getMessage());
+        }
+        if (scheduler != null) {
+            scheduler.schedule(() -> delayedRemove(cacheTemplate, keyList),
+                    cacheEvictProperties.getDoubleDeleteDelay(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void delayedRemove(CacheTemplate cacheTemplate, List<String> keys) {
+        try {
+            cacheTemplate.multiRemove(keys);
+        } catch (Exception e) {
+            log.error("缓存延迟双删失败，key数量：{}，{}", keys.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 事务内待删除的key，按CacheTemplate分组
+     */
+    private static final class PendingEvictions {
+
+        private final Map<CacheTemplate, Set<String>> keys = Maps.newIdentityHashMap();
+        private boolean flushed;
+
+        void add(CacheTemplate cacheTemplate, Collection<String> cacheKeys) {
+            keys.computeIfAbsent(cacheTemplate, template -> Sets.newLinkedHashSet()).addAll(cacheKeys);
+        }
+    }
+
+    private final class EvictionSynchronization extends TransactionSynchronizationAdapter {
+
+        private final PendingEvictions pending;
+
+        EvictionSynchronization(PendingEvictions pending) {
+            this.pending = pending;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TransactionalCacheEvictor.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TransactionalCacheEvictor.this, pending);
+        }
+
+        @Override
+        public void afterCommit() {
+            pending.flushed = true;
+            pending.keys.forEach(TransactionalCacheEvictor.this::remove);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TransactionalCacheEvictor.this);
+        }
+    }
+}
@@ -2,8 +2,13 @@ package com.github.sparkzxl.database.config;
 
 import com.github.sparkzxl.database.aspect.InjectionResultAspect;
 import com.github.sparkzxl.database.injection.InjectionCore;
+import com.github.sparkzxl.database.injection.InjectionMetricsRecorder;
+import com.github.sparkzxl.database.metrics.InjectionLoadMetrics;
 import com.github.sparkzxl.database.mybatis.hander.RemoteDataTypeHandler;
 import com.github.sparkzxl.database.properties.InjectionProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
@@ -23,8 +28,10 @@ public class InjectionDataAutoConfiguration {
 
     @Bean
     @ConditionalOnMissingBean
-    public InjectionCore injectionCore(InjectionProperties injectionProperties) {
-        return new InjectionCore(injectionProperties);
+    public InjectionCore injectionCore(InjectionProperties injectionProperties,
+                                       ObjectProvider<InjectionMetricsRecorder> metricsRecorder) {
+        InjectionMetricsRecorder recorder = metricsRecorder.getIfAvailable();
+        return recorder == null ? new InjectionCore(injectionProperties) : new InjectionCore(injectionProperties, recorder);
     }
 
     @Bean
@@ -45,4 +52,17 @@ public class InjectionDataAutoConfiguration {
         return new RemoteDataTypeHandler();
     }
 
+    /**
+     * 存在micrometer时按数据源输出远程查询指标
+     */
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    static class InjectionMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        public InjectionMetricsRecorder injectionMetricsRecorder(ObjectProvider<MeterRegistry> meterRegistry) {
+            return new InjectionLoadMetrics(meterRegistry);
+        }
+    }
 }
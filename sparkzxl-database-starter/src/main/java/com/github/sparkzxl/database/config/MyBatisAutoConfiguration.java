@@ -3,12 +3,18 @@ package com.github.sparkzxl.database.config;
 import cn.hutool.core.lang.Snowflake;
 import cn.hutool.core.util.IdUtil;
 import cn.hutool.json.JSONUtil;
+import com.github.sparkzxl.cache.template.CacheTemplate;
+import com.github.sparkzxl.database.base.service.SuperCacheService;
+import com.github.sparkzxl.database.cache.TransactionalCacheEvictor;
 import com.github.sparkzxl.database.mybatis.hander.MetaDataHandler;
 import com.github.sparkzxl.database.mybatis.injector.BaseSqlInjector;
 import com.github.sparkzxl.database.properties.DataProperties;
+import com.github.sparkzxl.database.warmup.CacheWarmUpRunner;
 import lombok.extern.slf4j.Slf4j;
 import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -48,4 +54,16 @@ public class MyBatisAutoConfiguration {
     public BaseSqlInjector sqlInjector() {
         return new BaseSqlInjector();
     }
+
+    @Bean
+    public TransactionalCacheEvictor transactionalCacheEvictor() {
+        return new TransactionalCacheEvictor(dataProperties.getCacheEvict());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "sparkzxl.data.warm-up.enabled", havingValue = "true", matchIfMissing = true)
+    public CacheWarmUpRunner cacheWarmUpRunner(ObjectProvider<CacheTemplate> cacheTemplateProvider,
+                                               ObjectProvider<SuperCacheService<?>> cacheServiceProvider) {
+        return new CacheWarmUpRunner(cacheTemplateProvider, cacheServiceProvider, dataProperties.getWarmUp());
+    }
 }
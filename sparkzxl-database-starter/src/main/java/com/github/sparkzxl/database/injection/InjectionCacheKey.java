@@ -0,0 +1,31 @@
+package com.github.sparkzxl.database.injection;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.Serializable;
+
+/**
+ * description: 关联数据本地缓存的key，按 数据源 + 查询值 缓存单条数据
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 16:20:14
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class InjectionCacheKey {
+
+    /**
+     * 数据源
+     */
+    private final InjectionFieldPo type;
+
+    /**
+     * 查询值
+     */
+    private final Serializable key;
+}
@@ -0,0 +1,121 @@
+package com.github.sparkzxl.database.injection;
+
+import com.google.common.cache.CacheLoader;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * description: 关联数据本地缓存加载器，未命中的key按数据源合并为一次远程查询；
+ * 刷新时同一数据源的待刷新key先登记，由后台线程合并为一次查询后逐个完成。
+ * 远程查询没有返回的key缓存为空值，避免每次注入都重复查询
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 16:24:37
+ */
+public class InjectionCacheLoader extends CacheLoader<InjectionCacheKey, Optional<Object>> {
+
+    private final Function<InjectionFieldExtPo, Map<Serializable, Object>> remoteLoader;
+    private final Executor refreshExecutor;
+    private final ConcurrentMap<InjectionFieldPo, Map<Serializable, SettableFuture<Optional<Object>>>> pendingRefreshes =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @param remoteLoader    远程查询，入参为数据源及待查询的key集合
+     * @param refreshExecutor 后台刷新线程池
+     */
+    public InjectionCacheLoader(Function<InjectionFieldExtPo, Map<Serializable, Object>> remoteLoader, Executor refreshExecutor) {
+        this.remoteLoader = remoteLoader;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    public Optional<Object> load(InjectionCacheKey key) {
+        return loadAll(Collections.singleton(key)).get(key);
+    }
+
+    @Override
+    public Map<InjectionCacheKey, Optional<Object>> loadAll(Iterable<? extends InjectionCacheKey> keys) {
+        Map<InjectionFieldPo, Set<Serializable>> keysByType = new LinkedHashMap<>();
+        for (InjectionCacheKey key : keys) {
+            keysByType.computeIfAbsent(key.getType(), type -> new LinkedHashSet<>()).add(key.getKey());
+        }
+        Map<InjectionCacheKey, Optional<Object>> result = Maps.newHashMap();
+        keysByType.forEach((type, typeKeys) -> {
+            Map<Serializable, Object> values = load(type, typeKeys);
+            typeKeys.forEach(key -> result.put(new InjectionCacheKey(type, key), Optional.ofNullable(lookup(values, key))));
+        });
+        return result;
+    }
+
+    /**
+     * 登记待刷新的key，同一数据源首个登记的key提交合并刷新任务
+     */
+    @Override
+    public ListenableFuture<Optional<Object>> reload(InjectionCacheKey key, Optional<Object> oldValue) {
+        SettableFuture<Optional<Object>> future = SettableFuture.create();
+        boolean[] first = new boolean[1];
+        pendingRefreshes.compute(key.getType(), (type, pending) -> {
+            if (pending == null) {
+                pending = new LinkedHashMap<>();
+                first[0] = true;
+            }
+            pending.put(key.getKey(), future);
+            return pending;
+        });
+        if (first[0]) {
+            try {
+                refreshExecutor.execute(() -> refresh(key.getType()));
+            } catch (RejectedExecutionException e) {
+                // 刷新失败时保留旧值，下次访问再刷新
+                Map<Serializable, SettableFuture<Optional<Object>>> pending = pendingRefreshes.remove(key.getType());
+                if (pending != null) {
+                    pending.values().forEach(pendingFuture -> pendingFuture.setException(e));
+                }
+            }
+        }
+        return future;
+    }
+
+    private void refresh(InjectionFieldPo type) {
+        Map<Serializable, SettableFuture<Optional<Object>>> pending = pendingRefreshes.remove(type);
+        if (pending == null) {
+            return;
+        }
+        try {
+            Map<Serializable, Object> values = load(type, pending.keySet());
+            pending.forEach((key, future) -> future.set(Optional.ofNullable(lookup(values, key))));
+        } catch (Exception e) {
+            pending.values().forEach(future -> future.setException(e));
+        }
+    }
+
+    private Map<Serializable, Object> load(InjectionFieldPo type, Set<Serializable> keys) {
+        Map<Serializable, Object> values = remoteLoader.apply(new InjectionFieldExtPo(type, keys));
+        return values == null ? Collections.emptyMap() : values;
+    }
+
+    /**
+     * feign 接口序列化后key可能变为字符串
+     */
+    static Object lookup(Map<Serializable, Object> values, Serializable key) {
+        Object value = values.get(key);
+        if (value == null && key != null) {
+            value = values.get(key.toString());
+        }
+        return value;
+    }
+}
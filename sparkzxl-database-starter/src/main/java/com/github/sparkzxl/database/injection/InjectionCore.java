@@ -7,32 +7,36 @@ import cn.hutool.json.JSONUtil;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.github.sparkzxl.database.entity.RemoteData;
 import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Maps;
-import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.github.sparkzxl.core.spring.SpringContextUtils;
-import com.github.sparkzxl.database.annonation.InjectionField;
 import com.github.sparkzxl.database.annonation.InjectionResult;
 import com.github.sparkzxl.database.properties.InjectionProperties;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
 import java.io.Serializable;
-import java.lang.reflect.Field;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * description: 字典数据注入工具类
  * 1. 通过反射将obj的字段上标记了@InjectionFiled注解的字段解析出来
- * 2. 依次查询待注入的数据
+ * 2. 各数据源的待注入数据并发查询，按数据源超时，超时或失败的数据源不注入
  * 3. 将查询出来结果注入到obj的 @InjectionFiled注解的字段中
  *
  * @author: zhouxinlei
@@ -40,16 +44,32 @@ import java.util.concurrent.TimeUnit;
  */
 @SuppressWarnings("ALL")
 @Slf4j
-public class InjectionCore {
-
-    private static final int MAX_DEPTH = 2;
+public class InjectionCore implements DisposableBean {
 
     private final InjectionProperties injectionProperties;
     private ListeningExecutorService backgroundRefreshPools;
-    private LoadingCache<InjectionFieldExtPo, Map<Serializable, Object>> caches;
+    private LoadingCache<InjectionCacheKey, Optional<Object>> caches;
+    private final ExecutorService remotePools;
+    private final InjectionMetricsRecorder metricsRecorder;
 
     public InjectionCore(InjectionProperties injectionProperties) {
+        this(injectionProperties, (source, elapsedNanos, result, keyCount) ->
+                log.debug("远程查询[{}] {} 个key，{}，耗时={} ms", source, keyCount, result,
+                        TimeUnit.NANOSECONDS.toMillis(elapsedNanos)));
+    }
+
+    public InjectionCore(InjectionProperties injectionProperties, InjectionMetricsRecorder metricsRecorder) {
         this.injectionProperties = injectionProperties;
+        this.metricsRecorder = metricsRecorder;
+        InjectionProperties.Remote remote = injectionProperties.getRemote();
+        CustomizableThreadFactory remoteThreadFactory = new CustomizableThreadFactory("injection-remote-");
+        remoteThreadFactory.setDaemon(true);
+        // 线程池满时由调用线程执行，查询不会被拒绝
+        this.remotePools = new ThreadPoolExecutor(remote.getThreadPoolSize(), remote.getThreadPoolSize(),
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(remote.getQueueCapacity()),
+                remoteThreadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
         InjectionProperties.GuavaCache guavaCache = injectionProperties.getGuavaCache();
         if (guavaCache.getEnabled()) {
             this.backgroundRefreshPools = MoreExecutors.listeningDecorator(
@@ -61,19 +81,8 @@ public class InjectionCore {
             this.caches = CacheBuilder.newBuilder()
                     .maximumSize(guavaCache.getMaximumSize())
                     .refreshAfterWrite(guavaCache.getRefreshWriteTime(), TimeUnit.MINUTES)
-                    .build(new CacheLoader<InjectionFieldExtPo, Map<Serializable, Object>>() {
-                        @Override
-                        public Map<Serializable, Object> load(InjectionFieldExtPo type) {
-                            log.info("首次读取缓存: " + type);
-                            return loadMap(type);
-                        }
-
-                        // 自动刷新缓存，防止脏数据
-                        @Override
-                        public ListenableFuture<Map<Serializable, Object>> reload(final InjectionFieldExtPo key, Map<Serializable, Object> oldValue) {
-                            return backgroundRefreshPools.submit(() -> load(key));
-                        }
-                    });
+                    // 按 数据源 + 查询值 缓存，未命中的key合并为一次远程查询，自动刷新缓存，防止脏数据
+                    .build(new InjectionCacheLoader(this::loadMap, backgroundRefreshPools));
         }
     }
 
@@ -92,7 +101,7 @@ public class InjectionCore {
     /**
      * 手动注入
      *
-     * @param obj        需要注入的对象、集合、IPage
+     * @param obj        需要注入的对象、集合、IPage、Map、数组
      * @param isUseCache 是否使用guava缓存
      */
     public void injection(Object obj, boolean isUseCache) {
@@ -101,36 +110,18 @@ public class InjectionCore {
             // value 为 待查询的数据
             Map<InjectionFieldPo, Map<Serializable, Object>> typeMap = Maps.newHashMap();
 
-            long parseStart = System.currentTimeMillis();
-            //1. 通过反射将obj的字段上标记了@InjectionFiled注解的字段解析出来
-            parse(obj, typeMap, 1, MAX_DEPTH);
-            long parseEnd = System.currentTimeMillis();
-            log.info("解析耗时={} ms", (parseEnd - parseStart));
+            //1. 遍历obj的对象图，将字段上标记了@InjectionFiled注解的字段解析出来
+            List<InjectionPoint> points = parse(obj, typeMap);
+            if (typeMap.isEmpty()) {
+                return;
+            }
+            // 2. 并发查询各数据源待注入的数据
+            load(typeMap, isUseCache);
             if (typeMap.isEmpty()) {
                 return;
             }
-            // 2. 依次查询待注入的数据
-            typeMap.entrySet().forEach(item -> {
-                InjectionFieldPo type = item.getKey();
-                Map<Serializable, Object> valueMap = item.getValue();
-                Set<Serializable> keys = valueMap.keySet();
-                try {
-                    InjectionFieldExtPo extPo = new InjectionFieldExtPo(type, keys);
-                    // 根据是否启用guava缓存 决定从那里调用
-                    Map<Serializable, Object> value = injectionProperties.getGuavaCache().getEnabled() && isUseCache ? caches.get(extPo) : loadMap(extPo);
-                    typeMap.put(type, value);
-                } catch (Exception e) {
-                    log.error("远程调用方法 [{}({}).{}] 失败， 请确保系统存在该方法", type.getApi(), type.getFeign().toString(), type.getMethod(), e);
-                }
-            });
-            long injectionStart = System.currentTimeMillis();
-            log.info("批量查询耗时={} ms", (injectionStart - parseEnd));
-
             // 3. 将查询出来结果注入到obj的 @InjectionFiled注解的字段中
-            injection(obj, typeMap, 1, MAX_DEPTH);
-            long injectionEnd = System.currentTimeMillis();
-
-            log.info("注入耗时={} ms", (injectionEnd - injectionStart));
+            inject(points, typeMap);
         } catch (Exception e) {
             log.warn("注入失败", e);
         }
@@ -140,6 +131,157 @@ public class InjectionCore {
         injection(obj, true);
     }
 
+    /**
+     * 各数据源同时提交查询，按各自的超时时间等待结果，超时或全部失败的数据源从typeMap中移除，其字段保持原值；
+     * 查询耗时在查询线程中记录，超时的查询仍在执行完成后记录实际耗时。
+     * 同一请求内已查询过或正在查询的key复用请求级加载器中的结果，只查询其余的key；
+     * 复用的查询失败时只重新查询对应的key，不影响同一数据源的其余key
+     *
+     * @param typeMap    数据源 -> 待查询的数据
+     * @param isUseCache 是否使用guava缓存，不使用时也不复用请求内的查询结果
+     */
+    private void load(Map<InjectionFieldPo, Map<Serializable, Object>> typeMap, boolean isUseCache) throws InterruptedException {
+        boolean useCache = injectionProperties.getGuavaCache().getEnabled() && isUseCache;
+        InjectionDataLoader dataLoader = injectionProperties.getRequestScoped() && isUseCache
+                ? InjectionDataLoader.current() : new InjectionDataLoader();
+        long start = System.nanoTime();
+        Map<InjectionFieldPo, InjectionDataLoader.Batch> batches = Maps.newHashMapWithExpectedSize(typeMap.size());
+        typeMap.forEach((type, valueMap) -> {
+            InjectionDataLoader.Batch batch = dataLoader.enqueue(type, valueMap.keySet());
+            batches.put(type, batch);
+            dispatch(type, batch, useCache);
+        });
+        for (Map.Entry<InjectionFieldPo, InjectionDataLoader.Batch> entry : batches.entrySet()) {
+            InjectionFieldPo type = entry.getKey();
+            InjectionDataLoader.Batch batch = entry.getValue();
+            String source = type.getSource();
+            long timeout = TimeUnit.MILLISECONDS.toNanos(getTimeout(source));
+            long deadline = start + timeout;
+            try {
+                Map<Serializable, Object> values = batch.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (!batch.getRetryKeys().isEmpty()) {
+                    values.putAll(retry(dataLoader, type, batch.getRetryKeys(), useCache, deadline));
+                }
+                if (batch.getFailure() != null) {
+                    log.error("远程调用方法 [{}.{}] 失败， 请确保系统存在该方法", source, type.getMethod(), batch.getFailure());
+                    if (values.isEmpty()) {
+                        typeMap.remove(type);
+                        continue;
+                    }
+                }
+                typeMap.put(type, values);
+            } catch (TimeoutException e) {
+                batch.cancel();
+                metricsRecorder.record(source, System.nanoTime() - start, InjectionMetricsRecorder.Result.TIMEOUT, typeMap.get(type).size());
+                log.warn("远程调用方法 [{}.{}] 超时 {} ms，跳过该数据源的注入", source, type.getMethod(), TimeUnit.NANOSECONDS.toMillis(timeout));
+                typeMap.remove(type);
+            }
+        }
+    }
+
+    /**
+     * 提交一批查询，本批没有需要远程查询的key时不提交
+     */
+    private void dispatch(InjectionFieldPo type, InjectionDataLoader.Batch batch, boolean useCache) {
+        if (!batch.hasPending()) {
+            return;
+        }
+        InjectionFieldExtPo extPo = new InjectionFieldExtPo(type, batch.getPendingKeys());
+        Callable<Void> task = () -> {
+            long taskStart = System.nanoTime();
+            try {
+                // 根据是否启用guava缓存 决定从那里调用
+                Map<Serializable, Object> value = useCache ? loadCached(type, extPo.getKeys()) : loadMap(extPo);
+                metricsRecorder.record(type.getSource(), System.nanoTime() - taskStart,
+                        InjectionMetricsRecorder.Result.SUCCESS, extPo.getKeys().size());
+                batch.complete(value == null ? Collections.emptyMap() : value);
+            } catch (Exception e) {
+                metricsRecorder.record(type.getSource(), System.nanoTime() - taskStart,
+                        InjectionMetricsRecorder.Result.FAILURE, extPo.getKeys().size());
+                batch.fail(e);
+            }
+            return null;
+        };
+        batch.dispatched(remotePools.submit(withRequestContext(task)));
+    }
+
+    /**
+     * 复用的其他批次查询失败的key重新排队查询一次，在原数据源的超时时间内等待，再次失败或超时的key不注入
+     */
+    private Map<Serializable, Object> retry(InjectionDataLoader dataLoader, InjectionFieldPo type, Set<Serializable> keys,
+                                            boolean useCache, long deadline) throws InterruptedException {
+        InjectionDataLoader.Batch batch = dataLoader.enqueue(type, keys);
+        dispatch(type, batch, useCache);
+        try {
+            Map<Serializable, Object> values = batch.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (batch.getFailure() != null || !batch.getRetryKeys().isEmpty()) {
+                log.warn("远程调用方法 [{}.{}] 重新查询失败，{} 个key跳过注入", type.getSource(), type.getMethod(),
+                        keys.size() - values.size());
+            }
+            return values;
+        } catch (TimeoutException e) {
+            batch.cancel();
+            log.warn("远程调用方法 [{}.{}] 重新查询超时，{} 个key跳过注入", type.getSource(), type.getMethod(), keys.size());
+            return Collections.emptyMap();
+        }
+    }
+
+    /**
+     * 批量读取本地缓存，只有未命中的key会远程查询
+     */
+    private Map<Serializable, Object> loadCached(InjectionFieldPo type, Set<Serializable> keys) throws ExecutionException {
+        List<InjectionCacheKey> cacheKeys = new ArrayList<>(keys.size());
+        for (Serializable key : keys) {
+            cacheKeys.add(new InjectionCacheKey(type, key));
+        }
+        Map<Serializable, Object> result = Maps.newHashMapWithExpectedSize(cacheKeys.size());
+        caches.getAll(cacheKeys).forEach((cacheKey, value) -> value.ifPresent(v -> result.put(cacheKey.getKey(), v)));
+        return result;
+    }
+
+    private long getTimeout(String source) {
+        InjectionProperties.Remote remote = injectionProperties.getRemote();
+        Long timeout = remote.getTimeouts().get(source);
+        return timeout == null ? remote.getTimeout() : timeout;
+    }
+
+    /**
+     * 将调用线程的请求上下文和MDC传递到查询线程，feign拦截器可以读取到当前请求的请求头；
+     * 线程池满时任务在调用线程执行，执行后恢复原有上下文
+     */
+    private static <T> Callable<T> withRequestContext(Callable<T> task) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        Map<String, String> contextMap = MDC.getCopyOfContextMap();
+        return () -> {
+            RequestAttributes previousAttributes = RequestContextHolder.getRequestAttributes();
+            Map<String, String> previousContextMap = MDC.getCopyOfContextMap();
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            setContextMap(contextMap);
+            try {
+                return task.call();
+            } finally {
+                RequestContextHolder.setRequestAttributes(previousAttributes);
+                setContextMap(previousContextMap);
+            }
+        };
+    }
+
+    private static void setContextMap(Map<String, String> contextMap) {
+        if (contextMap == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(contextMap);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        remotePools.shutdownNow();
+        if (backgroundRefreshPools != null) {
+            backgroundRefreshPools.shutdownNow();
+        }
+    }
+
     /**
      * aop方式加工
      *
@@ -160,218 +302,135 @@ public class InjectionCore {
     }
 
     /**
-     * 判断是否为基本类型
-     *
-     * @param field 字段
-     * @return
-     */
-    private boolean isNotBaseType(Object obj, Field field) {
-        String typeName = field.getType().getName();
-        return !StringUtils.equals(Integer.class.getName(), typeName) &&
-                !StringUtils.equals(Byte.class.getName(), typeName) &&
-                !StringUtils.equals(Long.class.getName(), typeName) &&
-                !StringUtils.equals(Double.class.getName(), typeName) &&
-                !StringUtils.equals(Float.class.getName(), typeName) &&
-                !StringUtils.equals(Character.class.getName(), typeName) &&
-                !StringUtils.equals(Short.class.getName(), typeName) &&
-                !StringUtils.equals(Boolean.class.getName(), typeName) &&
-                !StringUtils.equals(String.class.getName(), typeName) &&
-                !StringUtils.equals(RemoteData.class.getName(), typeName);
-    }
-
-
-    /**
-     * 1，遍历字段，解析出数据
-     * 2，遍历字段，设值
+     * 以工作队列按广度优先遍历对象图，解析出各数据源待查询的数据，同时记录待注入的字段，注入时不再遍历对象图。
+     * 支持IPage、Collection、Map的值及对象数组；同一对象只解析一次，共享或循环引用的对象不会重复遍历；
+     * 嵌套对象的最大深度取自所在字段@InjectionField注解的depth
      *
-     * @param obj
-     * @throws Exception
+     * @param obj     需要注入的对象、集合、IPage、Map、数组
+     * @param typeMap 数据源 -> 待查询的数据
+     * @return List<InjectionPoint> 待注入的字段
      */
-    private void parse(Object obj, Map<InjectionFieldPo, Map<Serializable, Object>> typeMap, int depth, int maxDepth) throws Exception {
-        if (obj == null) {
-            return;
-        }
-        if (depth > maxDepth) {
-            log.info("出现循环依赖，对多执行 {} 次， 已执行 {} 次，已为您跳出循环", depth, maxDepth);
-            return;
-        }
-        if (typeMap == null) {
-            typeMap = Maps.newHashMap();
-        }
-
-        if (obj instanceof IPage) {
-            List records = ((IPage) obj).getRecords();
-            parseList(records, typeMap, depth, maxDepth);
-            return;
-        }
-        if (obj instanceof Collection) {
-            parseList((Collection) obj, typeMap, depth, maxDepth);
-            return;
-        }
-
-        //解析方法上的注解，计算出obj对象中所有需要查询的数据
-        Field[] fields = ReflectUtil.getFields(obj.getClass());
-
-        for (Field field : fields) {
-            //是否使用MyAnno注解
-            InjectionField anno = field.getDeclaredAnnotation(InjectionField.class);
-            if (anno == null) {
+    private List<InjectionPoint> parse(Object obj, Map<InjectionFieldPo, Map<Serializable, Object>> typeMap) {
+        List<InjectionPoint> points = new ArrayList<>();
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node> queue = new ArrayDeque<>();
+        queue.add(new Node(obj, 1));
+        while (!queue.isEmpty()) {
+            Node node = queue.poll();
+            Object current = node.obj;
+            if (current == null || !visited.add(current)) {
                 continue;
             }
-            field.setAccessible(true);
-
-            if (isNotBaseType(obj, field)) {
-                parse(field.get(obj), typeMap, depth + 1, anno.depth());
+            if (current instanceof IPage) {
+                enqueue(queue, ((IPage) current).getRecords(), node);
                 continue;
             }
-
-            String api = anno.api();
-            Class<?> feign = anno.feign();
-
-            if (StrUtil.isEmpty(api) && Object.class.equals(feign)) {
-                log.warn("忽略解析字段: {}.{}", field.getType(), field.getName());
+            if (current instanceof Collection) {
+                enqueue(queue, (Collection) current, node);
                 continue;
             }
-
-            String key = anno.key();
-            InjectionFieldPo type = new InjectionFieldPo(anno);
-            Map<Serializable, Object> valueMap;
-            if (typeMap.get(type) == null) {
-                valueMap = Maps.newHashMap();
-            } else {
-                valueMap = typeMap.get(type);
-            }
-
-            Serializable queryKey;
-            if (StrUtil.isNotEmpty(key)) {
-                queryKey = key;
-            } else {
-                try {
-                    Object curField = ReflectUtil.getFieldValue(obj, field);
-                    if (curField instanceof RemoteData) {
-                        RemoteData remoteData = (RemoteData) curField;
-                        queryKey = (Serializable) remoteData.getKey();
-                    } else {
-                        queryKey = (Serializable) curField;
-                    }
-                } catch (Exception e) {
-                    log.warn("类型装换失败忽略注入字段: {}.{}", field.getType(), field.getName());
-                    continue;
-                }
+            if (current instanceof Map) {
+                enqueue(queue, ((Map) current).values(), node);
+                continue;
             }
-
-            if (ObjectUtil.isNotEmpty(queryKey)) {
-                valueMap.put(queryKey, null);
+            if (current instanceof Object[]) {
+                enqueue(queue, Arrays.asList((Object[]) current), node);
+                continue;
             }
-
-            typeMap.put(type, valueMap);
-        }
-    }
-
-    /**
-     * 解析list
-     *
-     * @param list
-     * @param typeMap
-     * @throws Exception
-     */
-    private void parseList(Collection list, Map typeMap, int depth, int maxDepth) throws Exception {
-        for (Object item : list) {
-            parse(item, typeMap, depth, maxDepth);
+            parseFields(current, node, typeMap, points, queue);
         }
+        return points;
     }
 
     /**
-     * 注入
-     *
-     * @param obj
-     * @param typeMap
-     * @param depth
-     * @param maxDepth
-     * @throws Exception
+     * 容器中的元素与容器处于同一深度
      */
-    private void injection(Object obj, Map<InjectionFieldPo, Map<Serializable, Object>> typeMap, int depth, int maxDepth) throws Exception {
-        if (obj == null) {
-            return;
-        }
-        if (depth > maxDepth) {
-            log.info("出现循环依赖，对多执行 {} 次， 已执行 {} 次，已为您跳出循环", depth, maxDepth);
-            return;
-        }
-        if (typeMap == null || typeMap.isEmpty()) {
+    private void enqueue(Deque<Node> queue, Collection<?> items, Node parent) {
+        if (items == null) {
             return;
         }
-
-        if (obj instanceof IPage) {
-            List records = ((IPage) obj).getRecords();
-            injectionList(records, typeMap);
-            return;
-        }
-        if (obj instanceof Collection) {
-            injectionList((Collection) obj, typeMap);
-            return;
+        for (Object item : items) {
+            if (item != null) {
+                queue.add(new Node(item, parent.depth));
+            }
         }
-
-        //解析方法上的注解，计算出obj对象中所有需要查询的数据
-        parseAnnotationsAndGetata(obj, typeMap, depth);
     }
 
-    private void parseAnnotationsAndGetata(Object obj, Map<InjectionFieldPo, Map<Serializable, Object>> typeMap, int depth) throws Exception {
-        Field[] fields = ReflectUtil.getFields(obj.getClass());
-        for (Field field : fields) {
-            //是否使用MyAnno注解
-            InjectionField anno = field.getDeclaredAnnotation(InjectionField.class);
-            if (anno == null) {
-                continue;
-            }
-            field.setAccessible(true);
-            //类型
-            if (isNotBaseType(obj, field)) {
-                injection(field.get(obj), typeMap, depth + 1, anno.depth());
+    /**
+     * 按预编译的注入计划，计算出obj对象中所有需要查询的数据
+     */
+    private void parseFields(Object obj, Node node, Map<InjectionFieldPo, Map<Serializable, Object>> typeMap,
+                             List<InjectionPoint> points, Deque<Node> queue) {
+        for (InjectionPlan.FieldPlan field : InjectionPlan.of(obj.getClass()).getFields()) {
+            if (field.isNested()) {
+                Object child = field.get(obj);
+                if (child == null) {
+                    continue;
+                }
+                if (node.depth + 1 > field.getDepth()) {
+                    log.debug("字段[{}]超过最大深度 {}，跳过", field, field.getDepth());
+                    continue;
+                }
+                queue.add(new Node(child, node.depth + 1));
                 continue;
             }
 
-            String api = anno.api();
-            Class<?> feign = anno.feign();
-
-            if (StrUtil.isEmpty(api) && Object.class.equals(feign)) {
-                log.warn("忽略注入字段: {}.{}", field.getType(), field.getName());
+            if (field.isIgnored()) {
+                log.warn("忽略解析字段: {}", field);
                 continue;
             }
 
-            String key = anno.key();
-            InjectionFieldPo type = new InjectionFieldPo(anno);
+            InjectionFieldPo type = field.getType();
+            Map<Serializable, Object> valueMap = typeMap.computeIfAbsent(type, po -> Maps.newHashMap());
+
+            Object curField = field.get(obj);
             Serializable queryKey;
-            if (StrUtil.isNotEmpty(key)) {
-                queryKey = key;
-            } else {
-                Object curField = ReflectUtil.getFieldValue(obj, field);
-                if (curField instanceof RemoteData) {
-                    RemoteData remoteData = (RemoteData) curField;
-                    queryKey = (Serializable) remoteData.getKey();
+            try {
+                if (field.hasFixedKey()) {
+                    queryKey = field.getKey();
+                } else if (curField instanceof RemoteData) {
+                    queryKey = (Serializable) ((RemoteData) curField).getKey();
                 } else {
                     queryKey = (Serializable) curField;
                 }
-            }
-
-            Map<Serializable, Object> valueMap = typeMap.get(type);
-
-            if (valueMap == null || valueMap.isEmpty()) {
+            } catch (ClassCastException e) {
+                log.warn("类型装换失败忽略注入字段: {}", field);
                 continue;
             }
 
-            Object curField = ReflectUtil.getFieldValue(obj, field);
+            if (ObjectUtil.isNotEmpty(queryKey)) {
+                valueMap.put(queryKey, null);
+            }
             if (curField == null) {
                 log.debug("字段[{}]为空,跳过", field.getName());
                 continue;
             }
+            points.add(new InjectionPoint(obj, field, curField, queryKey));
+        }
+    }
+
+    /**
+     * 将查询结果注入到解析时记录的字段中
+     *
+     * @param points  待注入的字段
+     * @param typeMap 数据源 -> 查询结果
+     */
+    private void inject(List<InjectionPoint> points, Map<InjectionFieldPo, Map<Serializable, Object>> typeMap) {
+        for (InjectionPoint point : points) {
+            InjectionFieldPo type = point.field.getType();
+            Map<Serializable, Object> valueMap = typeMap.get(type);
+
+            if (valueMap == null || valueMap.isEmpty()) {
+                continue;
+            }
 
+            Serializable queryKey = point.queryKey;
             Object newVal = valueMap.get(queryKey);
             if (ObjectUtil.isNull(newVal) && ObjectUtil.isNotEmpty(queryKey)) {
                 newVal = valueMap.get(queryKey.toString());
             }
-            if (curField instanceof RemoteData) {
-                RemoteData remoteData = (RemoteData) curField;
+            if (point.value instanceof RemoteData) {
+                RemoteData remoteData = (RemoteData) point.value;
 
                 // feign 接口序列化 丢失类型
                 if (newVal instanceof Map && !Object.class.equals(type.getBeanClass())) {
@@ -381,14 +440,40 @@ public class InjectionCore {
                 }
                 remoteData.setData(newVal);
             } else {
-                ReflectUtil.setFieldValue(obj, field, newVal);
+                point.field.set(point.target, newVal);
             }
         }
     }
 
-    private void injectionList(Collection list, Map typeMap) throws Exception {
-        for (Object item : list) {
-            injection(item, typeMap, 1, MAX_DEPTH);
+    /**
+     * 待遍历的对象及其深度
+     */
+    private static final class Node {
+
+        private final Object obj;
+        private final int depth;
+
+        Node(Object obj, int depth) {
+            this.obj = obj;
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * 待注入的字段，记录解析时读取的字段值及查询值
+     */
+    private static final class InjectionPoint {
+
+        private final Object target;
+        private final InjectionPlan.FieldPlan field;
+        private final Object value;
+        private final Serializable queryKey;
+
+        InjectionPoint(Object target, InjectionPlan.FieldPlan field, Object value, Serializable queryKey) {
+            this.target = target;
+            this.field = field;
+            this.value = value;
+            this.queryKey = queryKey;
         }
     }
 }
@@ -0,0 +1,192 @@
+package com.github.sparkzxl.database.injection;
+
+import com.google.common.collect.Maps;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * description: 请求级关联数据加载器，同一请求内多次注入共用，按 数据源 + 查询值 记录查询结果。
+ * 一次注入解析出的key按数据源排队去重，已查询过或正在查询的key直接复用结果，其余key合并为一批远程查询；
+ * 查询失败或超时的key不记录，之后的注入重新查询；复用的其他批次查询失败时只影响对应的key，由调用方重新排队
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 17:08:52
+ */
+public class InjectionDataLoader {
+
+    private static final String ATTRIBUTE = InjectionDataLoader.class.getName();
+
+    private final ConcurrentMap<InjectionCacheKey, CompletableFuture<Optional<Object>>> results = new ConcurrentHashMap<>();
+
+    /**
+     * 获取当前请求的加载器，不在请求中时返回新的加载器，仅在本次注入内去重
+     *
+     * @return InjectionDataLoader
+     */
+    public static InjectionDataLoader current() {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (requestAttributes == null) {
+            return new InjectionDataLoader();
+        }
+        synchronized (requestAttributes) {
+            InjectionDataLoader dataLoader = (InjectionDataLoader) requestAttributes.getAttribute(ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (dataLoader == null) {
+                dataLoader = new InjectionDataLoader();
+                requestAttributes.setAttribute(ATTRIBUTE, dataLoader, RequestAttributes.SCOPE_REQUEST);
+            }
+            return dataLoader;
+        }
+    }
+
+    /**
+     * 登记数据源待查询的key
+     *
+     * @param type 数据源
+     * @param keys 查询值
+     * @return Batch 本次需要远程查询的key及全部key的查询结果
+     */
+    public Batch enqueue(InjectionFieldPo type, Collection<Serializable> keys) {
+        Batch batch = new Batch(type);
+        for (Serializable key : keys) {
+            InjectionCacheKey cacheKey = new InjectionCacheKey(type, key);
+            CompletableFuture<Optional<Object>> future = new CompletableFuture<>();
+            CompletableFuture<Optional<Object>> existing = results.putIfAbsent(cacheKey, future);
+            if (existing == null) {
+                batch.pending.put(key, future);
+                batch.futures.put(key, future);
+            } else {
+                batch.futures.put(key, existing);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 一个数据源的一批查询
+     */
+    public final class Batch {
+
+        private final InjectionFieldPo type;
+        private final Map<Serializable, CompletableFuture<Optional<Object>>> pending = Maps.newLinkedHashMap();
+        private final Map<Serializable, CompletableFuture<Optional<Object>>> futures = Maps.newHashMap();
+        private final Set<Serializable> retryKeys = new LinkedHashSet<>();
+        private volatile Future<?> dispatched;
+        private volatile Throwable failure;
+
+        private Batch(InjectionFieldPo type) {
+            this.type = type;
+        }
+
+        /**
+         * 需要远程查询的key，不包含本请求内已查询过或正在查询的key
+         *
+         * @return Set<Serializable>
+         */
+        public Set<Serializable> getPendingKeys() {
+            return new LinkedHashSet<>(pending.keySet());
+        }
+
+        public boolean hasPending() {
+            return !pending.isEmpty();
+        }
+
+        /**
+         * 记录已提交的远程查询，超时时取消
+         *
+         * @param dispatched 远程查询任务
+         */
+        public void dispatched(Future<?> dispatched) {
+            this.dispatched = dispatched;
+        }
+
+        /**
+         * 远程查询完成，记录查询结果
+         *
+         * @param values 远程查询结果
+         */
+        public void complete(Map<Serializable, Object> values) {
+            pending.forEach((key, future) -> future.complete(Optional.ofNullable(InjectionCacheLoader.lookup(values, key))));
+        }
+
+        /**
+         * 远程查询失败，丢弃本批key
+         *
+         * @param e 异常
+         */
+        public void fail(Throwable e) {
+            failure = e;
+            pending.forEach((key, future) -> {
+                results.remove(new InjectionCacheKey(type, key), future);
+                future.completeExceptionally(e);
+            });
+        }
+
+        /**
+         * 等待全部key的查询结果，逐个key收集，失败的key不影响其余key：
+         * 本批查询失败时记录在{@link #getFailure()}，复用的其他批次查询失败的key记录在{@link #getRetryKeys()}
+         *
+         * @param timeout 超时时间
+         * @param unit    时间单位
+         * @return Map<Serializable, Object> 查询值 -> 数据，没有数据或查询失败的key不包含在内
+         */
+        public Map<Serializable, Object> get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).get(timeout, unit);
+            } catch (ExecutionException e) {
+                // 全部完成后才会抛出，下面逐个key区分成功和失败
+            }
+            Map<Serializable, Object> values = Maps.newHashMapWithExpectedSize(futures.size());
+            futures.forEach((key, future) -> {
+                if (!future.isCompletedExceptionally()) {
+                    future.join().ifPresent(value -> values.put(key, value));
+                } else if (!pending.containsKey(key)) {
+                    retryKeys.add(key);
+                }
+            });
+            return values;
+        }
+
+        /**
+         * 复用的其他批次查询失败的key，失败时已从加载器中移除，重新排队即可再次查询
+         *
+         * @return Set<Serializable>
+         */
+        public Set<Serializable> getRetryKeys() {
+            return retryKeys;
+        }
+
+        /**
+         * 本批远程查询的异常
+         *
+         * @return Throwable 查询成功或没有需要远程查询的key时为null
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * 超时后取消远程查询并丢弃本批key
+         */
+        public void cancel() {
+            Future<?> current = dispatched;
+            if (current != null) {
+                current.cancel(true);
+            }
+            fail(new TimeoutException("远程查询超时"));
+        }
+    }
+}
@@ -62,6 +62,18 @@ public class InjectionFieldPo {
         this.beanClass = rf.beanClass();
     }
 
+    /**
+     * 数据源名称，api名称或feign接口的全限定名
+     *
+     * @return String
+     */
+    public String getSource() {
+        if (StrUtil.isNotEmpty(api)) {
+            return api;
+        }
+        return feign == null ? null : feign.getName();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -0,0 +1,36 @@
+package com.github.sparkzxl.database.injection;
+
+/**
+ * description: 关联数据远程查询指标记录，按数据源记录每次批量查询的耗时及结果
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 15:06:31
+ */
+@FunctionalInterface
+public interface InjectionMetricsRecorder {
+
+    /**
+     * 记录一次远程查询
+     *
+     * @param source       数据源，api名称或feign接口的全限定名
+     * @param elapsedNanos 耗时（单位：纳秒），超时时为等待时长
+     * @param result       查询结果
+     * @param keyCount     查询的key数量
+     */
+    void record(String source, long elapsedNanos, Result result, int keyCount);
+
+    enum Result {
+        /**
+         * 查询成功
+         */
+        SUCCESS,
+        /**
+         * 查询超时，该数据源不注入
+         */
+        TIMEOUT,
+        /**
+         * 查询失败，该数据源不注入
+         */
+        FAILURE
+    }
+}
@@ -0,0 +1,217 @@
+package com.github.sparkzxl.database.injection;
+
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+import com.github.sparkzxl.database.annonation.InjectionField;
+import com.github.sparkzxl.database.entity.RemoteData;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * description: 类的注入计划，每个类只在首次注入时解析一次标记了@InjectionField注解的字段，
+ * 预先生成字段读写的MethodHandle及查询参数，之后解析和注入只需遍历计划中的字段
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 13:52:06
+ */
+@Slf4j
+public final class InjectionPlan {
+
+    /**
+     * 直接注入的字段类型，其余类型的字段作为嵌套对象继续解析
+     */
+    private static final Set<Class<?>> BASE_TYPES = ImmutableSet.of(Integer.class, Byte.class, Long.class, Double.class,
+            Float.class, Character.class, Short.class, Boolean.class, String.class, RemoteData.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<InjectionPlan> PLANS = new ClassValue<InjectionPlan>() {
+        @Override
+        protected InjectionPlan computeValue(Class<?> type) {
+            return compile(type);
+        }
+    };
+
+    private final List<FieldPlan> fields;
+
+    private InjectionPlan(List<FieldPlan> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * 获取类的注入计划
+     *
+     * @param type 类
+     * @return InjectionPlan
+     */
+    public static InjectionPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * 标记了@InjectionField注解的字段
+     *
+     * @return List<FieldPlan>
+     */
+    public List<FieldPlan> getFields() {
+        return fields;
+    }
+
+    public boolean isEmpty() {
+        return fields.isEmpty();
+    }
+
+    private static InjectionPlan compile(Class<?> type) {
+        List<FieldPlan> fields = Lists.newArrayList();
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Field field : ReflectUtil.getFields(type)) {
+            InjectionField anno = field.getDeclaredAnnotation(InjectionField.class);
+            if (anno == null || Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            field.setAccessible(true);
+            try {
+                fields.add(new FieldPlan(field, anno, lookup));
+            } catch (IllegalAccessException e) {
+                log.warn("忽略无法访问的注入字段: {}.{}", type.getName(), field.getName());
+            }
+        }
+        return new InjectionPlan(ImmutableList.copyOf(fields));
+    }
+
+    /**
+     * 字段的注入计划
+     */
+    public static final class FieldPlan {
+
+        private final Field field;
+        private final InjectionFieldPo type;
+        private final String key;
+        private final int depth;
+        private final boolean nested;
+        private final boolean remoteData;
+        private final boolean ignored;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        FieldPlan(Field field, InjectionField anno, MethodHandles.Lookup lookup) throws IllegalAccessException {
+            this.field = field;
+            this.type = new InjectionFieldPo(anno);
+            this.key = anno.key();
+            this.depth = anno.depth();
+            this.nested = !BASE_TYPES.contains(field.getType());
+            this.remoteData = RemoteData.class.equals(field.getType());
+            this.ignored = StrUtil.isEmpty(anno.api()) && Object.class.equals(anno.feign());
+            this.getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+            this.setter = Modifier.isFinal(field.getModifiers()) ? null : lookup.unreflectSetter(field).asType(SETTER_TYPE);
+        }
+
+        /**
+         * 远程查询对象，同一字段的所有实例共用
+         */
+        public InjectionFieldPo getType() {
+            return type;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public String getName() {
+            return field.getName();
+        }
+
+        /**
+         * 注解中的固定查询值，为空时使用字段值
+         */
+        public String getKey() {
+            return key;
+        }
+
+        public boolean hasFixedKey() {
+            return StrUtil.isNotEmpty(key);
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * 是否为嵌套对象，嵌套对象的字段继续解析注入
+         */
+        public boolean isNested() {
+            return nested;
+        }
+
+        public boolean isRemoteData() {
+            return remoteData;
+        }
+
+        /**
+         * api和feign均未指定时忽略该字段
+         */
+        public boolean isIgnored() {
+            return ignored;
+        }
+
+        /**
+         * 读取字段值
+         *
+         * @param obj 对象
+         * @return Object
+         */
+        public Object get(Object obj) {
+            try {
+                return getter.invokeExact(obj);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * 写入字段值，值类型与字段类型不符时先转换，与ReflectUtil.setFieldValue一致
+         *
+         * @param obj   对象
+         * @param value 值
+         */
+        public void set(Object obj, Object value) {
+            Class<?> fieldType = field.getType();
+            if (value != null && !fieldType.isInstance(value)) {
+                Object targetValue = Convert.convert(fieldType, value);
+                if (targetValue != null) {
+                    value = targetValue;
+                }
+            }
+            if (setter == null) {
+                ReflectUtil.setFieldValue(obj, field, value);
+                return;
+            }
+            try {
+                setter.invokeExact(obj, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return field.getDeclaringClass().getName() + "." + field.getName();
+        }
+    }
+}
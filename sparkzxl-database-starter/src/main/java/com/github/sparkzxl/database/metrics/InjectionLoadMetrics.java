@@ -0,0 +1,46 @@
+package com.github.sparkzxl.database.metrics;
+
+import com.github.sparkzxl.database.injection.InjectionMetricsRecorder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * description: 关联数据远程查询指标，按数据源及结果输出查询耗时和每批key数量
+ *
+ * @author zhouxinlei
+ * @date 2020-10-19 15:12:47
+ */
+public class InjectionLoadMetrics implements InjectionMetricsRecorder {
+
+    private static final String PREFIX = "sparkzxl.injection.load";
+
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public InjectionLoadMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void record(String source, long elapsedNanos, Result result, int keyCount) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return;
+        }
+        String resultTag = result.name().toLowerCase();
+        Timer.builder(PREFIX)
+                .tag("source", source)
+                .tag("result", resultTag)
+                .description("关联数据远程查询耗时")
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(PREFIX + ".keys")
+                .tag("source", source)
+                .description("关联数据每次远程查询的key数量")
+                .register(registry)
+                .record(keyCount);
+    }
+}
@@ -7,6 +7,7 @@ import com.baomidou.mybatisplus.extension.injector.methods.AlwaysUpdateSomeColum
 import com.baomidou.mybatisplus.extension.injector.methods.InsertBatchSomeColumn;
 import com.baomidou.mybatisplus.extension.injector.methods.LogicDeleteByIdWithFill;
 import com.github.sparkzxl.database.mybatis.methods.DeleteAll;
+import com.github.sparkzxl.database.mybatis.methods.SelectCursor;
 
 import java.util.List;
 
@@ -23,6 +24,7 @@ public class BaseSqlInjector extends DefaultSqlInjector {
         List<AbstractMethod> methodList = super.getMethodList(mapperClass);
         //增加自定义方法
         methodList.add(new DeleteAll());
+        methodList.add(new SelectCursor());
         /**
          * 以下 3 个为内置选装件
          * 头 2 个支持字段筛选函数
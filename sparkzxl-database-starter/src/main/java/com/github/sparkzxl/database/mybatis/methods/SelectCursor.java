@@ -0,0 +1,27 @@
+package com.github.sparkzxl.database.mybatis.methods;
+
+import com.baomidou.mybatisplus.core.enums.SqlMethod;
+import com.baomidou.mybatisplus.core.injector.AbstractMethod;
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+
+/**
+ * description: 游标查询，sql与selectList一致，mapper方法返回Cursor时逐行映射结果
+ *
+ * @author zhouxinlei
+ * @date 2020-10-18 09:12:40
+ */
+public class SelectCursor extends AbstractMethod {
+
+    @Override
+    public MappedStatement injectMappedStatement(Class<?> mapperClass, Class<?> modelClass, TableInfo tableInfo) {
+        SqlMethod sqlMethod = SqlMethod.SELECT_LIST;
+        String sql = String.format(sqlMethod.getSql(), sqlFirst(), sqlSelectColumns(tableInfo, true), tableInfo.getTableName(),
+                sqlWhereEntityWrapper(true, tableInfo), sqlComment());
+        /* mapper 接口方法名一致 */
+        String method = "selectCursor";
+        SqlSource sqlSource = languageDriver.createSqlSource(configuration, sql, modelClass);
+        return this.addSelectMappedStatementForTable(mapperClass, method, sqlSource, tableInfo);
+    }
+}
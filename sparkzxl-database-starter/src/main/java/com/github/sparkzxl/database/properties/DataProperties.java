@@ -19,4 +19,57 @@ public class DataProperties {
 
     private long dataCenterId = 0;
 
+    /**
+     * 缓存预热配置
+     */
+    private WarmUp warmUp = new WarmUp();
+
+    /**
+     * 缓存失效配置
+     */
+    private CacheEvict cacheEvict = new CacheEvict();
+
+    @Data
+    public static class WarmUp {
+
+        /**
+         * 是否在启动时预热声明了预热查询的缓存服务
+         */
+        private boolean enabled = true;
+
+        /**
+         * 批量写入缓存的并行线程数
+         */
+        private int parallelism = 4;
+
+        /**
+         * 每批写入缓存的数量
+         */
+        private int batchSize = 500;
+
+        /**
+         * 预热数据的过期时间（单位：秒），小于等于0时不过期
+         */
+        private long expireTime = 0L;
+
+        /**
+         * 每读取该数量的数据输出一次进度
+         */
+        private long progressInterval = 10000L;
+    }
+
+    @Data
+    public static class CacheEvict {
+
+        /**
+         * 是否在事务提交后首次删除的基础上延迟再删除一次
+         */
+        private boolean doubleDeleteEnabled = false;
+
+        /**
+         * 延迟双删的延迟时间（单位：毫秒），应大于一次读库并回填缓存的耗时
+         */
+        private long doubleDeleteDelay = 500L;
+    }
+
 }
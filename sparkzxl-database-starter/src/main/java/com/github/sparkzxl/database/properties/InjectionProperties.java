@@ -3,6 +3,9 @@ package com.github.sparkzxl.database.properties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * description: Injection配置类
  *
@@ -20,12 +23,21 @@ public class InjectionProperties {
      * 是否启用aop注解方式
      */
     private Boolean aopEnabled = true;
+    /**
+     * 是否在同一请求内复用远程查询结果，同一请求多次注入时已查询过的key不再查询
+     */
+    private Boolean requestScoped = true;
 
     /**
      * 本地缓存配置信息
      */
     private GuavaCache guavaCache = new GuavaCache();
 
+    /**
+     * 远程查询配置信息
+     */
+    private Remote remote = new Remote();
+
     @Data
     public static class GuavaCache {
         /**
@@ -35,9 +47,9 @@ public class InjectionProperties {
          */
         private Boolean enabled = true;
         /**
-         * guava缓存的 最大数
+         * guava缓存的 最大数，按 数据源 + 查询值 计数
          */
-        private Integer maximumSize = 1000;
+        private Integer maximumSize = 10000;
         /**
          * guava更新缓存的下一次时间,分钟
          */
@@ -47,4 +59,24 @@ public class InjectionProperties {
          */
         private Integer refreshThreadPoolSize = 10;
     }
+
+    @Data
+    public static class Remote {
+        /**
+         * 并发执行远程查询的线程数，线程池满时由调用线程执行
+         */
+        private Integer threadPoolSize = 8;
+        /**
+         * 远程查询线程池的队列长度
+         */
+        private Integer queueCapacity = 64;
+        /**
+         * 远程查询默认超时时间（单位：毫秒），超时的数据源不注入，其余数据源正常注入
+         */
+        private Long timeout = 3000L;
+        /**
+         * 按数据源单独配置的超时时间（单位：毫秒），key为api名称或feign接口的全限定名
+         */
+        private Map<String, Long> timeouts = new HashMap<>();
+    }
 }
@@ -0,0 +1,107 @@
+package com.github.sparkzxl.database.warmup;
+
+import com.github.sparkzxl.cache.template.CacheTemplate;
+import com.github.sparkzxl.database.base.service.SuperCacheService;
+import com.github.sparkzxl.database.properties.DataProperties;
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * description: 启动时缓存预热，在应用就绪前依次游标读取各缓存服务的预热数据，
+ * 分批提交到有界线程池批量写入缓存，队列已满时由读取线程自行写入，避免读取速度超过写入速度时占用过多内存
+ *
+ * @author zhouxinlei
+ * @date 2020-10-18 09:40:16
+ */
+@Slf4j
+public class CacheWarmUpRunner implements ApplicationRunner {
+
+    private final ObjectProvider<CacheTemplate> cacheTemplateProvider;
+    private final ObjectProvider<SuperCacheService<?>> cacheServiceProvider;
+    private final DataProperties.WarmUp warmUpProperties;
+
+    public CacheWarmUpRunner(ObjectProvider<CacheTemplate> cacheTemplateProvider,
+                             ObjectProvider<SuperCacheService<?>> cacheServiceProvider,
+                             DataProperties.WarmUp warmUpProperties) {
+        this.cacheTemplateProvider = cacheTemplateProvider;
+        this.cacheServiceProvider = cacheServiceProvider;
+        this.warmUpProperties = warmUpProperties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        CacheTemplate cacheTemplate = cacheTemplateProvider.getIfAvailable();
+        List<SuperCacheService<?>> cacheServices = cacheServiceProvider.orderedStream().collect(Collectors.toList());
+        if (cacheTemplate == null || cacheServices.isEmpty()) {
+            return;
+        }
+        int parallelism = Math.max(1, warmUpProperties.getParallelism());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-warm-up-");
+        threadFactory.setDaemon(true);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * 2), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        long start = System.currentTimeMillis();
+        long total = 0;
+        try {
+            for (SuperCacheService<?> cacheService : cacheServices) {
+                total += warmUp(cacheService, cacheTemplate, executor);
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (total > 0) {
+            log.info("缓存预热完成，共写入 {} 条，耗时 {} ms", total, System.currentTimeMillis() - start);
+        }
+    }
+
+    private long warmUp(SuperCacheService<?> cacheService, CacheTemplate cacheTemplate, ThreadPoolExecutor executor) {
+        String name = AopUtils.getTargetClass(cacheService).getSimpleName();
+        Long expireTime = warmUpProperties.getExpireTime() > 0 ? warmUpProperties.getExpireTime() : null;
+        long progressInterval = Math.max(1L, warmUpProperties.getProgressInterval());
+        long start = System.currentTimeMillis();
+        LongAdder written = new LongAdder();
+        List<Future<?>> futures = Lists.newArrayList();
+        long[] read = new long[1];
+        try {
+            long count = cacheService.warmUpCache(warmUpProperties.getBatchSize(), batch -> {
+                long previous = read[0];
+                read[0] += batch.size();
+                futures.add(executor.submit(() -> write(cacheTemplate, batch, expireTime, written)));
+                if (read[0] / progressInterval > previous / progressInterval) {
+                    log.info("[{}]缓存预热进度：已读取 {} 条，已写入 {} 条", name, read[0], written.sum());
+                }
+            });
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            if (count > 0) {
+                log.info("[{}]缓存预热完成：{} 条，耗时 {} ms", name, written.sum(), System.currentTimeMillis() - start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("[{}]缓存预热被中断，已写入 {} 条", name, written.sum());
+        } catch (Exception e) {
+            log.error("[{}]缓存预热失败，已写入 {} 条：{}", name, written.sum(), e.getMessage());
+        }
+        return written.sum();
+    }
+
+    private static void write(CacheTemplate cacheTemplate, Map<String, Object> batch, Long expireTime, LongAdder written) {
+        cacheTemplate.multiSet(batch, expireTime);
+        written.add(batch.size());
+    }
+}
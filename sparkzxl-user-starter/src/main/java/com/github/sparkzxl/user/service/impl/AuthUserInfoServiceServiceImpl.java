@@ -2,7 +2,7 @@ package com.github.sparkzxl.user.service.impl;
 
 import com.github.sparkzxl.core.constant.BaseContextConstant;
 import com.github.sparkzxl.core.support.SparkZxlExceptionAssert;
-import com.github.sparkzxl.core.utils.KeyUtils;
+import com.github.sparkzxl.core.utils.KeyTemplate;
 import com.github.sparkzxl.core.entity.AuthUserInfo;
 import com.github.sparkzxl.cache.template.CacheTemplate;
 import com.github.sparkzxl.core.support.ResponseResultStatus;
@@ -20,13 +20,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 @Slf4j
 public class AuthUserInfoServiceServiceImpl implements IAuthUserInfoService {
 
+    private static final KeyTemplate AUTH_USER_KEY = KeyTemplate.of(BaseContextConstant.AUTH_USER);
+
     @Autowired(required = false)
     public CacheTemplate cacheTemplate;
 
     @Override
     public AuthUserInfo getUserInfo(String accessToken) {
         log.info("accessToken is {}", accessToken);
-        AuthUserInfo authUser = getCache(KeyUtils.buildKey(BaseContextConstant.AUTH_USER, accessToken));
+        AuthUserInfo authUser = getCache(AUTH_USER_KEY.key(accessToken));
         ResponseResultStatus.UN_AUTHORIZED.assertNotNull(authUser);
         return authUser;
     }
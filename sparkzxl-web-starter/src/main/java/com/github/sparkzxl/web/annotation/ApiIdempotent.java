@@ -15,5 +15,24 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 public @interface ApiIdempotent {
 
+    /**
+     * token模式下token的位置，head：请求头，其他：请求参数
+     *
+     * @return String
+     */
     String value() default "head";
+
+    /**
+     * 幂等校验方式
+     *
+     * @return IdempotentMode
+     */
+    IdempotentMode mode() default IdempotentMode.TOKEN;
+
+    /**
+     * 请求指纹模式下的去重时间窗口（单位：秒），窗口内相同指纹的请求视为重复提交
+     *
+     * @return long
+     */
+    long window() default 3L;
 }
@@ -0,0 +1,20 @@
+package com.github.sparkzxl.web.annotation;
+
+/**
+ * description: API幂等校验方式
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 17:20:36
+ */
+public enum IdempotentMode {
+
+    /**
+     * 提交前获取token，提交时原子消费token，token只能使用一次
+     */
+    TOKEN,
+
+    /**
+     * 请求指纹（用户 + 请求方法 + URI + 查询参数 + 请求体的哈希），去重时间窗口内相同指纹的请求只放行一次
+     */
+    FINGERPRINT
+}
@@ -1,8 +1,15 @@
 package com.github.sparkzxl.web.config;
 
+import com.github.sparkzxl.web.filter.RepeatableRequestFilter;
+import com.github.sparkzxl.web.interceptor.ApiIdempotentInterceptor;
 import com.github.sparkzxl.web.interceptor.ResponseResultInterceptor;
+import com.github.sparkzxl.web.properties.IdempotentProperties;
 import com.github.sparkzxl.web.support.GlobalExceptionHandler;
 import com.github.sparkzxl.web.support.ResponseResultHandler;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
@@ -16,12 +23,21 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  * @date 2020-05-24 13:43:12
  */
 @Configuration
+@EnableConfigurationProperties(IdempotentProperties.class)
 @Import({ResponseResultHandler.class, GlobalExceptionHandler.class})
 public class GlobalWebConfig implements WebMvcConfigurer {
 
+    private final IdempotentProperties idempotentProperties;
+
+    public GlobalWebConfig(IdempotentProperties idempotentProperties) {
+        this.idempotentProperties = idempotentProperties;
+    }
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(responseResultInterceptor());
+        // 请求指纹使用responseResultInterceptor解析出的用户id，需在其后执行
+        registry.addInterceptor(apiIdempotentInterceptor());
     }
 
     @Bean
@@ -29,4 +45,24 @@ public class GlobalWebConfig implements WebMvcConfigurer {
         return new ResponseResultInterceptor();
     }
 
+    @Bean
+    public ApiIdempotentInterceptor apiIdempotentInterceptor() {
+        return new ApiIdempotentInterceptor(idempotentProperties);
+    }
+
+    /**
+     * 缓存JSON请求体，供@ApiIdempotent请求指纹使用，只缓存请求指纹模式接口的请求体
+     *
+     * @param beanFactory beanFactory
+     * @return FilterRegistrationBean<RepeatableRequestFilter>
+     */
+    @Bean
+    @ConditionalOnProperty(name = "sparkzxl.idempotent.cache-body", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<RepeatableRequestFilter> repeatableRequestFilter(ListableBeanFactory beanFactory) {
+        FilterRegistrationBean<RepeatableRequestFilter> registrationBean =
+                new FilterRegistrationBean<>(new RepeatableRequestFilter(idempotentProperties.getMaxBodySize(), beanFactory));
+        registrationBean.addUrlPatterns("/*");
+        return registrationBean;
+    }
+
 }
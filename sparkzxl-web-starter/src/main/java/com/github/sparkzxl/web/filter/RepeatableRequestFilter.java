@@ -0,0 +1,88 @@
+package com.github.sparkzxl.web.filter;
+
+import com.github.sparkzxl.web.annotation.ApiIdempotent;
+import com.github.sparkzxl.web.annotation.IdempotentMode;
+import com.google.common.collect.ImmutableList;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * description: 缓存JSON请求体，只包装匹配请求指纹模式@ApiIdempotent接口的修改类请求，其余请求、表单和文件上传请求不包装
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 17:38:05
+ */
+public class RepeatableRequestFilter extends OncePerRequestFilter {
+
+    private final int maxBodySize;
+    private final ListableBeanFactory beanFactory;
+    private volatile List<RequestMappingInfo> fingerprintMappings;
+
+    public RepeatableRequestFilter(int maxBodySize, ListableBeanFactory beanFactory) {
+        this.maxBodySize = maxBodySize;
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        filterChain.doFilter(shouldWrap(request) ? new RepeatableRequestWrapper(request) : request, response);
+    }
+
+    private boolean shouldWrap(HttpServletRequest request) {
+        if (HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                || HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return false;
+        }
+        String contentType = request.getContentType();
+        if (contentType == null || !contentType.toLowerCase().contains(MediaType.APPLICATION_JSON.getSubtype())) {
+            return false;
+        }
+        long contentLength = request.getContentLengthLong();
+        return contentLength >= 0 && contentLength <= maxBodySize && isFingerprint(request);
+    }
+
+    /**
+     * 请求是否匹配请求指纹模式的接口
+     */
+    private boolean isFingerprint(HttpServletRequest request) {
+        for (RequestMappingInfo mapping : fingerprintMappings()) {
+            if (mapping.getMatchingCondition(request) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 请求指纹模式接口的映射，首次请求时从RequestMappingHandlerMapping中收集一次
+     */
+    private List<RequestMappingInfo> fingerprintMappings() {
+        List<RequestMappingInfo> mappings = fingerprintMappings;
+        if (mappings == null) {
+            ImmutableList.Builder<RequestMappingInfo> builder = ImmutableList.builder();
+            for (RequestMappingHandlerMapping handlerMapping : beanFactory.getBeansOfType(RequestMappingHandlerMapping.class).values()) {
+                handlerMapping.getHandlerMethods().forEach((mapping, handlerMethod) -> {
+                    ApiIdempotent apiIdempotent = handlerMethod.getMethodAnnotation(ApiIdempotent.class);
+                    if (apiIdempotent != null && apiIdempotent.mode() == IdempotentMode.FINGERPRINT) {
+                        builder.add(mapping);
+                    }
+                });
+            }
+            mappings = builder.build();
+            fingerprintMappings = mappings;
+        }
+        return mappings;
+    }
+}
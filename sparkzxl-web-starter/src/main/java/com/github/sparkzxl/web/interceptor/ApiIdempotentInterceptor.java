@@ -0,0 +1,111 @@
+package com.github.sparkzxl.web.interceptor;
+
+import com.github.sparkzxl.cache.template.CacheTemplate;
+import com.github.sparkzxl.cache.utils.TokenUtil;
+import com.github.sparkzxl.core.base.ResponseResultUtils;
+import com.github.sparkzxl.core.constant.BaseContextConstant;
+import com.github.sparkzxl.core.support.ResponseResultStatus;
+import com.github.sparkzxl.core.utils.KeyUtils;
+import com.github.sparkzxl.web.annotation.ApiIdempotent;
+import com.github.sparkzxl.web.annotation.IdempotentMode;
+import com.github.sparkzxl.web.filter.RepeatableRequestWrapper;
+import com.github.sparkzxl.web.properties.IdempotentProperties;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * description: @ApiIdempotent 幂等校验拦截，token模式原子消费token，请求指纹模式在去重时间窗口内原子占位，
+ * 两种方式都只需要一次缓存往返
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 17:45:21
+ */
+@Slf4j
+public class ApiIdempotentInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String TOKEN_IN_HEAD = "head";
+    private static final char SEPARATOR = '|';
+
+    private final IdempotentProperties idempotentProperties;
+
+    @Autowired(required = false)
+    private CacheTemplate cacheTemplate;
+
+    @Autowired(required = false)
+    private TokenUtil tokenUtil;
+
+    public ApiIdempotentInterceptor(IdempotentProperties idempotentProperties) {
+        this.idempotentProperties = idempotentProperties;
+    }
+
+    @SuppressWarnings("NullableProblems")
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!idempotentProperties.isEnabled() || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        ApiIdempotent apiIdempotent = ((HandlerMethod) handler).getMethodAnnotation(ApiIdempotent.class);
+        if (apiIdempotent == null) {
+            return true;
+        }
+        if (cacheTemplate == null || tokenUtil == null) {
+            log.warn("未找到CacheTemplate，@ApiIdempotent不做校验：{}", request.getRequestURI());
+            return true;
+        }
+        boolean passed = apiIdempotent.mode() == IdempotentMode.FINGERPRINT
+                ? checkFingerprint(request, apiIdempotent.window())
+                : tokenUtil.findToken(getToken(request, apiIdempotent.value()));
+        if (!passed) {
+            throw ResponseResultStatus.REQ_REPEAT.newException();
+        }
+        return true;
+    }
+
+    private String getToken(HttpServletRequest request, String location) {
+        String tokenName = idempotentProperties.getTokenName();
+        return TOKEN_IN_HEAD.equals(location) ? request.getHeader(tokenName) : request.getParameter(tokenName);
+    }
+
+    /**
+     * 请求指纹不存在时写入并放行，SET NX一次往返完成，窗口过期后相同请求可再次提交；
+     * 请求体未缓存（分块传输、超过大小上限或非JSON请求体）时无法计算完整指纹，不做校验
+     */
+    private boolean checkFingerprint(HttpServletRequest request, long window) {
+        RepeatableRequestWrapper requestWrapper = WebUtils.getNativeRequest(request, RepeatableRequestWrapper.class);
+        if (requestWrapper == null && hasBody(request)) {
+            log.debug("请求体未缓存，@ApiIdempotent请求指纹不做校验：{}", request.getRequestURI());
+            return true;
+        }
+        String key = KeyUtils.buildKey(idempotentProperties.getKeyPrefix(), fingerprint(request, requestWrapper));
+        return cacheTemplate.setIfAbsent(key, System.currentTimeMillis(), window);
+    }
+
+    private static boolean hasBody(HttpServletRequest request) {
+        return request.getContentLengthLong() > 0 || request.getHeader(HttpHeaders.TRANSFER_ENCODING) != null;
+    }
+
+    private String fingerprint(HttpServletRequest request, RepeatableRequestWrapper requestWrapper) {
+        Object userId = request.getAttribute(BaseContextConstant.APPLICATION_AUTH_USER_ID);
+        String user = userId != null ? String.valueOf(userId) : StringUtils.defaultString(ResponseResultUtils.getAuthHeader(request));
+        Hasher hasher = Hashing.murmur3_128().newHasher()
+                .putString(user, StandardCharsets.UTF_8).putChar(SEPARATOR)
+                .putString(request.getMethod(), StandardCharsets.UTF_8).putChar(SEPARATOR)
+                .putString(request.getRequestURI(), StandardCharsets.UTF_8).putChar(SEPARATOR)
+                .putString(StringUtils.defaultString(request.getQueryString()), StandardCharsets.UTF_8).putChar(SEPARATOR);
+        if (requestWrapper != null) {
+            hasher.putBytes(requestWrapper.getBody());
+        }
+        return hasher.hash().toString();
+    }
+}
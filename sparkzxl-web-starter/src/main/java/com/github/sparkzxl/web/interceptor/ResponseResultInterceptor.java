@@ -5,7 +5,7 @@ import com.github.sparkzxl.core.constant.BaseContextConstant;
 import com.github.sparkzxl.core.constant.CoreConstant;
 import com.github.sparkzxl.core.entity.AuthUserInfo;
 import com.github.sparkzxl.cache.template.CacheTemplate;
-import com.github.sparkzxl.core.utils.KeyUtils;
+import com.github.sparkzxl.core.utils.KeyTemplate;
 import com.github.sparkzxl.web.annotation.ResponseResult;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ObjectUtils;
@@ -27,6 +27,8 @@ import java.lang.reflect.Method;
 @Slf4j
 public class ResponseResultInterceptor extends HandlerInterceptorAdapter {
 
+    private static final KeyTemplate AUTH_USER_KEY = KeyTemplate.of(BaseContextConstant.AUTH_USER);
+
     @Autowired(required = false)
     public CacheTemplate cacheTemplate;
 
@@ -35,7 +37,7 @@ public class ResponseResultInterceptor extends HandlerInterceptorAdapter {
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
         if (ObjectUtils.isNotEmpty(cacheTemplate)) {
             String accessToken = ResponseResultUtils.getAuthHeader(request);
-            AuthUserInfo authUser = cacheTemplate.get(KeyUtils.buildKey(BaseContextConstant.AUTH_USER, accessToken));
+            AuthUserInfo authUser = cacheTemplate.get(AUTH_USER_KEY.key(accessToken));
             if (ObjectUtils.isNotEmpty(authUser)) {
                 request.setAttribute(BaseContextConstant.APPLICATION_AUTH_USER_ID, authUser.getId());
                 request.setAttribute(BaseContextConstant.APPLICATION_AUTH_ACCOUNT, authUser.getAccount());
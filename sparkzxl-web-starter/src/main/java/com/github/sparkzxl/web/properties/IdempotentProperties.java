@@ -0,0 +1,40 @@
+package com.github.sparkzxl.web.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * description: API幂等属性配置
+ *
+ * @author zhouxinlei
+ * @date 2020-10-17 17:24:13
+ */
+@Data
+@ConfigurationProperties(prefix = "sparkzxl.idempotent")
+public class IdempotentProperties {
+
+    /**
+     * 是否启用@ApiIdempotent校验
+     */
+    private boolean enabled = true;
+
+    /**
+     * token模式下请求头或请求参数的名称
+     */
+    private String tokenName = "token";
+
+    /**
+     * 请求指纹缓存key前缀
+     */
+    private String keyPrefix = "idempotent";
+
+    /**
+     * 是否缓存JSON请求体，请求指纹模式需要请求体参与哈希，只缓存请求指纹模式接口的请求体
+     */
+    private boolean cacheBody = true;
+
+    /**
+     * 缓存请求体的最大字节数，超过时请求指纹不包含请求体
+     */
+    private int maxBodySize = 1024 * 1024;
+}